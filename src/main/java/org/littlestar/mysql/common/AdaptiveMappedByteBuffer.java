@@ -2,19 +2,40 @@ package org.littlestar.mysql.common;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
  * 根据position(newPos), get(dst)自动维护文件映射。
  * 
+ * <p>position(newPos), get(dst)依赖共享的position状态, 非线程安全, 重新映射时unmap之前的映射, 
+ * 它们返回的Buffer在下一次重新映射之前有效; get(pos, dst)按绝对位置读取, 
+ * 使用独立的映射窗口和duplicate视图, 不改变position状态, 可被多个线程并发调用。
+ * 
+ * <p>绝对位置读取把文件按maxRangeSize分段映射, 最多同时保留maxWindows个映射窗口(LRU), 
+ * 被淘汰的窗口在没有读取者时立即unmap; 跨越分段边界的读取分段复制, 不再从pos重新映射。
+ * 
+ * <p>slice(pos, length)返回零复制视图, 视图的生命周期未知, 其窗口被固定: 固定的窗口同样被淘汰, 
+ * 但从不显式unmap, 在所有视图不可达后由GC释放; 视图存活期间再次读取该分段时复用原映射, 
+ * 不重新映射, 因此每个分段最多一个映射。close()之后视图仍然可读(映射直到GC才释放)。
+ * 
  * @author LiXiang
  *
  */
-public class AdaptiveMappedByteBuffer {
+public class AdaptiveMappedByteBuffer implements AutoCloseable {
+	/** 默认同时映射的窗口数。 */
+	public static final int DEFAULT_MAX_WINDOWS = 16;
+	
 	private final RandomAccessFile file;
 	private final MapMode mapMode;
 	
@@ -24,11 +45,35 @@ public class AdaptiveMappedByteBuffer {
 	private long mapSize = 0L;
 
 	private MappedByteBuffer mappedBuffer;
+	/** 绝对位置读取使用的映射窗口(分段号 -&gt; 窗口), 按访问顺序排列, 与position状态无关。 */
+	private final LinkedHashMap<Long, MappedWindow> windows = new LinkedHashMap<Long, MappedWindow>(16, 0.75f, true);
+	/** 被淘汰的固定窗口(分段号 -&gt; 映射的弱引用), 视图存活期间可复用。 */
+	private final HashMap<Long, WeakReference<MappedByteBuffer>> retiredWindows = new HashMap<Long, WeakReference<MappedByteBuffer>>();
+	private final int maxWindows;
+	private long remapCount = 0L;
+	private long unmapCount = 0L;
+	private boolean closed = false;
 
 	public AdaptiveMappedByteBuffer(RandomAccessFile file, MapMode mapMode, int maxRangeSize) throws IOException {
+		this(file, mapMode, maxRangeSize, DEFAULT_MAX_WINDOWS);
+	}
+	
+	/**
+	 * @param file 映射的文件。
+	 * @param mapMode 映射模式。
+	 * @param maxRangeSize 映射窗口(分段)大小。
+	 * @param maxWindows 绝对位置读取最多同时保留的映射窗口数。
+	 * @throws IOException
+	 */
+	public AdaptiveMappedByteBuffer(RandomAccessFile file, MapMode mapMode, int maxRangeSize, int maxWindows) throws IOException {
+		if (maxRangeSize <= 0 || maxWindows <= 0) {
+			throw new IllegalArgumentException("maxRangeSize and maxWindows must be positive: maxRangeSize=" + maxRangeSize
+					+ ", maxWindows=" + maxWindows);
+		}
 		this.file = file;
 		this.maxRangeSize = maxRangeSize;
 		this.mapMode = mapMode;
+		this.maxWindows = maxWindows;
 		remap(0); // init mappedBuffer
 	}
 	
@@ -67,6 +112,221 @@ public class AdaptiveMappedByteBuffer {
 		return byteBuffer;
 	}
 	
+	/**
+	 * 从绝对位置pos读取dst.length字节, 线程安全。
+	 * 
+	 * <p>不使用也不改变position状态, 每次读取使用映射窗口的duplicate视图, 并发的读取者不共享position。
+	 * 
+	 * @param pos 读取的文件绝对位置。
+	 * @param dst 目标数组。
+	 * @return dst
+	 * @throws IOException
+	 */
+	public byte[] get(long pos, byte[] dst) throws IOException {
+		int done = 0;
+		while (done < dst.length) {
+			long from = pos + done;
+			MappedWindow w = acquireWindow(from, dst.length - done, false);
+			try {
+				int n = (int) Math.min(dst.length - done, w.mapPos + w.mapSize - from);
+				ByteBuffer view = w.buffer.duplicate();
+				view.position((int) (from - w.mapPos));
+				view.get(dst, done, n);
+				done += n;
+			} finally {
+				releaseWindow(w);
+			}
+		}
+		return dst;
+	}
+	
+	/**
+	 * 获取绝对位置pos处length字节的只读视图, 线程安全。不复制数据, 视图直接引用映射的文件, 
+	 * 跨越分段边界时返回复制。
+	 * 
+	 * @param pos    视图的文件绝对位置。
+	 * @param length 视图的字节数。
+	 * @return 只读视图, position为0, limit为length。
+	 * @throws IOException
+	 */
+	public ByteBuffer slice(long pos, int length) throws IOException {
+		if (pos >= 0 && pos / maxRangeSize != (pos + length - 1) / maxRangeSize) {
+			// 跨越分段边界, 复制。
+			return ByteBuffer.wrap(get(pos, new byte[length])).asReadOnlyBuffer();
+		}
+		// 固定窗口: 视图引用映射, 该映射不再显式unmap。
+		MappedWindow w = acquireWindow(pos, length, true);
+		try {
+			ByteBuffer view = w.readOnlyBuffer.duplicate();
+			int offset = (int) (pos - w.mapPos);
+			view.limit(offset + length);
+			view.position(offset);
+			return view.slice();
+		} finally {
+			releaseWindow(w);
+		}
+	}
+	
+	/**
+	 * 获取包含pos的分段映射窗口(没有则复用视图仍存活的映射, 或者重新映射), 并增加引用计数, 
+	 * 使用后必须releaseWindow()。
+	 * 
+	 * @param pin 是否固定窗口(slice视图引用该映射)。
+	 */
+	private synchronized MappedWindow acquireWindow(long pos, int length, boolean pin) throws IOException {
+		if (closed) {
+			throw new IOException("mapped file is closed.");
+		}
+		final long segment = pos / maxRangeSize;
+		MappedWindow w = pos < 0 ? null : windows.get(segment);
+		if (Objects.isNull(w)) {
+			long fileLength = file.length();
+			if (pos < 0 || pos + length > fileLength) {
+				throw new IOException("read out of file range: pos=" + pos + ", length=" + length + ", file length=" + fileLength);
+			}
+			long newMapPos = segment * maxRangeSize;
+			long newMapSize = Math.min(maxRangeSize, fileLength - newMapPos);
+			MappedByteBuffer retired = reviveWindow(segment, newMapSize);
+			if (Objects.nonNull(retired)) {
+				w = new MappedWindow(newMapPos, newMapSize, retired);
+				w.pinned = true;
+			} else {
+				w = new MappedWindow(newMapPos, newMapSize, file.getChannel().map(mapMode, newMapPos, newMapSize));
+				remapCount++;
+			}
+			windows.put(segment, w);
+			evictWindows();
+		} else if (pos + length > w.mapPos + w.mapSize && w.mapSize < maxRangeSize) {
+			// 超出最后一个分段(文件末尾)。
+			throw new IOException("read out of file range: pos=" + pos + ", length=" + length + ", file length=" + file.length());
+		}
+		w.refCount++;
+		if (pin) {
+			w.pinned = true;
+		}
+		return w;
+	}
+	
+	/**
+	 * @return 分段被淘汰的固定窗口的映射, 视图都已不可达(已被GC)时返回null。
+	 */
+	private MappedByteBuffer reviveWindow(long segment, long mapSize) {
+		WeakReference<MappedByteBuffer> ref = retiredWindows.remove(segment);
+		retiredWindows.values().removeIf(r -> Objects.isNull(r.get()));
+		MappedByteBuffer buffer = Objects.isNull(ref) ? null : ref.get();
+		return Objects.nonNull(buffer) && buffer.capacity() == mapSize ? buffer : null;
+	}
+	
+	private synchronized void releaseWindow(MappedWindow w) {
+		if (--w.refCount == 0 && w.evicted && !w.pinned) {
+			unmapWindow(w);
+		}
+	}
+	
+	/**
+	 * 淘汰最久未使用的窗口, 直到不超过maxWindows个; 没有读取者的窗口立即unmap, 
+	 * 其它的在最后一个读取者release时unmap; 固定的窗口不unmap, 留给GC。
+	 */
+	private void evictWindows() {
+		Iterator<Map.Entry<Long, MappedWindow>> it = windows.entrySet().iterator();
+		while (windows.size() > maxWindows && it.hasNext()) {
+			Map.Entry<Long, MappedWindow> eldest = it.next();
+			MappedWindow w = eldest.getValue();
+			it.remove();
+			w.evicted = true;
+			if (w.pinned) {
+				retiredWindows.put(eldest.getKey(), new WeakReference<MappedByteBuffer>(w.buffer));
+			} else if (w.refCount == 0) {
+				unmapWindow(w);
+			}
+		}
+	}
+	
+	private void unmapWindow(MappedWindow w) {
+		if (!w.unmapped) {
+			w.unmapped = true;
+			if (unmap(w.buffer)) {
+				unmapCount++;
+			}
+		}
+	}
+	
+	/**
+	 * @return 当前映射表中的窗口数, 不超过maxWindows。
+	 */
+	public synchronized int getWindowCount() {
+		return windows.size();
+	}
+	
+	/**
+	 * @return 绝对位置读取映射窗口的次数。
+	 */
+	public synchronized long getRemapCount() {
+		return remapCount;
+	}
+	
+	/**
+	 * @return 显式unmap的窗口数。
+	 */
+	public synchronized long getUnmapCount() {
+		return unmapCount;
+	}
+	
+	/**
+	 * 释放所有映射窗口, 不关闭文件; 正在读取的窗口在读取结束(releaseWindow)时释放, 
+	 * 固定的窗口由GC释放, slice()返回的视图仍然可读。之后的读取抛出IOException。
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (MappedWindow w : windows.values()) {
+			w.evicted = true;
+			if (w.refCount == 0 && !w.pinned) {
+				unmapWindow(w);
+			}
+		}
+		windows.clear();
+		retiredWindows.clear();
+		if (Objects.nonNull(mappedBuffer)) {
+			unmap(mappedBuffer);
+			mappedBuffer = null;
+		}
+	}
+	
+	/**
+	 * 显式释放映射(Java 9+: Unsafe.invokeCleaner, Java 8: DirectBuffer.cleaner()), 
+	 * 不支持时由GC释放。
+	 * 
+	 * @return true if unmapped.
+	 */
+	private static boolean unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return true;
+		} catch (Exception e) {
+			// Java 8
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (Objects.nonNull(cleaner)) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+				return true;
+			}
+		} catch (Exception e) {
+			// left to GC.
+		}
+		return false;
+	}
+	
 	/**
 	 *  
 	 * @param newPos
@@ -89,23 +349,19 @@ public class AdaptiveMappedByteBuffer {
 	}
 	
 	private MappedByteBuffer remap(long startPos, long endPos) throws IOException {
-		System.out.println("remap!");
 		if (startPos >= endPos) {
-			throw new IOException("Map startPos must larger than endPos.");
+			throw new IOException("Map endPos must larger than startPos.");
 		}
 		long newMapPos = startPos;
 		long newMapSize = maxRangeSize;
 		if (endPos > (newMapPos + newMapSize)) {
-			newMapSize = startPos - endPos;
+			newMapSize = endPos - startPos;
 		}
 		long fileLength = file.length();
 		if ((startPos + newMapSize) > fileLength) {
 			newMapSize = fileLength - startPos;
 		}
-		mappedBuffer = file.getChannel().map(mapMode, newMapPos, newMapSize);
-		mapPos = newMapPos;
-		mapSize = newMapSize;
-		return mappedBuffer;
+		return replaceMappedBuffer(newMapPos, newMapSize);
 	}
 	
 	private MappedByteBuffer remap(long newPos) throws IOException {
@@ -137,12 +393,42 @@ public class AdaptiveMappedByteBuffer {
 				newMapSize = maxRangeSize;
 			}
 		}
-		mappedBuffer = file.getChannel().map(mapMode, newMapPos, newMapSize);
+		return replaceMappedBuffer(newMapPos, newMapSize);
+	}
+	
+	/**
+	 * 映射新的范围并unmap之前的映射, 之前position(newPos), get(dst)返回的Buffer不可再使用。
+	 */
+	private MappedByteBuffer replaceMappedBuffer(long newMapPos, long newMapSize) throws IOException {
+		MappedByteBuffer newBuffer = file.getChannel().map(mapMode, newMapPos, newMapSize);
+		if (Objects.nonNull(mappedBuffer)) {
+			unmap(mappedBuffer);
+		}
+		mappedBuffer = newBuffer;
 		mapPos = newMapPos;
 		mapSize = newMapSize;
 		return mappedBuffer;
 	}
 	
+	private static final class MappedWindow {
+		private final long mapPos;
+		private final long mapSize;
+		private final MappedByteBuffer buffer;
+		private final ByteBuffer readOnlyBuffer;
+		/** 以下状态由AdaptiveMappedByteBuffer的锁保护。 */
+		private int refCount = 0;
+		private boolean evicted = false;
+		private boolean pinned = false;
+		private boolean unmapped = false;
+
+		private MappedWindow(long mapPos, long mapSize, MappedByteBuffer buffer) {
+			this.mapPos = mapPos;
+			this.mapSize = mapSize;
+			this.buffer = buffer;
+			this.readOnlyBuffer = buffer.asReadOnlyBuffer();
+		}
+	}
+	
 	protected String bufferState() {
 		return "Range: [" + getMappedLowBound() + " - " + getMappedUpBound() + "], offset: " + offset() +", position: " + position();
 	}
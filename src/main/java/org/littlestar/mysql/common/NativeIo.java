@@ -0,0 +1,232 @@
+package org.littlestar.mysql.common;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Linux madvise(2) / posix_fadvise(2) access hints, called through the Foreign
+ * Function &amp; Memory API (java.lang.foreign, final in JDK 22) bound by method
+ * handles, so the class loads on Java 8. On older JDKs, other operating systems or
+ * architectures {@link #isSupported()} is false and the hints are no-ops.
+ *
+ * <p>The downcall handles are created by the restricted method
+ * Linker.downcallHandle: run with {@code --enable-native-access=ALL-UNNAMED} (or
+ * the module of this library) on JDK 22+, otherwise the JDK prints a warning and
+ * a later JDK denies the access. A binding failure is logged once, at WARNING.
+ *
+ * <p>The hints never change the result of a read: errors are ignored, the methods
+ * only report whether the kernel accepted the hint.
+ */
+public final class NativeIo {
+	public static final int MADV_NORMAL = 0;
+	public static final int MADV_RANDOM = 1;
+	public static final int MADV_SEQUENTIAL = 2;
+	public static final int MADV_WILLNEED = 3;
+	public static final int MADV_DONTNEED = 4;
+
+	public static final int POSIX_FADV_NORMAL = 0;
+	public static final int POSIX_FADV_RANDOM = 1;
+	public static final int POSIX_FADV_SEQUENTIAL = 2;
+	public static final int POSIX_FADV_WILLNEED = 3;
+	public static final int POSIX_FADV_DONTNEED = 4;
+
+	/** the alignment of madvise address, the smallest page size of Linux. */
+	public static final int OS_PAGE_SIZE = 4096;
+
+	private static final int O_RDONLY = 0;
+
+	/** int madvise(void *addr, size_t length, int advice) */
+	private static final MethodHandle MADVISE;
+	/** int posix_fadvise(int fd, off_t offset, off_t len, int advice) */
+	private static final MethodHandle POSIX_FADVISE;
+	/** int open(const char *pathname, int flags) */
+	private static final MethodHandle OPEN;
+	/** int close(int fd) */
+	private static final MethodHandle CLOSE;
+	/** the C string of a file name: (byte[]) -&gt; address, freed by FREE_ARENA. */
+	private static final MethodHandle NEW_ARENA, ALLOCATE, COPY, ADDRESS, FREE_ARENA;
+	private static final Object JAVA_BYTE;
+
+	private static final Logger LOGGER = Logger.getLogger(NativeIo.class.getName());
+
+	static {
+		MethodHandle madvise = null, fadvise = null, open = null, close = null;
+		MethodHandle newArena = null, allocate = null, copy = null, address = null, freeArena = null;
+		Object javaByte = null;
+		try {
+			String os = System.getProperty("os.name", "");
+			String arch = System.getProperty("os.arch", "");
+			// the constants above and pointer as long are of the LP64 ABIs of x86_64 and aarch64,
+			// java.lang.foreign is a preview API in JDK 21.
+			if (os.startsWith("Linux") && ("amd64".equals(arch) || "x86_64".equals(arch) || "aarch64".equals(arch))
+					&& ParserHelper.getJavaVersion() >= 22) {
+				// full privilege: Linker.downcallHandle is caller sensitive, a public lookup can not bind it.
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				Class<?> linkerClass = Class.forName("java.lang.foreign.Linker");
+				Class<?> optionClass = Class.forName("java.lang.foreign.Linker$Option");
+				Class<?> lookupClass = Class.forName("java.lang.foreign.SymbolLookup");
+				Class<?> layoutClass = Class.forName("java.lang.foreign.MemoryLayout");
+				Class<?> valueLayoutClass = Class.forName("java.lang.foreign.ValueLayout");
+				Class<?> descriptorClass = Class.forName("java.lang.foreign.FunctionDescriptor");
+				Class<?> segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+				Class<?> arenaClass = Class.forName("java.lang.foreign.Arena");
+				Object linker = lookup.findStatic(linkerClass, "nativeLinker", MethodType.methodType(linkerClass)).invoke();
+				Object symbols = lookup.findVirtual(linkerClass, "defaultLookup", MethodType.methodType(lookupClass)).invoke(linker);
+				MethodHandle find = lookup.findVirtual(lookupClass, "find", MethodType.methodType(Optional.class, String.class));
+				MethodHandle descriptorOf = lookup.findStatic(descriptorClass, "of",
+						MethodType.methodType(descriptorClass, layoutClass, Array.newInstance(layoutClass, 0).getClass())).asFixedArity();
+				MethodHandle downcall = lookup.findVirtual(linkerClass, "downcallHandle", MethodType.methodType(MethodHandle.class,
+						segmentClass, descriptorClass, Array.newInstance(optionClass, 0).getClass())).asFixedArity();
+				Object jint = valueLayoutClass.getField("JAVA_INT").get(null);
+				Object jlong = valueLayoutClass.getField("JAVA_LONG").get(null);
+				Object noOptions = Array.newInstance(optionClass, 0);
+
+				Object[][] signatures = {
+						{ "madvise", new Object[] { jlong, jlong, jint } },
+						{ "posix_fadvise", new Object[] { jint, jlong, jlong, jint } },
+						{ "open", new Object[] { jlong, jint } },
+						{ "close", new Object[] { jint } } };
+				MethodHandle[] handles = new MethodHandle[signatures.length];
+				for (int i = 0; i < signatures.length; i++) {
+					Object symbol = ((Optional<?>) find.invoke(symbols, (String) signatures[i][0])).get();
+					Object[] args = (Object[]) signatures[i][1];
+					Object argLayouts = Array.newInstance(layoutClass, args.length);
+					for (int j = 0; j < args.length; j++) {
+						Array.set(argLayouts, j, args[j]);
+					}
+					Object descriptor = descriptorOf.invoke(jint, argLayouts);
+					handles[i] = (MethodHandle) downcall.invoke(linker, symbol, descriptor, noOptions);
+				}
+				madvise = handles[0];
+				fadvise = handles[1];
+				open = handles[2];
+				close = handles[3];
+
+				newArena = lookup.findStatic(arenaClass, "ofConfined", MethodType.methodType(arenaClass))
+						.asType(MethodType.methodType(Object.class));
+				allocate = lookup.findVirtual(arenaClass, "allocate", MethodType.methodType(segmentClass, long.class))
+						.asType(MethodType.methodType(Object.class, Object.class, long.class));
+				copy = lookup.findStatic(segmentClass, "copy", MethodType.methodType(void.class, Object.class, int.class,
+						segmentClass, valueLayoutClass, long.class, int.class))
+						.asType(MethodType.methodType(void.class, Object.class, int.class, Object.class, Object.class, long.class, int.class));
+				address = lookup.findVirtual(segmentClass, "address", MethodType.methodType(long.class))
+						.asType(MethodType.methodType(long.class, Object.class));
+				freeArena = lookup.findVirtual(arenaClass, "close", MethodType.methodType(void.class))
+						.asType(MethodType.methodType(void.class, Object.class));
+				javaByte = valueLayoutClass.getField("JAVA_BYTE").get(null);
+			}
+		} catch (Throwable e) {
+			// the symbols are not found or native access is denied.
+			LOGGER.log(Level.WARNING, "madvise/posix_fadvise are not available, the access hints are ignored.", e);
+			madvise = null;
+		}
+		boolean supported = Objects.nonNull(madvise) && Objects.nonNull(javaByte);
+		MADVISE = supported ? madvise : null;
+		POSIX_FADVISE = supported ? fadvise : null;
+		OPEN = supported ? open : null;
+		CLOSE = supported ? close : null;
+		NEW_ARENA = newArena;
+		ALLOCATE = allocate;
+		COPY = copy;
+		ADDRESS = address;
+		FREE_ARENA = freeArena;
+		JAVA_BYTE = javaByte;
+	}
+
+	private NativeIo() {
+	}
+
+	/**
+	 * @return true if the hints are passed to the kernel (Linux x86_64/aarch64, JDK 22+).
+	 */
+	public static boolean isSupported() {
+		return Objects.nonNull(MADVISE);
+	}
+
+	/**
+	 * madvise(2) of a mapped memory range, the address is aligned down to
+	 * {@link #OS_PAGE_SIZE}.
+	 *
+	 * @param address the native address in the mapping.
+	 * @param length the length in bytes.
+	 * @param advice MADV_*.
+	 * @return true if the kernel accepted the hint.
+	 */
+	public static boolean madvise(long address, long length, int advice) {
+		if (!isSupported() || length <= 0) {
+			return false;
+		}
+		long aligned = address - (address % OS_PAGE_SIZE);
+		try {
+			return (int) MADVISE.invokeExact(aligned, length + (address - aligned), advice) == 0;
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * posix_fadvise(2) of a file range, see {@link #open(String)}.
+	 *
+	 * @param fd the file descriptor, ignored if negative.
+	 * @param advice POSIX_FADV_*.
+	 * @return true if the kernel accepted the hint.
+	 */
+	public static boolean fadvise(int fd, long offset, long length, int advice) {
+		if (!isSupported() || fd < 0 || length <= 0) {
+			return false;
+		}
+		try {
+			return (int) POSIX_FADVISE.invokeExact(fd, offset, length, advice) == 0;
+		} catch (Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * open a read-only file descriptor for {@link #fadvise(int, long, long, int)}:
+	 * WILLNEED and DONTNEED act on the page cache of the file, whichever descriptor
+	 * reads it.
+	 *
+	 * @return the file descriptor, -1 if not supported or the file can not be opened.
+	 */
+	public static int open(String fileName) {
+		if (!isSupported()) {
+			return -1;
+		}
+		byte[] path = fileName.getBytes(Charset.defaultCharset());
+		try {
+			Object arena = (Object) NEW_ARENA.invokeExact();
+			try {
+				// zero filled, so the C string is terminated.
+				Object cString = (Object) ALLOCATE.invokeExact(arena, (long) path.length + 1);
+				COPY.invokeExact((Object) path, 0, cString, JAVA_BYTE, 0L, path.length);
+				return (int) OPEN.invokeExact((long) ADDRESS.invokeExact(cString), O_RDONLY);
+			} finally {
+				FREE_ARENA.invokeExact(arena);
+			}
+		} catch (Throwable e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * close the file descriptor of {@link #open(String)}, ignored if negative.
+	 */
+	public static void close(int fd) {
+		if (!isSupported() || fd < 0) {
+			return;
+		}
+		try {
+			CLOSE.invoke(fd);
+		} catch (Throwable e) {
+			// ignored.
+		}
+	}
+}
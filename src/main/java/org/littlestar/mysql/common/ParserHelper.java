@@ -259,6 +259,20 @@ public class ParserHelper {
 		return value;
 	}
 
+	/**
+	 * read a big-endian int16 at the offset of bytes, without copy.
+	 */
+	public static int getInt16(byte[] bytes, int offset) {
+		return (short) ((bytes[offset] << 8) | (bytes[offset + 1] & 0xFF));
+	}
+
+	/**
+	 * read a big-endian uint16 at the offset of bytes, without copy.
+	 */
+	public static int getUInt16(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
 	public static byte[] int16ToBytes(short value) {
 		return new byte[] { (byte) (value >> 8 & 0xFF), (byte) (value & 0xFF) };
 	}
@@ -289,6 +303,20 @@ public class ParserHelper {
 	public static long getUInt32(byte[] bytes) {
 		return getInt32(bytes) & 0xFFFFFFFFL;
 	}
+
+	/**
+	 * read a big-endian int32 at the offset of bytes, without copy.
+	 */
+	public static int getInt32(byte[] bytes, int offset) {
+		return bytes[offset] << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * read a big-endian uint32 at the offset of bytes, without copy.
+	 */
+	public static long getUInt32(byte[] bytes, int offset) {
+		return getInt32(bytes, offset) & 0xFFFFFFFFL;
+	}
 	
 	public static long getInt64(byte[] bytes) {
 		if (Objects.isNull(bytes) || bytes.length != 8) {
@@ -307,4 +335,20 @@ public class ParserHelper {
 		}
 		return new BigInteger(1, bytes);
 	}
+
+	/**
+	 * the feature release of the running JDK, from java.specification.version ("1.8" is 8),
+	 * e.g. to check an API that is preview in one release and final in the next.
+	 */
+	public static int getJavaVersion() {
+		String version = System.getProperty("java.specification.version", "1.8");
+		if (version.startsWith("1.")) {
+			version = version.substring(2);
+		}
+		try {
+			return Integer.parseInt(version);
+		} catch (NumberFormatException e) {
+			return 8;
+		}
+	}
 }
@@ -1,7 +1,8 @@
 package org.littlestar.mysql.ibd.examples;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.PrimitiveIterator;
+
 import org.littlestar.mysql.ibd.page.FilHeader;
 import org.littlestar.mysql.ibd.page.IndexPage;
 import org.littlestar.mysql.ibd.page.IndexPage.IndexHeader;
@@ -11,11 +12,12 @@ public class IdxPage1 {
 	public static void main(String[] args) throws IOException, Exception {
 		String fileName = "D:\\Data\\mysql\\8.0.18\\data\\sakila\\film.ibd";
 		try (IbdFileParser parser = new IbdFileParser(fileName)) {
-			List<Long> pageNums = parser.getPageTypeMap().get(FilHeader.FIL_PAGE_INDEX);
+			PrimitiveIterator.OfLong pageNums = parser.getPageInventory().getPages(FilHeader.FIL_PAGE_INDEX).iterator();
 			StringBuilder buff = new StringBuilder();
 			buff.append(" PAGE       PAGE_TYPE LEVEL INDEX_ID   PAGE_PREV   PAGE_NEXT\n")
 				.append("----- --------------- ----- -------- ----------- -----------\n");
-			for (long pageNum : pageNums) {
+			while (pageNums.hasNext()) {
+				long pageNum = pageNums.nextLong();
 				IndexPage indexPage = (IndexPage) parser.getPage(pageNum);
 				FilHeader filHeader = indexPage.getFilHeader();
 				IndexHeader indexHeader = indexPage.getIndexHeader();
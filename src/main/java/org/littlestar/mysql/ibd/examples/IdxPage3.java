@@ -15,7 +15,6 @@ import static org.littlestar.mysql.ibd.parser.ColumnType.VARCHAR;
 import static org.littlestar.mysql.ibd.parser.ColumnType.YEAR;
 
 import java.util.List;
-import java.util.Map;
 
 import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage;
 import org.littlestar.mysql.ibd.page.FilHeader;
@@ -67,8 +66,7 @@ public class IdxPage3 {
 	public static void main(String[] args) throws Exception {
 		String fileName = "D:\\Data\\mysql\\8.0.18\\data\\sakila\\film.ibd";
 		try (IbdFileParser parser = new IbdFileParser(fileName)) {
-			Map<Integer, List<Long>> pageTypeMap = parser.getPageTypeMap();
-			List<Long> indexPageNumbers = pageTypeMap.get(FilHeader.FIL_PAGE_INDEX);
+			long[] indexPageNumbers = parser.getPageInventory().getPages(FilHeader.FIL_PAGE_INDEX).toArray();
 			IndexPage pkRoot = (IndexPage) parser.getPage(4);
 			long pkId = pkRoot.getIndexHeader().getIndexId().longValueExact();
 			StringBuilder buff = new StringBuilder();
@@ -1,6 +1,5 @@
 package org.littlestar.mysql.ibd.page;
 
-import static org.littlestar.mysql.common.ParserHelper.getUInt8;
 import static org.littlestar.mysql.common.ParserHelper.toBitSet;
 
 import java.util.ArrayList;
@@ -9,7 +8,9 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
-import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.Projection;
+import org.littlestar.mysql.ibd.parser.RecordFilter;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 import org.littlestar.mysql.ibd.parser.TableMeta;
 
 public class ClusteredKeyLeafPage extends IndexPage {
@@ -53,118 +54,27 @@ public class ClusteredKeyLeafPage extends IndexPage {
 	 *                                 | User record Contents (Variable) |
 	 * </pre>
 	 * 
-	 * @param tableMeta
+	 * @param layout the record layout, see {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param projection the requested columns, all columns if null.
+	 * @param filter the records to parse, all records if null.
 	 * @param firstRecordPos first record position (infimum next record position)
 	 * @return user records in this page.
 	 */
-	private List<ClusteredKeyLeafRecord> iterateRecordInPage(TableMeta tableMeta, int firstRecordPos) {
+	private List<ClusteredKeyLeafRecord> iterateRecordInPage(RecordLayout layout, Projection projection, RecordFilter filter,
+			int firstRecordPos) {
 		final List<ClusteredKeyLeafRecord> records = new ArrayList<ClusteredKeyLeafRecord>();
+		// the filter is tested on the field bytes in page, before the record is parsed.
+		final RecordCursor cursor = Objects.isNull(filter) ? null
+				: new RecordCursor(Projection.of(layout, filter.getColumnIndexes()), this);
 		// the position of first user record's content in pageRaw.
 		int currentPos = firstRecordPos;
 		int recCount = 0;
 		while (currentPos > SUPREMUM_EXTRA_END_POS && currentPos <= getIndexHeader().getHeapTopPosition()) {
-			final List<RecordField> recordFields = new ArrayList<RecordField>();
-			//// initial user record's filed list and get nullable field count.
-			int nullableColumnCount = 0;
-			for (ColumnMeta meta : tableMeta.getColumns()) {
-				if (meta.isNullable()) {
-					nullableColumnCount++;
-				}
-				recordFields.add(new RecordField(meta));
+			int nextOffset = RecordExtra.getNextRecordOffset(pageRaw, currentPos);
+			int nextRecord = nextOffset + currentPos;
+			if (Objects.isNull(cursor) || filter.test(cursor.moveTo(currentPos))) {
+				records.add(parseRecord(layout, projection, currentPos));
 			}
-
-			ClusteredKeyLeafRecord userRecord = new ClusteredKeyLeafRecord();
-			////// record extra. //////
-			int from = currentPos - REC_N_NEW_EXTRA_BYTES;
-			int to = currentPos;
-			// get record-extra.
-			byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
-			userRecord.setRecordExtraRaw(recordExtraRaw);
-			int nextOffset = userRecord.getNextRecordOffset();
-			int nextRecord = nextOffset + to;
-
-			////// null-bitmap. //////
-			//// if not nullable column in table, then user record not contains null-bitmap.
-			final int nullableBitmapBytes = (nullableColumnCount + 7) / 8;
-			final BitSet nullBitmap;
-			if (nullableBitmapBytes > 0) {
-				to = from;
-				from -= nullableBitmapBytes;
-				byte[] nullBitmapRaw = Arrays.copyOfRange(pageRaw, from, to);
-				userRecord.setNullBitmapRaw(nullBitmapRaw);
-				nullBitmap = toBitSet(nullBitmapRaw);
-				int bitmapIndex = 0;
-				// set null field by null-bitmap.
-				for (RecordField field : recordFields) {
-					if (field.isNullable()) {
-						boolean isNull = nullBitmap.get(bitmapIndex++);
-						field.setNull(isNull);
-						if (isNull) {
-							field.setLength(0);
-						}
-					}
-				}
-			} else {
-				userRecord.setNullBitmapRaw(null);
-				nullBitmap = new BitSet();
-			}
-
-			////// variable-lengths. //////
-			// get variable-length fields store length(bytes).
-			int vfrom = 0, vto = from;
-			for (RecordField field : recordFields) {
-				if (field.isVariableLength() && (!field.isNull())) {
-					int len = field.getLength();
-					if (len > 0xFF) {
-						// 参考undrop-for-innodb的c_parser.c的ibrec_init_offsets_new
-						// 但没读懂意图, C++体育老师教的, 强改成了Java, 可能会有问题...
-						byte[] bytes = Arrays.copyOfRange(pageRaw, vfrom = vto - 2, vto);
-						int b1 = getUInt8(bytes[1]);
-						if ((b1 & 0x80) == 0) {
-							byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-							len = getUInt8(b);
-						} else {
-							int b0 = getUInt8(bytes[0]);
-							b1 <<= 8;
-							b1 |= b0;
-							int offs = 0;
-							offs += b1 & 0x3fff;
-							if ((b1 & 0x4000) != 0) {
-								int REC_OFFS_EXTERNAL = 1 << 30;
-								len = offs | REC_OFFS_EXTERNAL;
-							} else {
-								len = offs;
-							}
-						}
-						//
-					} else {
-						byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-						len = getUInt8(b);
-					}
-					field.setLength(len);
-					vto = vfrom;
-				}
-			}
-
-			byte[] variableFieldLengths;
-			if (vfrom == 0 || vfrom >= to) {
-				variableFieldLengths = null;
-			} else {
-				variableFieldLengths = Arrays.copyOfRange(pageRaw, vfrom, to);
-			}
-			userRecord.setVariableFieldLengthsRaw(variableFieldLengths);
-
-			////// User Record Content.//////
-			int cententOffset = currentPos;
-			for (RecordField field : recordFields) {
-				byte[] contentRaw = null;
-				if (!field.isNull()) {
-					contentRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += field.getLength());
-				}
-				field.setConetentRaw(contentRaw);
-				userRecord.addRecordField(field);
-			}
-			records.add(userRecord);
 			recCount++;
 			if (recCount > maxRecs || nextOffset == 0 || nextRecord == SUPREMUM_EXTRA_END_POS) {
 				break;
@@ -174,6 +84,75 @@ public class ClusteredKeyLeafPage extends IndexPage {
 		}
 		return records;
 	}
+
+	/**
+	 * parse the user record at the position.
+	 * 
+	 * @param tableMeta the table meta data.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the user record, getNextRecordPos() is the position of next record.
+	 */
+	public ClusteredKeyLeafRecord getRecord(TableMeta tableMeta, int currentPos) {
+		return getRecord(tableMeta.getClusteredLeafLayout(), currentPos);
+	}
+
+	/**
+	 * parse the user record at the position by the compiled record layout.
+	 * 
+	 * @param layout the record layout, see {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the user record, getNextRecordPos() is the position of next record.
+	 */
+	public ClusteredKeyLeafRecord getRecord(RecordLayout layout, int currentPos) {
+		return parseRecord(layout, null, currentPos);
+	}
+
+	/**
+	 * parse only the requested columns of the user record at the position, the record
+	 * fields are the projected fields in layout order, and the variable-field-lengths
+	 * raw is null.
+	 * 
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the user record, getNextRecordPos() is the position of next record.
+	 */
+	public ClusteredKeyLeafRecord getRecord(Projection projection, int currentPos) {
+		return parseRecord(projection.getLayout(), projection, currentPos);
+	}
+
+	private ClusteredKeyLeafRecord parseRecord(RecordLayout layout, Projection projection, int currentPos) {
+		ClusteredKeyLeafRecord userRecord = new ClusteredKeyLeafRecord();
+		////// record extra. //////
+		int from = currentPos - REC_N_NEW_EXTRA_BYTES;
+		int to = currentPos;
+		// get record-extra.
+		byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
+		userRecord.setRecordExtraRaw(recordExtraRaw);
+		int nextOffset = userRecord.getNextRecordOffset();
+		userRecord.setNextRecordPos(nextOffset + to);
+
+		////// null-bitmap, variable-lengths and contents. //////
+		List<RecordField> fields = userRecord.getRecordFields();
+		int vfrom = Objects.isNull(projection) ? parseRecordFields(layout, currentPos, fields)
+				: parseRecordFields(projection, currentPos, fields);
+		//// if not nullable column in table, then user record not contains null-bitmap.
+		final int nullableBitmapBytes = layout.getNullBitmapBytes();
+		if (nullableBitmapBytes > 0) {
+			to = from;
+			from -= nullableBitmapBytes;
+			userRecord.setNullBitmapRaw(Arrays.copyOfRange(pageRaw, from, to));
+		} else {
+			userRecord.setNullBitmapRaw(null);
+		}
+		byte[] variableFieldLengths;
+		if (vfrom >= from || Objects.nonNull(projection)) {
+			variableFieldLengths = null;
+		} else {
+			variableFieldLengths = Arrays.copyOfRange(pageRaw, vfrom, from);
+		}
+		userRecord.setVariableFieldLengthsRaw(variableFieldLengths);
+		return userRecord;
+	}
 	
 	/**
 	 * get the user records in page.
@@ -183,7 +162,76 @@ public class ClusteredKeyLeafPage extends IndexPage {
 	 */
 	public List<ClusteredKeyLeafRecord> getUserRecords(TableMeta tableMeta) {
 		int pos = getSystemRecords().getInfimumNextRecordPos();
-		return iterateRecordInPage(tableMeta, pos);
+		return iterateRecordInPage(tableMeta.getClusteredLeafLayout(), null, null, pos);
+	}
+
+	/**
+	 * get the user records in page with only the requested columns (projection
+	 * pushdown), the other columns are skipped, not copied nor decoded.
+	 * 
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @return the user records in page.
+	 */
+	public List<ClusteredKeyLeafRecord> getUserRecords(Projection projection) {
+		int pos = getSystemRecords().getInfimumNextRecordPos();
+		return iterateRecordInPage(projection.getLayout(), projection, null, pos);
+	}
+
+	/**
+	 * get the user records in page which match the filter, the filter is evaluated
+	 * on the undecoded field bytes and only the matched records are parsed.
+	 * 
+	 * @param tableMeta the table meta data.
+	 * @param filter the filter of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @return the matched user records in page.
+	 */
+	public List<ClusteredKeyLeafRecord> getUserRecords(TableMeta tableMeta, RecordFilter filter) {
+		RecordLayout layout = tableMeta.getClusteredLeafLayout();
+		checkFilter(layout, filter);
+		int pos = getSystemRecords().getInfimumNextRecordPos();
+		return iterateRecordInPage(layout, null, filter, pos);
+	}
+
+	/**
+	 * get the requested columns of the user records in page which match the filter.
+	 * 
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param filter the filter of the same layout, the tested columns need not be requested.
+	 * @return the matched user records in page.
+	 */
+	public List<ClusteredKeyLeafRecord> getUserRecords(Projection projection, RecordFilter filter) {
+		checkFilter(projection.getLayout(), filter);
+		int pos = getSystemRecords().getInfimumNextRecordPos();
+		return iterateRecordInPage(projection.getLayout(), projection, filter, pos);
+	}
+
+	private static void checkFilter(RecordLayout layout, RecordFilter filter) {
+		if (filter.getLayout() != layout) {
+			throw new IllegalArgumentException("filter is not of the record layout.");
+		}
+	}
+
+	/**
+	 * get the user records in page with only the requested columns, from the record
+	 * at the position to the last one.
+	 * 
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param firstRecordPos the position of first record.
+	 * @return the user records from the position.
+	 */
+	public List<ClusteredKeyLeafRecord> getUserRecords(Projection projection, int firstRecordPos) {
+		return iterateRecordInPage(projection.getLayout(), projection, null, firstRecordPos);
+	}
+
+	/**
+	 * get the user records in page, from the record at the position to the last one.
+	 * 
+	 * @param tableMeta the table meta data.
+	 * @param firstRecordPos the position of first record, e.g. next of {@link #seekRecordPos(java.util.function.IntPredicate)}.
+	 * @return the user records from the position.
+	 */
+	public List<ClusteredKeyLeafRecord> getUserRecords(TableMeta tableMeta, int firstRecordPos) {
+		return iterateRecordInPage(tableMeta.getClusteredLeafLayout(), null, null, firstRecordPos);
 	}
 
 	/**
@@ -195,7 +243,7 @@ public class ClusteredKeyLeafPage extends IndexPage {
 	 */
 	public List<ClusteredKeyLeafRecord> getGarbageRecords(TableMeta tableMeta) {
 		int pos = getIndexHeader().getFirstGarbageOffset();
-		return iterateRecordInPage(tableMeta, pos);
+		return iterateRecordInPage(tableMeta.getClusteredLeafLayout(), null, null, pos);
 	}
 	
 	/**
@@ -6,7 +6,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 import org.littlestar.mysql.ibd.parser.TableMeta;
 
 public class ClusteredKeyNonLeafPage extends IndexPage {
@@ -19,72 +19,14 @@ public class ClusteredKeyNonLeafPage extends IndexPage {
 		super(pageRaw);
 	}
 
-	private List<ClusteredKeyNonLeafRecord> iterateRecordInPage(TableMeta tableMeta, int firstRecordPos) {
+	private List<ClusteredKeyNonLeafRecord> iterateRecordInPage(RecordLayout layout, int firstRecordPos) {
 		final List<ClusteredKeyNonLeafRecord> clusteredKeyNonLeafRecords = new ArrayList<ClusteredKeyNonLeafRecord>();
 		int currentPos = firstRecordPos;
 		int recCount = 0;
-		int nullableBitmapBytes = (tableMeta.getNullableColumnCount() + 7) / 8;
 		while (currentPos > SUPREMUM_EXTRA_END_POS && currentPos <= getIndexHeader().getHeapTopPosition()) {
-			final List<RecordField> clusterKeyFields = new ArrayList<RecordField>();
-			for (ColumnMeta meta : tableMeta.getClusterKey().getKeyColumns()) {
-				clusterKeyFields.add(new RecordField(meta));
-			}
-			
-			ClusteredKeyNonLeafRecord userRecord = new ClusteredKeyNonLeafRecord();
-			int from = currentPos - REC_N_NEW_EXTRA_BYTES;
-			int to = currentPos;
-			byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
-			userRecord.setRecordExtraRaw(recordExtraRaw);
+			ClusteredKeyNonLeafRecord userRecord = getRecord(layout, currentPos);
 			int nextOffset = userRecord.getNextRecordOffset();
-			int nextRecord = nextOffset + to;
-
-			// 主键的非叶点节记录会存储整个表的空值位图, MySQL主键的所有字段都不允许为空, 不理解为什么要存储null-field-bitmap。
-			// ERROR 1171 (42000): All parts of a PRIMARY KEY must be NOT NULL; if you need
-			// NULL in a key, use UNIQUE instead
-			from -= nullableBitmapBytes;
-
-			int vfrom = 0, vto = from;
-			for (ColumnMeta field : clusterKeyFields) {
-				if (field.isVariableLength()) {
-					int len = field.getLength();
-					if (len > 0xFF) {
-						byte[] bytes = Arrays.copyOfRange(pageRaw, vfrom = vto - 2, vto);
-						int b1 = getUInt8(bytes[1]);
-						if ((b1 & 0x80) == 0) {
-							byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-							len = getUInt8(b);
-						} else {
-							int b0 = getUInt8(bytes[0]);
-							b1 <<= 8;
-							b1 |= b0;
-							int offs = 0;
-							offs += b1 & 0x3fff;
-							if ((b1 & 0x4000) != 0) {
-								int REC_OFFS_EXTERNAL = 1 << 30;
-								len = offs | REC_OFFS_EXTERNAL;
-							} else {
-								len = offs;
-							}
-						}
-					} else {
-						byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-						len = getUInt8(b);
-					}
-					field.setLength(len);
-					vto = vfrom;
-				}
-			}
-			
-			int cententOffset = currentPos;
-			for (RecordField field : clusterKeyFields) {
-				byte[] contentRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += field.getLength());
-				field.setConetentRaw(contentRaw);
-				userRecord.addMinClusterKeyField(field);
-			}
-			byte[] childPageNoRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += 4);
-			long childPageNo = getUInt32(childPageNoRaw);
-			userRecord.setChildPageNumber(childPageNo);
-			//
+			int nextRecord = userRecord.getNextRecordPos();
 			clusteredKeyNonLeafRecords.add(userRecord);
 			recCount++;
 			if (recCount > maxRecs || nextOffset == 0 || nextRecord == SUPREMUM_EXTRA_END_POS) {
@@ -95,9 +37,51 @@ public class ClusteredKeyNonLeafPage extends IndexPage {
 		return clusteredKeyNonLeafRecords;
 	}
 
+	/**
+	 * parse the node pointer record at the position.
+	 * 
+	 * @param tableMeta the table meta data.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the node pointer record, getNextRecordPos() is the position of next record.
+	 */
+	public ClusteredKeyNonLeafRecord getRecord(TableMeta tableMeta, int currentPos) {
+		return getRecord(tableMeta.getClusteredNonLeafLayout(), currentPos);
+	}
+
+	/**
+	 * parse the node pointer record at the position by the compiled record layout.
+	 * 
+	 * @param layout the record layout, see {@link TableMeta#getClusteredNonLeafLayout()}.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the node pointer record, getNextRecordPos() is the position of next record.
+	 */
+	public ClusteredKeyNonLeafRecord getRecord(RecordLayout layout, int currentPos) {
+		ClusteredKeyNonLeafRecord userRecord = new ClusteredKeyNonLeafRecord();
+		int from = currentPos - REC_N_NEW_EXTRA_BYTES;
+		int to = currentPos;
+		byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
+		userRecord.setRecordExtraRaw(recordExtraRaw);
+		int nextOffset = userRecord.getNextRecordOffset();
+		userRecord.setNextRecordPos(nextOffset + to);
+
+		// 主键的非叶点节记录会存储整个表的空值位图, MySQL主键的所有字段都不允许为空, 不理解为什么要存储null-field-bitmap。
+		// ERROR 1171 (42000): All parts of a PRIMARY KEY must be NOT NULL; if you need
+		// NULL in a key, use UNIQUE instead
+		// (the layout sizes the null-bitmap by the nullable columns of table.)
+		parseRecordFields(layout, currentPos, userRecord.getMinClusterKeyOnChild());
+		int cententOffset = currentPos;
+		for (RecordField field : userRecord.getMinClusterKeyOnChild()) {
+			cententOffset += field.getLength();
+		}
+		byte[] childPageNoRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += RecordLayout.CHILD_PAGE_NUMBER_LENGTH);
+		long childPageNo = getUInt32(childPageNoRaw);
+		userRecord.setChildPageNumber(childPageNo);
+		return userRecord;
+	}
+
 	public List<ClusteredKeyNonLeafRecord> getUserRecords(TableMeta tableMeta) {
 		int pos = getSystemRecords().getInfimumNextRecordPos();
-		return iterateRecordInPage(tableMeta, pos);
+		return iterateRecordInPage(tableMeta.getClusteredNonLeafLayout(), pos);
 	}
 
 	public class ClusteredKeyNonLeafRecord extends RecordExtra {
@@ -21,6 +21,19 @@ public class FspHdrPage extends Page {
 	// public static final int XDES_ENTRY_256_END = 10240;
 	public static final int XDES_ENTRY_COUNT = 256;
 	public static final int XDES_ENTRY_LEN = 40;
+	
+	/** XDES_STATE: extent descriptor is not initialized (after FSP_FREE_LIMIT). */
+	public static final int XDES_NOT_INITED = 0;
+	/** XDES_STATE: extent is in free list of space. */
+	public static final int XDES_FREE = 1;
+	/** XDES_STATE: extent is in free fragment list of space. */
+	public static final int XDES_FREE_FRAG = 2;
+	/** XDES_STATE: extent is in full fragment list of space. */
+	public static final int XDES_FULL_FRAG = 3;
+	/** XDES_STATE: extent belongs to a segment. */
+	public static final int XDES_FSEG = 4;
+	/** XDES_STATE: fragment extent leased to segment. */
+	public static final int XDES_FSEG_FRAG = 5;
 
 	private final int fspHeaderStart = FSP_HEADER_START;
 	private final int fspHeaderEnd = FSP_HEADER_END;
@@ -291,6 +304,13 @@ public class FspHdrPage extends Page {
 			return Arrays.copyOfRange(xdesEntryRaw, 20, 24); 
 		}
 		
+		/**
+		 * @return XDES_STATE, XDES_NOT_INITED ... XDES_FSEG_FRAG.
+		 */
+		public int getState() {
+			return (int) getUInt32(getXdesState());
+		}
+		
 		/**
 		 * 24 - 40 XDES_BITMAP, Descriptor bitmap of the pages in the extent. 
 		 * <pre>
@@ -306,6 +326,15 @@ public class FspHdrPage extends Page {
 			return Arrays.copyOfRange(xdesEntryRaw, 24, 40); 
 		}
 		
+		/**
+		 * @param page the page in the extent, 0 - 63.
+		 * @return true if XDES_FREE_BIT of the page is set.
+		 */
+		public boolean isPageFree(int page) {
+			int bit = page * 2; // XDES_BITS_PER_PAGE = 2, XDES_FREE_BIT = 0
+			return ((xdesEntryRaw[24 + (bit >> 3)] >> (bit & 7)) & 1) == 1;
+		}
+		
 		public String toString() {
 			String nl = System.lineSeparator();
 			StringBuilder buff = new StringBuilder();
@@ -3,14 +3,17 @@ package org.littlestar.mysql.ibd.page;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.IntPredicate;
 
+import org.littlestar.mysql.ibd.parser.ColumnDecoder;
 import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.ColumnType;
+import org.littlestar.mysql.ibd.parser.Projection;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 
 import static org.littlestar.mysql.common.ParserHelper.*;
-import static org.littlestar.mysql.ibd.parser.ColumnType.*;
 
 /**
  * FIL_PAGE_INDEX (17855).
@@ -59,6 +62,8 @@ public class IndexPage extends Page {
 	public static final int SUPREMUM_EXTRA_END_POS    = 112; 
 	
 	public static final int REC_N_NEW_EXTRA_BYTES     = 5;
+	public static final int PAGE_DIR_SLOT_SIZE        = 2;
+	public static final int REC_OFFS_EXTERNAL         = 1 << 30;
 	public final int maxRecs;
 
 	public IndexPage(byte[] pageRaw, int pageSize) {
@@ -147,6 +152,154 @@ public class IndexPage extends Page {
 		return directorySlots;
 	}
 	
+	/**
+	 * the record position (end of record extra) of the directory slot, slots[0] is
+	 * infimum (99), slots[n-1] is supremum (112). a slot points to the last record
+	 * of its group, which owns the records of group (REC_NEW_N_OWNED).
+	 * 
+	 * @param slot the slot index, 0 to PAGE_N_DIR_SLOTS - 1.
+	 * @return the record position.
+	 */
+	public int getDirectorySlot(int slot) {
+		int offset = getPageSize() - PAGE_TRAILER_LENGTH - (slot + 1) * PAGE_DIR_SLOT_SIZE;
+		return getUInt16(pageRaw, offset);
+	}
+	
+	/**
+	 * @param recordPos the record position (end of record extra).
+	 * @return the position of next record in the singly linked record list.
+	 */
+	public int getNextRecordPos(int recordPos) {
+		return recordPos + RecordExtra.getNextRecordOffset(pageRaw, recordPos);
+	}
+	
+	/**
+	 * count the delete marked records in the record list, only the info bits of
+	 * each record are read. PAGE_N_RECS minus this is the number of live rows.
+	 * 
+	 * @return the number of delete marked user records.
+	 */
+	public int getDeleteMarkedRecords() {
+		final int heapTop = getIndexHeader().getHeapTopPosition();
+		int deleted = 0;
+		int currentPos = getNextRecordPos(INFIMUM_EXTRA_END_POS);
+		for (int i = 0; i < maxRecs && currentPos > SUPREMUM_EXTRA_END_POS && currentPos <= heapTop; i++) {
+			if (RecordExtra.isDeleted(pageRaw, currentPos)) {
+				deleted++;
+			}
+			int nextPos = getNextRecordPos(currentPos);
+			if (nextPos == currentPos) {
+				break;
+			}
+			currentPos = nextPos;
+		}
+		return deleted;
+	}
+	
+	/**
+	 * seek in the page by the page directory: binary search the slots for the last
+	 * group owner before the key, then walk forward inside the next group (at most
+	 * 8 records), so O(log(slots)) records are compared instead of O(records).
+	 * 
+	 * <p>the user records are ordered by key, isBefore must be true for a prefix of
+	 * the record list (e.g. record key less than the search key) and false for the rest.
+	 * 
+	 * @param isBefore test the record at the position (end of record extra), never called with infimum or supremum.
+	 * @return the position of the last record before the key, INFIMUM_EXTRA_END_POS if not any.
+	 */
+	public int seekRecordPos(IntPredicate isBefore) {
+		int low = 0; // infimum, always before.
+		int high = getIndexHeader().getDirectorySlotCount() - 1; // supremum, never before.
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+			if (isBefore.test(getDirectorySlot(mid))) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+		int currentPos = getDirectorySlot(low);
+		int bound = getDirectorySlot(high);
+		for (int i = 0; i <= maxRecs; i++) {
+			int nextPos = getNextRecordPos(currentPos);
+			if (nextPos == bound || nextPos == SUPREMUM_EXTRA_END_POS || !isBefore.test(nextPos)) {
+				break;
+			}
+			currentPos = nextPos;
+		}
+		return currentPos;
+	}
+	
+	/**
+	 * parse the fields of the record at the position by the compiled layout: null flags
+	 * from null-bitmap, store lengths from variable-field-lengths (only non-null
+	 * variable-length fields have one), then the contents in field order.
+	 * 
+	 * <pre>
+	 * | variable-field-lengths | null-bitmap | record-extra (5) | contents |
+	 * ^ return                                                 ^ recordPos
+	 * </pre>
+	 * 
+	 * @param layout the record layout of the index.
+	 * @param recordPos the position of record's contents (the end of record extra).
+	 * @param fields the list to add the parsed fields to.
+	 * @return the start position of variable-field-lengths, the start of record if it has not any.
+	 */
+	protected int parseRecordFields(RecordLayout layout, int recordPos, List<RecordField> fields) {
+		return parseRecordFields(layout, null, recordPos, fields);
+	}
+
+	/**
+	 * parse only the projected fields of the record at the position: the other fields
+	 * are only measured to advance the content position (not copied nor decoded), and
+	 * the fields after the last projected one are not parsed.
+	 * 
+	 * @param projection the requested columns of the layout, all columns if null.
+	 * @return the position of the last variable-field-length read (the start of
+	 *         variable-field-lengths if the last field is projected).
+	 * @see #parseRecordFields(RecordLayout, int, List)
+	 */
+	protected int parseRecordFields(Projection projection, int recordPos, List<RecordField> fields) {
+		return parseRecordFields(projection.getLayout(), projection, recordPos, fields);
+	}
+
+	private int parseRecordFields(RecordLayout layout, Projection projection, int recordPos, List<RecordField> fields) {
+		final int nullBitmapEnd = recordPos - REC_N_NEW_EXTRA_BYTES;
+		int vto = nullBitmapEnd - layout.getNullBitmapBytes();
+		int contentPos = recordPos;
+		final int columnCount = Objects.isNull(projection) ? layout.getColumnCount() : projection.getLastColumnIndex() + 1;
+		for (int i = 0; i < columnCount; i++) {
+			final boolean selected = Objects.isNull(projection) || projection.isSelected(i);
+			//// null-bitmap, bit i in byte (end - 1 - i/8).
+			int nullBit = layout.getNullBitmapIndex(i);
+			boolean isNull = nullBit >= 0 && (pageRaw[nullBitmapEnd - 1 - (nullBit >> 3)] & (1 << (nullBit & 7))) != 0;
+			int len;
+			if (isNull) {
+				len = 0;
+			} else if (layout.isVariableLength(i)) {
+				//// variable-field-lengths, 1 byte, or 2 bytes if max length > 255 and the high bit set.
+				len = getUInt8(pageRaw[--vto]);
+				if (layout.getLength(i) > 0xFF && (len & 0x80) != 0) {
+					len = (len << 8) | getUInt8(pageRaw[--vto]);
+					len = ((len & 0x4000) != 0) ? (len & 0x3fff) | REC_OFFS_EXTERNAL : len & 0x3fff;
+				}
+			} else {
+				len = layout.getLength(i);
+			}
+			final int storeLen = len & ~REC_OFFS_EXTERNAL;
+			if (!selected) {
+				contentPos += storeLen;
+				continue;
+			}
+			RecordField field = new RecordField(layout.getColumn(i), layout.getDecoder(i));
+			field.setNull(isNull);
+			field.setLength(len);
+			field.setConetentRaw(isNull ? null : Arrays.copyOfRange(pageRaw, contentPos, contentPos += storeLen));
+			fields.add(field);
+		}
+		return vto;
+	}
+	
 	/**
 	 * INDEX Header / Index Page Header (36).
 	 * 
@@ -319,6 +472,14 @@ public class IndexPage extends Page {
 			return Arrays.copyOfRange(pageRaw, 54, 56);
 		}
 
+		/**
+		 * @see #getPageRecordsRaw()
+		 * @return number of user records on the page, delete marked records included.
+		 */
+		public int getPageRecords() {
+			return getUInt16(getPageRecordsRaw());
+		}
+
 		/**
 		 * 56 - 64, maximum transaction id(8).
 		 * 
@@ -552,6 +713,7 @@ public class IndexPage extends Page {
 	public class RecordField extends ColumnMeta {
 		private byte[] contentRaw;
 		private boolean isNull = false;
+		private ColumnDecoder decoder;
 
 		public byte[] getConetentRaw() {
 			return contentRaw;
@@ -572,6 +734,11 @@ public class IndexPage extends Page {
 			setEnumMembers(meta.getEnumMembers());
 		}
 
+		public RecordField(ColumnMeta meta, ColumnDecoder decoder) {
+			this(meta);
+			this.decoder = decoder;
+		}
+
 		/**
 		 * the store bytes of the record field content in page.
 		 */
@@ -585,85 +752,49 @@ public class IndexPage extends Page {
 			this.contentRaw = contentRaw;
 		}
 
+		/**
+		 * the value decoder of field, default is {@link ColumnDecoder#of(ColumnMeta)} of this field.
+		 */
+		public ColumnDecoder getDecoder() {
+			if (Objects.isNull(decoder)) {
+				decoder = ColumnDecoder.of(this);
+			}
+			return decoder;
+		}
+
+		public void setDecoder(ColumnDecoder decoder) {
+			this.decoder = decoder;
+		}
+
 		public Object getContent() {
 			if (Objects.isNull(contentRaw)) return null;
-			final byte[] raw = contentRaw.clone();
-			switch (getType()) {
-			/** Integer Types (Exact Value) - INTEGER, INT, SMALLINT, TINYINT, MEDIUMINT, BIGINT */
-			case TINYINT           : return getIntValue(raw);
-			case UNSIGNED_TINYINT  : return getUIntValue(raw);
-			
-			case SMALLINT          : return getIntValue(raw);
-			case UNSIGNED_SMALLINT : return getUIntValue(raw);
-			
-			case MEDIUMINT         : return getIntValue(raw);
-			case UNSIGNED_MEDIUMINT: return getUIntValue(raw);
-			
-			case INT               : return getIntValue(raw);
-			case UNSIGNED_INT      : return getUIntValue(raw);
-			
-			case BIGINT            : return getIntValue(raw);
-			case UNSIGNED_BIGINT   : return getUIntValue(raw);
-			
-			/** Integer Types (Exact Value) */
-			
-			/** Floating-Point Number  **/
-			case FLOAT             : return getFloatValue(raw);
-			case DOUBLE            : return getDoubleValue(raw);
-			/** Floating-Point Number  **/
-			
-			case DECIMAL:
-				int precision = getPrecision();
-				int scale = getScale();
-				return getDecimalValue(raw, precision, scale);
-				
-			/** String Type Storage */
-			case ENUM:
-				int size = raw.length;
-				int index = 0;
-				if (size == 1) {
-					index = getUInt8(raw[0]);
-				} else if (size == 2) {
-					index = getUInt16(raw);
-				} else {
-					return "unsupport enum length: " + size;
-				}
-				return getEnumMember(index);
-			/**
-			 * The size of a SET object is determined by the number of different set members. 
-			 * If the set size is N, the object occupies (N+7)/8 bytes, rounded up to 1, 2, 3, 4, or 8 bytes. 
-			 * A SET can have a maximum of 64 members.
-			 * 使用位图表示是否包含某个成员, 8字节有64位, 所以最大支持64个SET成员。
-			 */
-			case SET:
-				ArrayList<String> list = new ArrayList<String>();
-				BitSet bs = toBitSet(raw);
-				for (int i = 0; i < getEnumMembers().size(); i++) {
-					if (bs.get(i)) {
-						list.add(getEnumMember(i + 1));
-					}
-				}
-				return list;
-			case TEXT:
-				return new String(raw);
-			case VARCHAR:
-				return new String(raw);
-			case CHAR: return new String(raw);
-			case YEAR:
-				int yearValue = getUInt8(raw[0]);
-				yearValue += 1900;
-				return yearValue;
-			case DATETIME:
-				return getDateTimeV2(raw);
-			case TIMESTAMP:
-				return getTimestampValue(raw);
-			default:
-				if (Objects.isNull(raw)) {
-					return raw;
-				} else {
-					return toHexString(raw);
-				}
+			return getDecoder().decode(contentRaw.clone());
+		}
+
+		/**
+		 * integer value of TINYINT - BIGINT (signed or unsigned) field without BigInteger,
+		 * BIGINT UNSIGNED is an unsigned long view (see {@link ColumnType#getULongValue(byte[], int, int)}).
+		 * 
+		 * @return the value, 0 if null.
+		 */
+		public long getLong() {
+			if (Objects.isNull(contentRaw)) return 0;
+			return ColumnType.isSignedInteger(getType()) ? ColumnType.getLongValue(contentRaw, 0, contentRaw.length)
+					: ColumnType.getULongValue(contentRaw, 0, contentRaw.length);
+		}
+
+		/**
+		 * integer value of TINYINT - INT field without BigInteger.
+		 * 
+		 * @return the value, 0 if null.
+		 * @throws ArithmeticException if the value overflows an int (INT UNSIGNED, BIGINT).
+		 */
+		public int getInt() {
+			if (Objects.isNull(contentRaw)) return 0;
+			if (ColumnType.isSignedInteger(getType()) && contentRaw.length <= 4) {
+				return ColumnType.getIntValue(contentRaw, 0, contentRaw.length);
 			}
+			return Math.toIntExact(getLong());
 		}
 
 		public boolean isNull() {
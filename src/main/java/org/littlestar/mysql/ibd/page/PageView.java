@@ -0,0 +1,219 @@
+package org.littlestar.mysql.ibd.page;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Zero-copy view of a page, backed by a read-only ByteBuffer (usually a slice of
+ * the mapped file). Header fields are read in place, no byte array is allocated
+ * unless {@link #getPageRaw()} is called.
+ *
+ * <pre>
+ * 0-------->+----------------------+
+ *           | FIL Header (38)      |
+ * 38------->+----------------------+
+ *           | INDEX Header (36)    | (FIL_PAGE_INDEX only)
+ * 74------->+----------------------+
+ *           |                      |
+ * 16376---->+----------------------+
+ *           |FIL Trailer (8)       |
+ * 16384---->+----------------------+
+ * </pre>
+ *
+ * @see Page
+ * @see FilHeader
+ * @see IndexPage.IndexHeader
+ */
+public class PageView {
+	public static final int FIL_PAGE_SPACE_OR_CHKSUM = 0;
+	public static final int FIL_PAGE_OFFSET = 4;
+	public static final int FIL_PAGE_PREV = 8;
+	public static final int FIL_PAGE_NEXT = 12;
+	public static final int FIL_PAGE_LSN = 16;
+	public static final int FIL_PAGE_TYPE = 24;
+	public static final int FIL_PAGE_FILE_FLUSH_LSN = 26;
+	public static final int FIL_PAGE_SPACE_ID = 34;
+
+	public static final int PAGE_N_DIR_SLOTS = 38;
+	public static final int PAGE_HEAP_TOP = 40;
+	public static final int PAGE_N_HEAP = 42;
+	public static final int PAGE_FREE = 44;
+	public static final int PAGE_GARBAGE = 46;
+	public static final int PAGE_LAST_INSERT = 48;
+	public static final int PAGE_N_RECS = 54;
+	public static final int PAGE_MAX_TRX_ID = 56;
+	public static final int PAGE_LEVEL = 64;
+	public static final int PAGE_INDEX_ID = 66;
+
+	/** FIL_NULL, the page number of an undefined page (FIL_PAGE_PREV/FIL_PAGE_NEXT). */
+	public static final long FIL_NULL = 0xFFFFFFFFL;
+
+	private final ByteBuffer buffer;
+	private final int pageSize;
+
+	public PageView(ByteBuffer buffer, int pageSize) {
+		if (Objects.isNull(buffer) || buffer.remaining() != pageSize) {
+			throw new IllegalArgumentException("page buffer must be " + pageSize + " bytes length.");
+		}
+		this.buffer = buffer;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * a view not backed by a ByteBuffer, the subclass overrides {@link #getBuffer()},
+	 * {@link #get(int, byte[])} and the getUInt/getInt accessors.
+	 */
+	protected PageView(int pageSize) {
+		this.buffer = null;
+		this.pageSize = pageSize;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * The backing buffer, read with absolute get methods so its position is never used.
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * copy the page into a new byte array.
+	 *
+	 * @return the bytes of page.
+	 */
+	public byte[] getPageRaw() {
+		byte[] pageRaw = new byte[pageSize];
+		get(0, pageRaw);
+		return pageRaw;
+	}
+
+	/**
+	 * copy dst.length bytes from page offset into dst.
+	 */
+	public byte[] get(int offset, byte[] dst) {
+		ByteBuffer view = buffer.duplicate();
+		view.position(buffer.position() + offset);
+		view.get(dst);
+		return dst;
+	}
+
+	public int getUInt8(int offset) {
+		return buffer.get(buffer.position() + offset) & 0xFF;
+	}
+
+	public int getUInt16(int offset) {
+		return buffer.getShort(buffer.position() + offset) & 0xFFFF;
+	}
+
+	public long getUInt32(int offset) {
+		return buffer.getInt(buffer.position() + offset) & 0xFFFFFFFFL;
+	}
+
+	public long getInt64(int offset) {
+		return buffer.getLong(buffer.position() + offset);
+	}
+
+	////// FIL Header //////
+	public long getCheckSum() {
+		return getUInt32(FIL_PAGE_SPACE_OR_CHKSUM);
+	}
+
+	/**
+	 * @see FilHeader#getPageOffset()
+	 */
+	public long getPageOffset() {
+		return getUInt32(FIL_PAGE_OFFSET);
+	}
+
+	/**
+	 * @see FilHeader#getPreviousPage()
+	 */
+	public long getPreviousPage() {
+		return getUInt32(FIL_PAGE_PREV);
+	}
+
+	/**
+	 * @see FilHeader#getNextPage()
+	 */
+	public long getNextPage() {
+		return getUInt32(FIL_PAGE_NEXT);
+	}
+
+	public long getPageLSN() {
+		return getInt64(FIL_PAGE_LSN);
+	}
+
+	/**
+	 * @see FilHeader#getPageType()
+	 */
+	public int getPageType() {
+		return getUInt16(FIL_PAGE_TYPE);
+	}
+
+	public String getPageTypeName() {
+		return FilHeader.getPageType(getPageType());
+	}
+
+	public long getFlushLSN() {
+		return getInt64(FIL_PAGE_FILE_FLUSH_LSN);
+	}
+
+	public long getSpaceId() {
+		return getUInt32(FIL_PAGE_SPACE_ID);
+	}
+
+	////// FIL Trailer //////
+	public long getTrailerCheckSum() {
+		return getUInt32(Page.getTrailerStart(pageSize));
+	}
+
+	public long getTrailerLow32BitsOfLSN() {
+		return getUInt32(Page.getTrailerStart(pageSize) + 4);
+	}
+
+	////// INDEX Header, valid for FIL_PAGE_INDEX only //////
+	public boolean isIndexPage() {
+		return getPageType() == FilHeader.FIL_PAGE_INDEX;
+	}
+
+	public int getDirectorySlotCount() {
+		return getUInt16(PAGE_N_DIR_SLOTS);
+	}
+
+	public int getHeapTopPosition() {
+		return getUInt16(PAGE_HEAP_TOP);
+	}
+
+	public int getHeapRecords() {
+		return getUInt16(PAGE_N_HEAP) & 0x7FFF;
+	}
+
+	public boolean isNewStyleCompactFormat() {
+		return (getUInt16(PAGE_N_HEAP) & 0x8000) != 0;
+	}
+
+	public int getGarbageBytes() {
+		return getUInt16(PAGE_GARBAGE);
+	}
+
+	/**
+	 * PAGE_N_RECS, number of user records on the page.
+	 */
+	public int getPageRecords() {
+		return getUInt16(PAGE_N_RECS);
+	}
+
+	public int getPageLevel() {
+		return getUInt16(PAGE_LEVEL);
+	}
+
+	/**
+	 * PAGE_INDEX_ID, index ids are allocated from a 64 bits counter, a long is enough in practice.
+	 */
+	public long getIndexId() {
+		return getInt64(PAGE_INDEX_ID);
+	}
+}
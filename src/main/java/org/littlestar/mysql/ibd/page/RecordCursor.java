@@ -0,0 +1,346 @@
+package org.littlestar.mysql.ibd.page;
+
+import static org.littlestar.mysql.common.ParserHelper.getUInt32;
+import static org.littlestar.mysql.common.ParserHelper.getUInt8;
+import static org.littlestar.mysql.ibd.page.IndexPage.INFIMUM_EXTRA_END_POS;
+import static org.littlestar.mysql.ibd.page.IndexPage.REC_N_NEW_EXTRA_BYTES;
+import static org.littlestar.mysql.ibd.page.IndexPage.SUPREMUM_EXTRA_END_POS;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.ColumnType;
+import org.littlestar.mysql.ibd.parser.Projection;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
+
+/**
+ * A reusable, allocation-free view of one record in an index page: the cursor
+ * only keeps the offset and length of each field, and the typed getters read
+ * straight from the page bytes. next() moves the same cursor to the next record
+ * of the page, reset(page) moves it to another page, so a scan of any number of
+ * rows creates no object per row (only getString()/getObject() allocate).
+ *
+ * <pre>
+ * RecordCursor cursor = new RecordCursor(tableMeta.getClusteredLeafLayout());
+ * for (each leaf page) {
+ *     cursor.reset(page);
+ *     while (cursor.next()) {
+ *         if (!cursor.isNull(5)) sum += cursor.getLong(5);
+ *     }
+ * }
+ * </pre>
+ *
+ * The field values are valid until the cursor moves, a cursor is not thread safe.
+ * A cursor of a {@link Projection} stops parsing each record after the last
+ * requested column, the values of the columns after it are undefined.
+ *
+ * @see RecordLayout
+ * @see Projection
+ */
+public class RecordCursor {
+	private static final int FIELD_NULL = -1;
+
+	private final RecordLayout layout;
+	/** the position of field contents in page. */
+	private final int[] offsets;
+	/** the store bytes of field in page, FIELD_NULL if null. */
+	private final int[] lengths;
+	private final boolean[] externals;
+	private final boolean[] signeds;
+	/** the integer columns and the integer system columns, readable by getLong(). */
+	private final boolean[] integers;
+	/** the number of leading fields parsed per record. */
+	private final int parseColumnCount;
+
+	private IndexPage page;
+	private byte[] pageRaw;
+	private int heapTop;
+	private int recordPos = SUPREMUM_EXTRA_END_POS;
+	private int contentEnd;
+	private int steps;
+
+	public RecordCursor(RecordLayout layout) {
+		this(layout, layout.getColumnCount());
+	}
+
+	/**
+	 * @param projection the requested columns, the fields after the last one are not parsed.
+	 */
+	public RecordCursor(Projection projection) {
+		// node pointers need all fields to locate the child page number.
+		this(projection.getLayout(), projection.getLayout().isNodePointer() ? projection.getLayout().getColumnCount()
+				: projection.getLastColumnIndex() + 1);
+	}
+
+	public RecordCursor(Projection projection, IndexPage page) {
+		this(projection);
+		reset(page);
+	}
+
+	private RecordCursor(RecordLayout layout, int parseColumnCount) {
+		this.layout = Objects.requireNonNull(layout);
+		this.parseColumnCount = parseColumnCount;
+		final int columnCount = layout.getColumnCount();
+		offsets = new int[columnCount];
+		lengths = new int[columnCount];
+		externals = new boolean[columnCount];
+		signeds = new boolean[columnCount];
+		integers = new boolean[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			String type = layout.getColumn(i).getType();
+			signeds[i] = ColumnType.isSignedInteger(type);
+			integers[i] = ColumnType.isInteger(type) || ColumnType.DB_ROW_ID.equals(type)
+					|| ColumnType.DB_TRX_ID.equals(type) || ColumnType.DB_ROLL_PTR.equals(type);
+		}
+	}
+
+	public RecordCursor(RecordLayout layout, IndexPage page) {
+		this(layout);
+		reset(page);
+	}
+
+	public RecordLayout getLayout() {
+		return layout;
+	}
+
+	public IndexPage getPage() {
+		return page;
+	}
+
+	/**
+	 * move the cursor before the first user record of the page.
+	 *
+	 * @param page the index page, its records must match the layout.
+	 * @return this cursor.
+	 */
+	public RecordCursor reset(IndexPage page) {
+		this.page = Objects.requireNonNull(page);
+		this.pageRaw = page.getPageRaw();
+		this.heapTop = page.getIndexHeader().getHeapTopPosition();
+		this.recordPos = INFIMUM_EXTRA_END_POS;
+		this.steps = 0;
+		return this;
+	}
+
+	/**
+	 * move to the next user record of the page, along the next record offsets.
+	 *
+	 * @return false if there is no more user record in the page.
+	 */
+	public boolean next() {
+		if (Objects.isNull(page) || recordPos == SUPREMUM_EXTRA_END_POS) {
+			return false;
+		}
+		int nextPos = page.getNextRecordPos(recordPos);
+		if (nextPos == recordPos || nextPos <= SUPREMUM_EXTRA_END_POS || nextPos > heapTop || ++steps > page.maxRecs) {
+			recordPos = SUPREMUM_EXTRA_END_POS;
+			return false;
+		}
+		moveTo(nextPos);
+		return true;
+	}
+
+	/**
+	 * position the cursor on the record, e.g. a position of {@link IndexPage#seekRecordPos(java.util.function.IntPredicate)};
+	 * next() continues from this record.
+	 *
+	 * @param recordPos the position of record's contents (the end of record extra).
+	 * @return this cursor.
+	 */
+	public RecordCursor moveTo(int recordPos) {
+		if (Objects.isNull(page)) {
+			throw new IllegalStateException("cursor is not reset to any page.");
+		}
+		this.recordPos = recordPos;
+		final byte[] raw = pageRaw;
+		final int nullBitmapEnd = recordPos - REC_N_NEW_EXTRA_BYTES;
+		int vto = nullBitmapEnd - layout.getNullBitmapBytes();
+		int contentPos = recordPos;
+		final int columnCount = parseColumnCount;
+		for (int i = 0; i < columnCount; i++) {
+			int nullBit = layout.getNullBitmapIndex(i);
+			offsets[i] = contentPos;
+			externals[i] = false;
+			if (nullBit >= 0 && (raw[nullBitmapEnd - 1 - (nullBit >> 3)] & (1 << (nullBit & 7))) != 0) {
+				lengths[i] = FIELD_NULL;
+				continue;
+			}
+			int len;
+			if (layout.isVariableLength(i)) {
+				len = getUInt8(raw[--vto]);
+				if (layout.getLength(i) > 0xFF && (len & 0x80) != 0) {
+					len = (len << 8) | getUInt8(raw[--vto]);
+					externals[i] = (len & 0x4000) != 0;
+					len &= 0x3fff;
+				}
+			} else {
+				len = layout.getLength(i);
+			}
+			lengths[i] = len;
+			contentPos += len;
+		}
+		contentEnd = contentPos;
+		return this;
+	}
+
+	/**
+	 * @return the position of current record's contents, SUPREMUM_EXTRA_END_POS after the last record.
+	 */
+	public int getRecordPos() {
+		return recordPos;
+	}
+
+	public int getColumnCount() {
+		return offsets.length;
+	}
+
+	/**
+	 * @return true if the current record is delete marked (REC_INFO_DELETED_FLAG).
+	 */
+	public boolean isDeleted() {
+		return RecordExtra.isDeleted(pageRaw, recordPos);
+	}
+
+	/**
+	 * @return true if the current record is the predefined minimum record (REC_INFO_MIN_REC_FLAG).
+	 */
+	public boolean isMinRec() {
+		return RecordExtra.isMinRec(pageRaw, recordPos);
+	}
+
+	/**
+	 * @return REC_NEW_STATUS of the current record, see {@link RecordExtra#getRecordType(int)}.
+	 */
+	public int getRecordStatus() {
+		return RecordExtra.getRecordStatus(pageRaw, recordPos);
+	}
+
+	public boolean isNull(int col) {
+		return lengths[col] == FIELD_NULL;
+	}
+
+	/**
+	 * @return true if the field is stored externally (off-page), only the local
+	 *         prefix and the 20 bytes external reference are in the page.
+	 */
+	public boolean isExternal(int col) {
+		return externals[col];
+	}
+
+	/**
+	 * @return the store bytes of the field in page, 0 if null.
+	 */
+	public int getLength(int col) {
+		return Math.max(lengths[col], 0);
+	}
+
+	/**
+	 * @return the position of the field contents in page.
+	 */
+	public int getOffset(int col) {
+		return offsets[col];
+	}
+
+	/**
+	 * @return the page bytes which the offsets point into.
+	 */
+	public byte[] getPageRaw() {
+		return pageRaw;
+	}
+
+	/**
+	 * copy the field bytes into dst.
+	 *
+	 * @return the number of bytes copied, -1 if null.
+	 * @throws IndexOutOfBoundsException if dst is too small.
+	 */
+	public int getBytes(int col, byte[] dst) {
+		return getBytes(col, dst, 0);
+	}
+
+	public int getBytes(int col, byte[] dst, int dstOffset) {
+		int len = lengths[col];
+		if (len == FIELD_NULL) {
+			return -1;
+		}
+		System.arraycopy(pageRaw, offsets[col], dst, dstOffset, len);
+		return len;
+	}
+
+	/**
+	 * @return a copy of the field bytes, null if null.
+	 */
+	public byte[] getBytes(int col) {
+		int len = lengths[col];
+		return len == FIELD_NULL ? null : Arrays.copyOfRange(pageRaw, offsets[col], offsets[col] + len);
+	}
+
+	/**
+	 * integer value of TINYINT - BIGINT (signed or unsigned) and the system columns
+	 * DB_ROW_ID, DB_TRX_ID and DB_ROLL_PTR, without boxing.
+	 * BIGINT UNSIGNED above Long.MAX_VALUE wraps to negative, see Long.toUnsignedString().
+	 *
+	 * @return the value, 0 if null (see {@link #isNull(int)}).
+	 * @throws IllegalStateException if the column is not an integer column.
+	 */
+	public long getLong(int col) {
+		if (!integers[col]) {
+			ColumnMeta meta = layout.getColumn(col);
+			throw new IllegalStateException("not an integer column: " + meta.getName() + " " + meta.getType());
+		}
+		int len = lengths[col];
+		if (len <= 0) {
+			return 0;
+		}
+		if (len > 8) {
+			throw new IllegalStateException(layout.getColumn(col).getName() + " is " + len + " bytes, not an integer.");
+		}
+		// InnoDB stores signed integers big-endian with the sign bit flipped.
+		return signeds[col] ? ColumnType.getLongValue(pageRaw, offsets[col], len)
+				: ColumnType.getULongValue(pageRaw, offsets[col], len);
+	}
+
+	/**
+	 * integer value of TINYINT - INT columns (signed or unsigned).
+	 *
+	 * @return the value, 0 if null.
+	 * @throws ArithmeticException if the value overflows an int.
+	 * @throws IllegalStateException if the column is not an integer column.
+	 */
+	public int getInt(int col) {
+		int len = lengths[col];
+		if (signeds[col] && len > 0 && len <= 4) {
+			return ColumnType.getIntValue(pageRaw, offsets[col], len);
+		}
+		return Math.toIntExact(getLong(col));
+	}
+
+	/**
+	 * @return the field bytes as String (platform charset, as RecordField.getContent()), null if null.
+	 */
+	public String getString(int col) {
+		int len = lengths[col];
+		return len == FIELD_NULL ? null : new String(pageRaw, offsets[col], len);
+	}
+
+	/**
+	 * decode the field by the column decoder of layout, the same value as RecordField.getContent().
+	 *
+	 * @return the value, null if null.
+	 */
+	public Object getObject(int col) {
+		byte[] raw = getBytes(col);
+		return Objects.isNull(raw) ? null : layout.getDecoder(col).decode(raw);
+	}
+
+	/**
+	 * @return the child page number of node pointer record (non-leaf page).
+	 */
+	public long getChildPageNumber() {
+		if (!layout.isNodePointer()) {
+			throw new IllegalStateException("the records of layout are not node pointers.");
+		}
+		return getUInt32(pageRaw, contentEnd);
+	}
+}
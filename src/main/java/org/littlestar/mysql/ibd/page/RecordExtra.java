@@ -1,24 +1,52 @@
 package org.littlestar.mysql.ibd.page;
 
-import java.util.Arrays;
-import java.util.BitSet;
 import java.util.Objects;
 
-import static org.littlestar.mysql.common.ParserHelper.*;
-
+/**
+ * The record extra (header) of compact/dynamic row format, 5 bytes before the record contents.
+ * 
+ * <pre>
+ * byte 0: | REC_INFO_INSTANT_FLAG (0x80) | unused (0x40) | REC_INFO_DELETED_FLAG (0x20) | REC_INFO_MIN_REC_FLAG (0x10) | REC_NEW_N_OWNED (0x0F) |
+ * byte 1-2: REC_NEW_HEAP_NO (13 bits) | REC_NEW_STATUS (3 bits)
+ * byte 3-4: REC_NEXT (signed 16 bits), the relative offset of next record.
+ * </pre>
+ * 
+ * The fields are decoded once with shifts and masks when the raw bytes are set.
+ * The static methods decode the same fields straight from a page by the record
+ * position (the end of record extra), without copy.
+ */
 public class RecordExtra {
+	public static final int REC_INFO_INSTANT_FLAG = 0x80;
+	public static final int REC_INFO_DELETED_FLAG = 0x20;
+	public static final int REC_INFO_MIN_REC_FLAG = 0x10;
+	public static final int REC_NEW_N_OWNED_MASK  = 0x0F;
+	public static final int REC_NEW_HEAP_NO_SHIFT = 3;
+	public static final int REC_NEW_HEAP_NO_MASK  = 0x1FFF;
+	public static final int REC_NEW_STATUS_MASK   = 0x07;
+	
 	private byte[] recordExtraRaw;
 	private int nextPos;
+	//// decoded fields of recordExtraRaw.
+	private int infoBits;
+	private int heapNoAndStatus;
+	private int nextRecordOffset;
+	
 	public RecordExtra() {}
 
 	public RecordExtra(byte[] recordExtraRaw) {
-		this.recordExtraRaw = recordExtraRaw;
+		setRecordExtraRaw(recordExtraRaw);
 	}
 
 	public byte[] getRecordExtraRaw() {
 		return recordExtraRaw;
 	}
 
+	private void checkRaw() {
+		if (Objects.isNull(recordExtraRaw)) {
+			throw new RuntimeException("recordExtraRaw is null.");
+		}
+	}
+	
 	/**
 	 * REC_INFO_INSTANT_FLAG: The instant ADD COLUMN flag. When it is set to 1, it
 	 * means this record was inserted/updated after an instant ADD COLUMN.
@@ -26,12 +54,8 @@ public class RecordExtra {
 	 * @return
 	 */
 	public boolean getInstantFlag() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		BitSet bs = toBitSet(getRecordExtraRaw()[0]);
-		int deleteFlagIndex = 7;
-		return bs.get(deleteFlagIndex);
+		checkRaw();
+		return (infoBits & REC_INFO_INSTANT_FLAG) != 0;
 	}
 
 	/**
@@ -41,12 +65,8 @@ public class RecordExtra {
 	 * @return the deleted_flag in recored extra.
 	 */
 	public boolean getDeletedFlag() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		BitSet bs = toBitSet(getRecordExtraRaw()[0]);
-		int deleteFlagIndex = 5;
-		return bs.get(deleteFlagIndex);
+		checkRaw();
+		return (infoBits & REC_INFO_DELETED_FLAG) != 0;
 	}
 
 	/**
@@ -55,12 +75,8 @@ public class RecordExtra {
 	 * @return
 	 */
 	public boolean getMinRecFlag() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		BitSet bs = toBitSet(getRecordExtraRaw()[0]);
-		int miniRecFlagIndex = 4;
-		return bs.get(miniRecFlagIndex);
+		checkRaw();
+		return (infoBits & REC_INFO_MIN_REC_FLAG) != 0;
 	}
 
 	/**
@@ -68,36 +84,24 @@ public class RecordExtra {
 	 */
 
 	public int getRecordsOwned() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		int fromIndex = 0;
-		int toIndex = 3;
-		BitSet bs = toBitSet(getRecordExtraRaw()[0], fromIndex, toIndex);
-		// return ParserHelper.toBinaryString(bs, 0, 3);
-		return (int) getLong(bs);
+		checkRaw();
+		return infoBits & REC_NEW_N_OWNED_MASK;
 	}
 
+	/**
+	 * REC_NEW_HEAP_NO: the heap no of record (13 bits).
+	 */
 	public int getRecordHeapNo() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		byte[] bytes = new byte[] { recordExtraRaw[1], recordExtraRaw[2] };
-		int fromIndex = 3;
-		int toIndex = 15;
-		BitSet bs = toBitSet(bytes, fromIndex, toIndex);
-		return (int) getLong(bs);
+		checkRaw();
+		return (heapNoAndStatus >>> REC_NEW_HEAP_NO_SHIFT) & REC_NEW_HEAP_NO_MASK;
 	}
 
+	/**
+	 * REC_NEW_STATUS: the record type (3 bits), see {@link #getRecordType(int)}.
+	 */
 	public int getRecordStatus() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		byte[] bytes = new byte[] { recordExtraRaw[2] };
-		int fromIndex = 0;
-		int toIndex = 2;
-		BitSet bs = toBitSet(bytes, fromIndex, toIndex);
-		return (int) getLong(bs);
+		checkRaw();
+		return heapNoAndStatus & REC_NEW_STATUS_MASK;
 	}
 
 	/**
@@ -106,13 +110,8 @@ public class RecordExtra {
 	 * @return the next_record_offset in record extra.
 	 */
 	public int getNextRecordOffset() {
-		if (Objects.isNull(recordExtraRaw)) {
-			throw new RuntimeException("recordExtraRaw is null.");
-		}
-		int from = recordExtraRaw.length - 2;
-		int to = recordExtraRaw.length;
-		byte[] nextRecordOffset = Arrays.copyOfRange(recordExtraRaw, from, to);
-		return (nextRecordOffset[0] << 8 | nextRecordOffset[1] & 0xFF);
+		checkRaw();
+		return nextRecordOffset;
 	}
 
 	public int getNextRecordPos() {
@@ -125,6 +124,51 @@ public class RecordExtra {
 	
 	public void setRecordExtraRaw(byte[] recordExtraRaw) {
 		this.recordExtraRaw = recordExtraRaw;
+		if (Objects.nonNull(recordExtraRaw)) {
+			// the fields are counted back from the end of record extra.
+			int recordPos = recordExtraRaw.length;
+			infoBits = getInfoBits(recordExtraRaw, recordPos);
+			heapNoAndStatus = ((recordExtraRaw[recordPos - 4] & 0xFF) << 8) | (recordExtraRaw[recordPos - 3] & 0xFF);
+			nextRecordOffset = getNextRecordOffset(recordExtraRaw, recordPos);
+		}
+	}
+	
+	/**
+	 * the info bits and REC_NEW_N_OWNED (the first byte of record extra) of the record in page.
+	 * 
+	 * @param pageRaw the page bytes.
+	 * @param recordPos the position of record's contents (the end of record extra).
+	 */
+	public static int getInfoBits(byte[] pageRaw, int recordPos) {
+		return pageRaw[recordPos - 5] & 0xFF;
+	}
+	
+	public static boolean isDeleted(byte[] pageRaw, int recordPos) {
+		return (pageRaw[recordPos - 5] & REC_INFO_DELETED_FLAG) != 0;
+	}
+	
+	public static boolean isMinRec(byte[] pageRaw, int recordPos) {
+		return (pageRaw[recordPos - 5] & REC_INFO_MIN_REC_FLAG) != 0;
+	}
+	
+	public static int getRecordsOwned(byte[] pageRaw, int recordPos) {
+		return pageRaw[recordPos - 5] & REC_NEW_N_OWNED_MASK;
+	}
+	
+	public static int getRecordHeapNo(byte[] pageRaw, int recordPos) {
+		int value = ((pageRaw[recordPos - 4] & 0xFF) << 8) | (pageRaw[recordPos - 3] & 0xFF);
+		return (value >>> REC_NEW_HEAP_NO_SHIFT) & REC_NEW_HEAP_NO_MASK;
+	}
+	
+	public static int getRecordStatus(byte[] pageRaw, int recordPos) {
+		return pageRaw[recordPos - 3] & REC_NEW_STATUS_MASK;
+	}
+	
+	/**
+	 * @return the signed next_record_offset of the record in page.
+	 */
+	public static int getNextRecordOffset(byte[] pageRaw, int recordPos) {
+		return (pageRaw[recordPos - 2] << 8) | (pageRaw[recordPos - 1] & 0xFF);
 	}
 	
 	public static String getRecordType(int status) {
@@ -4,12 +4,10 @@ import static org.littlestar.mysql.common.ParserHelper.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
 import java.util.List;
-import java.util.Objects;
 
-import org.littlestar.mysql.ibd.parser.ColumnMeta;
 import org.littlestar.mysql.ibd.parser.KeyMeta;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 import org.littlestar.mysql.ibd.parser.TableMeta;
 
 public class SecondaryKeyNonLeafPage extends IndexPage {
@@ -42,16 +40,9 @@ public class SecondaryKeyNonLeafPage extends IndexPage {
 	 * @return record list of this page
 	 */
 	public List<SecondaryKeyNonLeafRecord> getUserRecords(TableMeta tableMeta, long indexId) {
-		KeyMeta secondaryKeyMeta = tableMeta.getSecondaryKey(indexId);
-		KeyMeta clusterKeyMeta = tableMeta.getClusterKey();
-		if (Objects.isNull(secondaryKeyMeta)) {
-			throw new RuntimeException("secondary key meta not found or is null in table meta, index id: " + indexId);
-		}
-		if (Objects.isNull(clusterKeyMeta)) {
-			throw new RuntimeException("cluster key meta not found or is null in table meta");
-		}
+		RecordLayout layout = tableMeta.getSecondaryNonLeafLayout(indexId);
 		int pos = getSystemRecords().getInfimumNextRecordPos();
-		return iterateRecordInPage(secondaryKeyMeta, clusterKeyMeta, pos);
+		return iterateRecordInPage(layout, pos);
 	}
 
 	/**
@@ -62,109 +53,19 @@ public class SecondaryKeyNonLeafPage extends IndexPage {
 	 * @return record list of this page
 	 */
 	public List<SecondaryKeyNonLeafRecord> getUserRecords(KeyMeta secondaryKeyMeta, KeyMeta clusterKeyMeta) {
+		RecordLayout layout = RecordLayout.newSecondaryNonLeafLayout(secondaryKeyMeta, clusterKeyMeta);
 		int pos = getSystemRecords().getInfimumNextRecordPos();
-		return iterateRecordInPage(secondaryKeyMeta, clusterKeyMeta, pos);
+		return iterateRecordInPage(layout, pos);
 	}
 	
-	private List<SecondaryKeyNonLeafRecord> iterateRecordInPage(KeyMeta secondaryKeyMeta, KeyMeta clusterKeyMeta, int firstRecordPos) {
+	private List<SecondaryKeyNonLeafRecord> iterateRecordInPage(RecordLayout layout, int firstRecordPos) {
 		final List<SecondaryKeyNonLeafRecord> records = new ArrayList<SecondaryKeyNonLeafRecord>();
 		int currentPos = firstRecordPos;
 		int recCount = 0;
 		while (currentPos > SUPREMUM_EXTRA_END_POS && currentPos <= getIndexHeader().getHeapTopPosition()) {
-			final List<RecordField> secondaryKeyFields = new ArrayList<RecordField>();
-			final List<RecordField> clusterKeyFields = new ArrayList<RecordField>();
-			int nullableBitmapBytes = 0;
-			for (ColumnMeta meta : secondaryKeyMeta.getKeyColumns()) {
-				if (meta.isNullable()) {
-					nullableBitmapBytes++;
-				}
-				secondaryKeyFields.add(new RecordField(meta));
-			}
-			for (ColumnMeta meta : clusterKeyMeta.getKeyColumns()) {
-				clusterKeyFields.add(new RecordField(meta));
-			}
-			final List<RecordField> contentFields = new ArrayList<RecordField>();
-			contentFields.addAll(secondaryKeyFields); // Secondary Key first.
-			contentFields.addAll(clusterKeyFields);
-			
-			SecondaryKeyNonLeafRecord userRecord = new SecondaryKeyNonLeafRecord();
-			int from = currentPos - REC_N_NEW_EXTRA_BYTES;
-			int to = currentPos;
-			byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
-			userRecord.setRecordExtraRaw(recordExtraRaw);
+			SecondaryKeyNonLeafRecord userRecord = getRecord(layout, currentPos);
 			int nextOffset = userRecord.getNextRecordOffset();
-			int nextRecord = nextOffset + to;
-			
-			final BitSet nullBitmap;
-			if (nullableBitmapBytes > 0) {
-				to = from;
-				from -= nullableBitmapBytes;
-				byte[] nullBitmapRaw = Arrays.copyOfRange(pageRaw, from, to);
-				nullBitmap = toBitSet(nullBitmapRaw);
-				int bitmapIndex = 0;
-				for (RecordField field : contentFields) {
-					if (field.isNullable()) {
-						boolean isNull = nullBitmap.get(bitmapIndex++);
-						field.setNull(isNull);
-						if (isNull) {
-							field.setLength(0);
-						}
-					}
-				}
-			} else {
-				nullBitmap = new BitSet();
-			}
-
-			int vfrom = 0, vto = from;
-			for (ColumnMeta field : contentFields) {
-				if (field.isVariableLength()) {
-					int len = field.getLength();
-					if (len > 0xFF) {
-						byte[] bytes = Arrays.copyOfRange(pageRaw, vfrom = vto - 2, vto);
-						int b1 = getUInt8(bytes[1]);
-						if ((b1 & 0x80) == 0) {
-							byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-							len = getUInt8(b);
-						} else {
-							int b0 = getUInt8(bytes[0]);
-							b1 <<= 8;
-							b1 |= b0;
-							int offs = 0;
-							offs += b1 & 0x3fff;
-							if ((b1 & 0x4000) != 0) {
-								int REC_OFFS_EXTERNAL = 1 << 30;
-								len = offs | REC_OFFS_EXTERNAL;
-							} else {
-								len = offs;
-							}
-						}
-					} else {
-						byte b = Arrays.copyOfRange(pageRaw, vfrom = vto - 1, vto)[0];
-						len = getUInt8(b);
-					}
-					field.setLength(len);
-					vto = vfrom;
-				}
-			}
-
-			int cententOffset = currentPos;
-			for (RecordField field : secondaryKeyFields) {
-				byte[] contentRaw = null;
-				if (!field.isNull()) {
-					contentRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += field.getLength());
-				}
-				field.setConetentRaw(contentRaw);
-				userRecord.addSecondaryKeyField(field);
-			}
-			for (RecordField field : clusterKeyFields) {
-				byte[] contentRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += field.getLength());
-				field.setConetentRaw(contentRaw);
-				userRecord.addClusterKeyField(field);
-			}
-			byte[] childPageNoRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += 4);
-			long childPageNo = getUInt32(childPageNoRaw);
-			userRecord.setChildPageNumber(childPageNo);
-
+			int nextRecord = userRecord.getNextRecordPos();
 			records.add(userRecord);
 			recCount++;
 			if (recCount > maxRecs || nextOffset == 0 || nextRecord == SUPREMUM_EXTRA_END_POS) {
@@ -175,6 +76,41 @@ public class SecondaryKeyNonLeafPage extends IndexPage {
 		return records;
 	}
 
+	/**
+	 * parse the node pointer record at the position by the compiled record layout.
+	 * 
+	 * @param layout the record layout, see {@link TableMeta#getSecondaryNonLeafLayout(long)}.
+	 * @param currentPos the position of record's contents (the end of record extra).
+	 * @return the node pointer record, getNextRecordPos() is the position of next record.
+	 */
+	public SecondaryKeyNonLeafRecord getRecord(RecordLayout layout, int currentPos) {
+		SecondaryKeyNonLeafRecord userRecord = new SecondaryKeyNonLeafRecord();
+		int from = currentPos - REC_N_NEW_EXTRA_BYTES;
+		int to = currentPos;
+		byte[] recordExtraRaw = Arrays.copyOfRange(pageRaw, from, to);
+		userRecord.setRecordExtraRaw(recordExtraRaw);
+		int nextOffset = userRecord.getNextRecordOffset();
+		userRecord.setNextRecordPos(nextOffset + to);
+
+		final List<RecordField> contentFields = new ArrayList<RecordField>(layout.getColumnCount());
+		parseRecordFields(layout, currentPos, contentFields);
+		final int secondaryKeyColumns = layout.getKeyColumnCount();
+		int cententOffset = currentPos;
+		for (int i = 0; i < contentFields.size(); i++) {
+			RecordField field = contentFields.get(i);
+			cententOffset += field.getLength();
+			if (i < secondaryKeyColumns) {
+				userRecord.addSecondaryKeyField(field);
+			} else {
+				userRecord.addClusterKeyField(field);
+			}
+		}
+		byte[] childPageNoRaw = Arrays.copyOfRange(pageRaw, cententOffset, cententOffset += RecordLayout.CHILD_PAGE_NUMBER_LENGTH);
+		long childPageNo = getUInt32(childPageNoRaw);
+		userRecord.setChildPageNumber(childPageNo);
+		return userRecord;
+	}
+
 	public class SecondaryKeyNonLeafRecord extends RecordExtra {
 		private List<RecordField> secondaryKeyFields;
 		private List<RecordField> clusterKeyFields;
@@ -0,0 +1,341 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.littlestar.mysql.ibd.page.IndexPage;
+import org.littlestar.mysql.ibd.page.RecordCursor;
+
+/**
+ * Streaming COUNT/SUM/MIN/MAX over clustered leaf pages, with an optional GROUP BY
+ * on a low-cardinality column, without creating row objects: the pages are fed one
+ * at a time and only the running values per group are kept.
+ *
+ * <ul>
+ * <li>COUNT(*) without filter, aggregate or group is PAGE_N_RECS minus the delete
+ * marked records of each page, the records are not parsed.</li>
+ * <li>otherwise a {@link RecordCursor} parses only the columns used, SUM/MIN/MAX
+ * read the integer columns as primitive long, the group key is compared as
+ * stored bytes and decoded once per group.</li>
+ * </ul>
+ *
+ * Delete marked records are not counted.
+ *
+ * <pre>
+ * RecordLayout layout = tableMeta.getClusteredLeafLayout();
+ * // SELECT staff_id, COUNT(*), MIN(payment_id), MAX(payment_id) FROM payment GROUP BY staff_id
+ * Aggregator aggregator = new Aggregator(layout).groupBy("staff_id").min("payment_id").max("payment_id");
+ * for (Aggregator.Group group : index.aggregate(aggregator).getGroups()) {
+ *     System.out.println(group.getKey() + ": " + group.getCount() + ", " + group.getValue(0) + ", " + group.getValue(1));
+ * }
+ * </pre>
+ *
+ * An aggregator is not thread safe.
+ *
+ * @see ClusteredIndex#aggregate(Aggregator)
+ */
+public class Aggregator {
+	private static final int SUM = 0;
+	private static final int MIN = 1;
+	private static final int MAX = 2;
+
+	private final RecordLayout layout;
+	private RecordFilter filter;
+	private int groupByColumn = -1;
+	private int[] functions = new int[0];
+	private int[] columns = new int[0];
+	private boolean[] unsigneds = new boolean[0];
+
+	private final List<Group> groups = new ArrayList<Group>();
+	private RecordCursor cursor;
+	private long deleted;
+
+	/**
+	 * @param layout the layout of clustered leaf records, see {@link TableMeta#getClusteredLeafLayout()}.
+	 */
+	public Aggregator(RecordLayout layout) {
+		this.layout = Objects.requireNonNull(layout);
+	}
+
+	public RecordLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * aggregate only the rows which match the filter (WHERE).
+	 */
+	public Aggregator filter(RecordFilter filter) {
+		if (filter.getLayout() != layout) {
+			throw new IllegalArgumentException("filter is not of the record layout.");
+		}
+		checkNotStarted();
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * GROUP BY the column, the groups are kept in the order they are met.
+	 */
+	public Aggregator groupBy(String column) {
+		checkNotStarted();
+		groupByColumn = columnIndex(column);
+		return this;
+	}
+
+	/**
+	 * add SUM(column) of an integer column, it is the next value index of groups.
+	 *
+	 * @throws ArithmeticException (when aggregating) if the sum overflows a long.
+	 */
+	public Aggregator sum(String column) {
+		int col = columnIndex(column);
+		if (ColumnType.UNSIGNED_BIGINT.equals(layout.getColumn(col).getType())) {
+			throw new IllegalArgumentException("SUM of " + ColumnType.UNSIGNED_BIGINT + " is not supported: " + column);
+		}
+		return add(SUM, col);
+	}
+
+	/**
+	 * add MIN(column) of an integer column, it is the next value index of groups.
+	 */
+	public Aggregator min(String column) {
+		return add(MIN, columnIndex(column));
+	}
+
+	/**
+	 * add MAX(column) of an integer column, it is the next value index of groups.
+	 */
+	public Aggregator max(String column) {
+		return add(MAX, columnIndex(column));
+	}
+
+	private Aggregator add(int function, int col) {
+		checkNotStarted();
+		ColumnMeta meta = layout.getColumn(col);
+		if (!ColumnType.isInteger(meta.getType())) {
+			throw new IllegalArgumentException("not an integer column: " + meta.getName() + " " + meta.getType());
+		}
+		final int n = functions.length;
+		functions = Arrays.copyOf(functions, n + 1);
+		columns = Arrays.copyOf(columns, n + 1);
+		unsigneds = Arrays.copyOf(unsigneds, n + 1);
+		functions[n] = function;
+		columns[n] = col;
+		unsigneds[n] = ColumnType.UNSIGNED_BIGINT.equals(meta.getType());
+		return this;
+	}
+
+	/**
+	 * aggregate the user records of a clustered leaf page of the layout.
+	 *
+	 * @param page the leaf page.
+	 * @return this aggregator.
+	 */
+	public Aggregator accept(IndexPage page) {
+		if (Objects.isNull(filter) && groupByColumn < 0 && functions.length == 0) {
+			// COUNT(*) from the page header.
+			int pageDeleted = page.getDeleteMarkedRecords();
+			deleted += pageDeleted;
+			getGroup(null).count += page.getIndexHeader().getPageRecords() - pageDeleted;
+			return this;
+		}
+		if (Objects.isNull(cursor)) {
+			cursor = new RecordCursor(getProjection());
+		}
+		cursor.reset(page);
+		while (cursor.next()) {
+			if (cursor.isDeleted()) {
+				deleted++;
+				continue;
+			}
+			if (Objects.nonNull(filter) && !filter.test(cursor)) {
+				continue;
+			}
+			Group group = getGroup(cursor);
+			group.count++;
+			for (int i = 0; i < functions.length; i++) {
+				final int col = columns[i];
+				if (cursor.isNull(col)) {
+					continue;
+				}
+				long value = cursor.getLong(col);
+				if (!group.present[i]) {
+					group.present[i] = true;
+					group.values[i] = value;
+					continue;
+				}
+				switch (functions[i]) {
+				case SUM:
+					group.values[i] = Math.addExact(group.values[i], value);
+					break;
+				case MIN:
+					if (compare(i, value, group.values[i]) < 0) {
+						group.values[i] = value;
+					}
+					break;
+				default:
+					if (compare(i, value, group.values[i]) > 0) {
+						group.values[i] = value;
+					}
+					break;
+				}
+			}
+		}
+		return this;
+	}
+
+	private int compare(int i, long x, long y) {
+		return unsigneds[i] ? Long.compareUnsigned(x, y) : Long.compare(x, y);
+	}
+
+	private Projection getProjection() {
+		Projection projection = Projection.of(layout, columns);
+		if (groupByColumn >= 0) {
+			projection = projection.union(groupByColumn);
+		}
+		return Objects.isNull(filter) ? projection : projection.union(filter.getColumnIndexes());
+	}
+
+	/**
+	 * find the group of the record by the stored bytes of group column, a new group is
+	 * added if not found.
+	 */
+	private Group getGroup(RecordCursor cursor) {
+		if (groupByColumn < 0 || Objects.isNull(cursor)) {
+			if (groups.isEmpty()) {
+				groups.add(new Group(null, functions.length));
+			}
+			return groups.get(0);
+		}
+		final int col = groupByColumn;
+		final byte[] raw = cursor.getPageRaw();
+		final int offset = cursor.getOffset(col);
+		final int length = cursor.getLength(col);
+		final boolean isNull = cursor.isNull(col);
+		int hash = isNull ? -1 : 1;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + raw[offset + i];
+		}
+		for (int g = 0, n = groups.size(); g < n; g++) {
+			Group group = groups.get(g);
+			if (group.hash == hash && group.matches(raw, offset, length, isNull)) {
+				return group;
+			}
+		}
+		Group group = new Group(isNull ? null : cursor.getBytes(col), functions.length);
+		group.hash = hash;
+		groups.add(group);
+		return group;
+	}
+
+	/**
+	 * @return COUNT(*) of all groups.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (Group group : groups) {
+			count += group.count;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of delete marked records skipped.
+	 */
+	public long getDeleteMarkedRecords() {
+		return deleted;
+	}
+
+	/**
+	 * @return the groups in the order they are met, one group (key null) if not grouped.
+	 */
+	public List<Group> getGroups() {
+		if (groups.isEmpty() && groupByColumn < 0) {
+			// no row yet, the aggregates of an empty table.
+			return Collections.singletonList(new Group(null, functions.length));
+		}
+		return Collections.unmodifiableList(groups);
+	}
+
+	private void checkNotStarted() {
+		if (Objects.nonNull(cursor) || !groups.isEmpty()) {
+			throw new IllegalStateException("aggregator is started.");
+		}
+	}
+
+	private int columnIndex(String column) {
+		int index = layout.indexOf(column);
+		if (index < 0) {
+			throw new IllegalArgumentException("column not found in record layout: " + column);
+		}
+		return index;
+	}
+
+	/**
+	 * The running COUNT and aggregate values of a group.
+	 */
+	public class Group {
+		private final byte[] keyRaw;
+		private final long[] values;
+		private final boolean[] present;
+		private int hash;
+		private long count;
+
+		private Group(byte[] keyRaw, int functionCount) {
+			this.keyRaw = keyRaw;
+			this.values = new long[functionCount];
+			this.present = new boolean[functionCount];
+		}
+
+		private boolean matches(byte[] raw, int offset, int length, boolean isNull) {
+			if (Objects.isNull(keyRaw)) {
+				return isNull;
+			}
+			if (isNull || keyRaw.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (keyRaw[i] != raw[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return the decoded value of group column, null for the NULL group or if not grouped.
+		 */
+		public Object getKey() {
+			return Objects.isNull(keyRaw) ? null : layout.getDecoder(groupByColumn).decode(keyRaw.clone());
+		}
+
+		public byte[] getKeyRaw() {
+			return Objects.isNull(keyRaw) ? null : keyRaw.clone();
+		}
+
+		/**
+		 * @return COUNT(*) of the group.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @param index the index of aggregate, in the order they are added.
+		 * @return the value of SUM/MIN/MAX, 0 if no value (see {@link #hasValue(int)}).
+		 */
+		public long getValue(int index) {
+			return values[index];
+		}
+
+		/**
+		 * @return false if all values of the column are NULL in the group (the SQL result is NULL).
+		 */
+		public boolean hasValue(int index) {
+			return present[index];
+		}
+	}
+}
@@ -0,0 +1,842 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage;
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage.ClusteredKeyLeafRecord;
+import org.littlestar.mysql.ibd.page.ClusteredKeyNonLeafPage;
+import org.littlestar.mysql.ibd.page.ClusteredKeyNonLeafPage.ClusteredKeyNonLeafRecord;
+import org.littlestar.mysql.ibd.page.IndexPage;
+import org.littlestar.mysql.ibd.page.IndexPage.RecordField;
+import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.PageView;
+import org.littlestar.mysql.ibd.page.RecordCursor;
+
+/**
+ * The clustered index (primary key B+tree) of a table.
+ *
+ * <pre>
+ *                      +-----------+
+ *                      | root (n)  |
+ *                      +-----------+
+ *                     /      |      \
+ *          +-----------+           +-----------+
+ *          | level 0   | --------> | level 0   | --> ... FIL_NULL
+ *          +-----------+ PAGE_NEXT +-----------+
+ *          leftmost leaf
+ * </pre>
+ *
+ * Rows are read lazily, from the leftmost leaf and then along the FIL_PAGE_NEXT
+ * chain, so they come in primary key order and only one leaf page is held at a
+ * time, whatever the size of the table.
+ *
+ * <p>A point lookup descends from the root by the node pointers
+ * (min cluster key on child, child page number) and reads one page per level; a
+ * range scan descends to the lower bound and stops at the upper bound.
+ *
+ * <pre>
+ * ClusteredIndex index = parser.getClusteredIndex(tableMeta);
+ * for (ClusteredKeyLeafRecord row : index) { ... }
+ * ClusteredKeyLeafRecord row = index.lookup("ADAM.GOOCH@sakilacustomer.org", "ADAM");
+ * // pk1 BETWEEN 'A' AND 'B'
+ * Iterator&lt;ClusteredKeyLeafRecord&gt; rows = index.iterator(new Object[] {"A"}, true, new Object[] {"B"}, true);
+ * // allocation-free full scan
+ * index.scan(cursor -&gt; sum += cursor.getLong(5));
+ * // only parse film_id and title
+ * index.stream(Projection.of(tableMeta.getClusteredLeafLayout(), "film_id", "title"));
+ * // WHERE customer_id = 42, tested on the bytes in page
+ * index.scan(RecordFilter.eq(tableMeta.getClusteredLeafLayout(), "customer_id", 42), cursor -&gt; ...);
+ * // leaf pages decoded by a pool, rows still in primary key order
+ * index.stream(null, null, executor, 16).forEach(row -&gt; ...);
+ * // read the leaf chain 8 pages ahead of the decoding thread
+ * index.setReadAhead(executor, 8);
+ * </pre>
+ *
+ * @see IbdFileParser#getClusteredIndex(TableMeta)
+ */
+public class ClusteredIndex implements Iterable<ClusteredKeyLeafRecord> {
+	private final IbdFileParser parser;
+	private final TableMeta tableMeta;
+	private final long rootPageNumber;
+	/** the positions of cluster key fields in the leaf record fields. */
+	private final int[] keyFieldIndexes;
+	private volatile KeyComparator keyComparator = KeyComparator.DEFAULT;
+	private volatile Executor readAheadExecutor;
+	private volatile int readAheadPages = 0;
+
+	/**
+	 * @param parser the parser of the tablespace.
+	 * @param tableMeta the table meta data, with the cluster key columns.
+	 * @param rootPageNumber the root page of the clustered index.
+	 */
+	public ClusteredIndex(IbdFileParser parser, TableMeta tableMeta, long rootPageNumber) {
+		this.parser = Objects.requireNonNull(parser);
+		this.tableMeta = Objects.requireNonNull(tableMeta);
+		this.rootPageNumber = rootPageNumber;
+		List<ColumnMeta> columns = tableMeta.getColumns();
+		List<ColumnMeta> keyColumns = tableMeta.getClusterKey().getKeyColumns();
+		keyFieldIndexes = new int[keyColumns.size()];
+		for (int i = 0; i < keyFieldIndexes.length; i++) {
+			keyFieldIndexes[i] = columns.indexOf(keyColumns.get(i));
+		}
+	}
+
+	public IbdFileParser getParser() {
+		return parser;
+	}
+
+	public TableMeta getTableMeta() {
+		return tableMeta;
+	}
+
+	public long getRootPageNumber() {
+		return rootPageNumber;
+	}
+
+	public KeyComparator getKeyComparator() {
+		return keyComparator;
+	}
+
+	/**
+	 * set the comparator of search keys, it must follow the collation of the key columns.
+	 */
+	public ClusteredIndex setKeyComparator(KeyComparator keyComparator) {
+		this.keyComparator = Objects.requireNonNull(keyComparator);
+		return this;
+	}
+
+	/**
+	 * read the leaf chain ahead of the iterators, scans and aggregates of this index:
+	 * the next page number is in the FIL header, so while the current page is
+	 * decoded, tasks on the executor fetch the following pages one after another,
+	 * at most pages ahead. It hides the read latency of cold leaf pages which are
+	 * not physically contiguous; a range scan may read up to pages after its upper
+	 * bound.
+	 *
+	 * @param executor the executor of the read tasks, null to read in the calling thread (default).
+	 * @param pages the number of pages read ahead, 0 for no read-ahead.
+	 */
+	public ClusteredIndex setReadAhead(Executor executor, int pages) {
+		if (pages < 0) {
+			throw new IllegalArgumentException("read-ahead pages must not be negative: " + pages);
+		}
+		this.readAheadExecutor = pages > 0 ? Objects.requireNonNull(executor) : null;
+		this.readAheadPages = pages;
+		return this;
+	}
+
+	public int getReadAheadPages() {
+		return readAheadPages;
+	}
+
+	/**
+	 * the cluster key fields of the leaf record, in key order.
+	 */
+	public List<RecordField> getKeyFields(ClusteredKeyLeafRecord record) {
+		List<RecordField> fields = record.getRecordFields();
+		List<RecordField> keyFields = new ArrayList<RecordField>(keyFieldIndexes.length);
+		for (int index : keyFieldIndexes) {
+			keyFields.add(fields.get(index));
+		}
+		return keyFields;
+	}
+
+	/**
+	 * read the page of the index as IndexPage.
+	 */
+	IndexPage getIndexPage(long pageNumber) throws IOException {
+		Page page = parser.getPage(pageNumber);
+		if (!(page instanceof IndexPage)) {
+			throw new IOException("page " + pageNumber + " is not a FIL_PAGE_INDEX page: " + page.getFilHeader().getPageTypeName());
+		}
+		return (IndexPage) page;
+	}
+
+	/**
+	 * descend from the root along the first child of each non-leaf page.
+	 *
+	 * @return the page number of the leftmost leaf page.
+	 * @throws IOException
+	 */
+	public long getLeftmostLeafPageNumber() throws IOException {
+		long pageNumber = rootPageNumber;
+		IndexPage page = getIndexPage(pageNumber);
+		RecordCursor nodePointer = new RecordCursor(tableMeta.getClusteredNonLeafLayout());
+		while (page.getIndexHeader().getPageLevel() > 0) {
+			if (!nodePointer.reset(page).next()) {
+				throw new IOException("non-leaf page " + pageNumber + " has no node pointer.");
+			}
+			pageNumber = nodePointer.getChildPageNumber();
+			page = getIndexPage(pageNumber);
+		}
+		return pageNumber;
+	}
+
+	/**
+	 * descend from the root to the leaf page which the key belongs to. On each
+	 * non-leaf page the last node pointer whose min key is less than (or equal to,
+	 * if not strict) the key is followed; the first node pointer (REC_INFO_MIN_REC_FLAG
+	 * on the leftmost page of the level) is never compared, it is followed if no
+	 * other node pointer qualifies. Node pointers are searched by the page directory.
+	 *
+	 * @param key the search key (prefix).
+	 * @param strict true to follow only node pointers less than the key, so the leaf
+	 *        is at or before the first record equal to the (prefix) key.
+	 * @return the leaf page number.
+	 * @throws IOException
+	 */
+	long searchLeafPage(Object[] key, boolean strict) throws IOException {
+		final KeyComparator comparator = keyComparator;
+		long pageNumber = rootPageNumber;
+		IndexPage page = getIndexPage(pageNumber);
+		while (page.getIndexHeader().getPageLevel() > 0) {
+			final ClusteredKeyNonLeafPage nonLeafPage = new ClusteredKeyNonLeafPage(page.getPageRaw(), page.getPageSize());
+			int pos = nonLeafPage.seekRecordPos((int recordPos) -> {
+				ClusteredKeyNonLeafRecord nodePointer = nonLeafPage.getRecord(tableMeta, recordPos);
+				if (nodePointer.getMinRecFlag()) {
+					return true;
+				}
+				int cmp = comparator.compare(nodePointer.getMinClusterKeyOnChild(), key);
+				return cmp < 0 || (!strict && cmp == 0);
+			});
+			if (pos == IndexPage.INFIMUM_EXTRA_END_POS) {
+				pos = nonLeafPage.getNextRecordPos(pos);
+			}
+			if (pos == IndexPage.SUPREMUM_EXTRA_END_POS) {
+				throw new IOException("non-leaf page " + pageNumber + " has no node pointer.");
+			}
+			pageNumber = nonLeafPage.getRecord(tableMeta, pos).getChildPageNumber();
+			page = getIndexPage(pageNumber);
+		}
+		return pageNumber;
+	}
+
+	/**
+	 * seek in the leaf page by the page directory.
+	 *
+	 * @return the position of the first record not before the key, SUPREMUM_EXTRA_END_POS if not any.
+	 */
+	private int seekLeafRecordPos(final ClusteredKeyLeafPage leafPage, final Object[] key, final boolean inclusive,
+			final KeyComparator comparator) {
+		int pos = leafPage.seekRecordPos((int recordPos) -> {
+			int cmp = comparator.compare(getKeyFields(leafPage.getRecord(tableMeta, recordPos)), key);
+			return cmp < 0 || (cmp == 0 && !inclusive);
+		});
+		return leafPage.getNextRecordPos(pos);
+	}
+
+	/**
+	 * primary key point lookup, reads one page per level of the B+tree, and the
+	 * records are searched by the page directory of each page.
+	 *
+	 * <p>the record is returned even if it is delete marked (see RecordExtra.getDeletedFlag()).
+	 *
+	 * @param key the values of all cluster key columns, in key order.
+	 * @return the leaf record, or null if not found.
+	 * @throws IOException
+	 */
+	public ClusteredKeyLeafRecord lookup(Object... key) throws IOException {
+		if (key.length != keyFieldIndexes.length) {
+			throw new IllegalArgumentException(
+					"cluster key has " + keyFieldIndexes.length + " columns, but " + key.length + " values given.");
+		}
+		final KeyComparator comparator = keyComparator;
+		IndexPage page = getIndexPage(searchLeafPage(key, false));
+		ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+		int pos = seekLeafRecordPos(leafPage, key, true, comparator);
+		if (pos != IndexPage.SUPREMUM_EXTRA_END_POS) {
+			ClusteredKeyLeafRecord record = leafPage.getRecord(tableMeta, pos);
+			if (comparator.compare(getKeyFields(record), key) == 0) {
+				return record;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the rows of the index in primary key order, IOException is rethrown as UncheckedIOException.
+	 */
+	@Override
+	public Iterator<ClusteredKeyLeafRecord> iterator() {
+		try {
+			return new LeafChainIterator(getLeftmostLeafPageNumber(), null, false, null, false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * the rows of the index in primary key order with only the requested columns
+	 * (projection pushdown): the record fields are the projected fields, the other
+	 * columns are skipped without copy or decode.
+	 *
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 */
+	public Iterator<ClusteredKeyLeafRecord> iterator(Projection projection) {
+		return iterator(projection, null);
+	}
+
+	/**
+	 * the rows of the index in primary key order which match the filter (predicate
+	 * pushdown): the filter is tested on the undecoded field bytes of each record,
+	 * only the matched records are parsed.
+	 *
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}, all columns if null.
+	 * @param filter the filter of the same layout, all rows if null.
+	 */
+	public Iterator<ClusteredKeyLeafRecord> iterator(Projection projection, RecordFilter filter) {
+		if (Objects.nonNull(projection)) {
+			checkLayout(projection.getLayout());
+		}
+		if (Objects.nonNull(filter)) {
+			checkLayout(filter.getLayout());
+		}
+		try {
+			LeafChainIterator iterator = new LeafChainIterator(getLeftmostLeafPageNumber(), null, false, null, false);
+			iterator.projection = projection;
+			iterator.filter = filter;
+			return iterator;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * sequential stream of {@link #iterator()}.
+	 */
+	public Stream<ClusteredKeyLeafRecord> stream() {
+		return toStream(iterator());
+	}
+
+	/**
+	 * sequential stream of {@link #iterator(Projection)}.
+	 */
+	public Stream<ClusteredKeyLeafRecord> stream(Projection projection) {
+		return toStream(iterator(projection));
+	}
+
+	/**
+	 * sequential stream of {@link #iterator(Projection, RecordFilter)}.
+	 */
+	public Stream<ClusteredKeyLeafRecord> stream(Projection projection, RecordFilter filter) {
+		return toStream(iterator(projection, filter));
+	}
+
+	/**
+	 * full scan of the rows in primary key order with one reusable cursor: the
+	 * cursor is moved over the records of each leaf page along the FIL_PAGE_NEXT
+	 * chain, no record or field object is created per row.
+	 *
+	 * <p>the cursor is only valid inside the action, delete marked records are
+	 * visited too (see {@link RecordCursor#isDeleted()}).
+	 *
+	 * @param action called with the cursor positioned on each row.
+	 * @return the number of rows visited.
+	 * @throws IOException
+	 */
+	public long scan(Consumer<? super RecordCursor> action) throws IOException {
+		return scan(new RecordCursor(tableMeta.getClusteredLeafLayout()), null, action);
+	}
+
+	/**
+	 * full scan with a cursor of the projection, each record is only parsed up to
+	 * the last requested column.
+	 *
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param action called with the cursor positioned on each row.
+	 * @return the number of rows visited.
+	 * @throws IOException
+	 */
+	public long scan(Projection projection, Consumer<? super RecordCursor> action) throws IOException {
+		checkLayout(projection.getLayout());
+		return scan(new RecordCursor(projection), null, action);
+	}
+
+	/**
+	 * full scan of the rows which match the filter, the filter is tested on the
+	 * cursor before the action, so the rows not matched are never decoded.
+	 *
+	 * @param filter the filter of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param action called with the cursor positioned on each matched row.
+	 * @return the number of rows matched.
+	 * @throws IOException
+	 */
+	public long scan(RecordFilter filter, Consumer<? super RecordCursor> action) throws IOException {
+		checkLayout(filter.getLayout());
+		return scan(new RecordCursor(filter.getLayout()), filter, action);
+	}
+
+	/**
+	 * full scan of the requested columns of the rows which match the filter.
+	 *
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @param filter the filter of the same layout, the tested columns are parsed too.
+	 * @param action called with the cursor positioned on each matched row.
+	 * @return the number of rows matched.
+	 * @throws IOException
+	 */
+	public long scan(Projection projection, RecordFilter filter, Consumer<? super RecordCursor> action)
+			throws IOException {
+		checkLayout(projection.getLayout());
+		checkLayout(filter.getLayout());
+		return scan(new RecordCursor(projection.union(filter.getColumnIndexes())), filter, action);
+	}
+
+	/**
+	 * feed the leaf pages of the index to the aggregator, along the FIL_PAGE_NEXT chain.
+	 *
+	 * <pre>
+	 * // SELECT COUNT(*), from PAGE_N_RECS of each leaf page.
+	 * long rows = index.aggregate(new Aggregator(tableMeta.getClusteredLeafLayout())).getCount();
+	 * </pre>
+	 *
+	 * @param aggregator the aggregator of {@link TableMeta#getClusteredLeafLayout()}.
+	 * @return the aggregator.
+	 * @throws IOException
+	 */
+	public Aggregator aggregate(Aggregator aggregator) throws IOException {
+		checkLayout(aggregator.getLayout());
+		LeafPageReader pages = new LeafPageReader(getLeftmostLeafPageNumber());
+		try {
+			for (IndexPage page; Objects.nonNull(page = pages.next());) {
+				aggregator.accept(page);
+			}
+		} finally {
+			pages.close();
+		}
+		return aggregator;
+	}
+
+	private long scan(RecordCursor cursor, RecordFilter filter, Consumer<? super RecordCursor> action) throws IOException {
+		long rows = 0;
+		LeafPageReader pages = new LeafPageReader(getLeftmostLeafPageNumber());
+		try {
+			for (IndexPage page; Objects.nonNull(page = pages.next());) {
+				cursor.reset(page);
+				while (cursor.next()) {
+					if (Objects.isNull(filter) || filter.test(cursor)) {
+						action.accept(cursor);
+						rows++;
+					}
+				}
+			}
+		} finally {
+			pages.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * primary key range scan: seek to the leaf of the lower bound by B+tree descent,
+	 * then iterate forward along the FIL_PAGE_NEXT chain until the upper bound, the
+	 * leaf pages after the upper bound are not read.
+	 *
+	 * <p>a bound may be a key prefix, e.g. only the first column of a composite key,
+	 * it is compared with the same number of leading key fields.
+	 *
+	 * @param lowerKey the lower bound, null for the first row.
+	 * @param lowerInclusive true if rows equal to the lower bound are included.
+	 * @param upperKey the upper bound, null for the last row.
+	 * @param upperInclusive true if rows equal to the upper bound are included.
+	 * @return the rows in range, in primary key order.
+	 * @throws IOException
+	 */
+	public Iterator<ClusteredKeyLeafRecord> iterator(Object[] lowerKey, boolean lowerInclusive, Object[] upperKey,
+			boolean upperInclusive) throws IOException {
+		final long startPageNumber;
+		if (Objects.isNull(lowerKey)) {
+			startPageNumber = getLeftmostLeafPageNumber();
+		} else {
+			checkKeyLength(lowerKey);
+			// rows equal to an inclusive key prefix may begin in the child before the node pointer equal to it.
+			boolean strict = lowerInclusive && lowerKey.length < keyFieldIndexes.length;
+			startPageNumber = searchLeafPage(lowerKey, strict);
+		}
+		if (Objects.nonNull(upperKey)) {
+			checkKeyLength(upperKey);
+		}
+		return new LeafChainIterator(startPageNumber, lowerKey, lowerInclusive, upperKey, upperInclusive);
+	}
+
+	/**
+	 * sequential stream of {@link #iterator(Object[], boolean, Object[], boolean)}.
+	 */
+	public Stream<ClusteredKeyLeafRecord> stream(Object[] lowerKey, boolean lowerInclusive, Object[] upperKey,
+			boolean upperInclusive) throws IOException {
+		return toStream(iterator(lowerKey, lowerInclusive, upperKey, upperInclusive));
+	}
+
+	/**
+	 * the rows in primary key order, with the leaf pages decoded in parallel: the
+	 * leaf chain is read ahead in the calling thread, each page is decoded by a task
+	 * on the executor, and the decoded pages are handed out in leaf chain order
+	 * from a reorder buffer of at most maxPagesInFlight pages.
+	 *
+	 * @param projection the requested columns, all columns if null.
+	 * @param filter the filter of rows, all rows if null.
+	 * @param executor the executor of the decode tasks, e.g. ForkJoinPool.commonPool().
+	 * @param maxPagesInFlight the bound of pages read ahead and not yet consumed.
+	 * @return the rows, close() cancels the pending decode tasks.
+	 */
+	public OrderedParallelIterator iterator(Projection projection, RecordFilter filter, Executor executor,
+			int maxPagesInFlight) {
+		if (maxPagesInFlight < 1) {
+			throw new IllegalArgumentException("maxPagesInFlight must be positive: " + maxPagesInFlight);
+		}
+		if (Objects.nonNull(projection)) {
+			checkLayout(projection.getLayout());
+		}
+		if (Objects.nonNull(filter)) {
+			checkLayout(filter.getLayout());
+		}
+		try {
+			return new OrderedParallelIterator(getLeftmostLeafPageNumber(), projection, filter,
+					Objects.requireNonNull(executor), maxPagesInFlight);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * sequential stream of {@link #iterator(Projection, RecordFilter, Executor, int)}, the
+	 * pending decode tasks are cancelled when the stream is closed.
+	 */
+	public Stream<ClusteredKeyLeafRecord> stream(Projection projection, RecordFilter filter, Executor executor,
+			int maxPagesInFlight) {
+		OrderedParallelIterator iterator = iterator(projection, filter, executor, maxPagesInFlight);
+		return toStream(iterator).onClose(iterator::close);
+	}
+
+	/**
+	 * decode the user records of a leaf page, it only reads the page bytes.
+	 */
+	private List<ClusteredKeyLeafRecord> getLeafRecords(IndexPage page, Projection projection, RecordFilter filter) {
+		ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+		if (Objects.nonNull(filter)) {
+			return Objects.nonNull(projection) ? leafPage.getUserRecords(projection, filter)
+					: leafPage.getUserRecords(tableMeta, filter);
+		} else if (Objects.nonNull(projection)) {
+			return leafPage.getUserRecords(projection);
+		}
+		return leafPage.getUserRecords(tableMeta);
+	}
+
+	private static Stream<ClusteredKeyLeafRecord> toStream(Iterator<ClusteredKeyLeafRecord> iterator) {
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
+	}
+
+	private void checkLayout(RecordLayout layout) {
+		if (layout != tableMeta.getClusteredLeafLayout()) {
+			throw new IllegalArgumentException("projection, filter or aggregator is not of the clustered leaf layout of table "
+					+ tableMeta.getTableName());
+		}
+	}
+
+	private void checkKeyLength(Object[] key) {
+		if (key.length == 0 || key.length > keyFieldIndexes.length) {
+			throw new IllegalArgumentException(
+					"cluster key has " + keyFieldIndexes.length + " columns, but " + key.length + " values given.");
+		}
+	}
+
+	/**
+	 * Iterate the user records of one leaf page at a time, then move to FIL_PAGE_NEXT.
+	 * Rows before the lower bound are skipped, the iteration ends at the first row
+	 * after the upper bound.
+	 */
+	private class LeafChainIterator implements Iterator<ClusteredKeyLeafRecord> {
+		private final KeyComparator comparator = keyComparator;
+		private final boolean lowerInclusive;
+		private final Object[] upperKey;
+		private final boolean upperInclusive;
+		private final LeafPageReader pages;
+		private Iterator<ClusteredKeyLeafRecord> records = Collections.emptyIterator();
+		private Object[] lowerKey;
+		private ClusteredKeyLeafRecord nextRecord;
+		private boolean finished = false;
+		private boolean seeked = false;
+		/** the requested columns of full scan, all columns if null. */
+		private Projection projection;
+		/** the filter of full scan, all rows if null. */
+		private RecordFilter filter;
+
+		LeafChainIterator(long startPageNumber, Object[] lowerKey, boolean lowerInclusive, Object[] upperKey,
+				boolean upperInclusive) {
+			this.pages = new LeafPageReader(startPageNumber);
+			this.lowerKey = lowerKey;
+			this.lowerInclusive = lowerInclusive;
+			this.upperKey = upperKey;
+			this.upperInclusive = upperInclusive;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (Objects.isNull(nextRecord) && !finished) {
+				if (!records.hasNext()) {
+					try {
+						IndexPage page = pages.next();
+						if (Objects.isNull(page)) {
+							finished = true;
+							break;
+						}
+						if (Objects.nonNull(lowerKey) && !seeked) {
+							// skip the records before the lower bound of the first page by the page directory.
+							seeked = true;
+							ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+							int pos = seekLeafRecordPos(leafPage, lowerKey, lowerInclusive, comparator);
+							records = leafPage.getUserRecords(tableMeta, pos).iterator();
+						} else {
+							records = getLeafRecords(page, projection, filter).iterator();
+						}
+					} catch (IOException e) {
+						pages.close();
+						throw new UncheckedIOException(e);
+					}
+					continue;
+				}
+				ClusteredKeyLeafRecord record = records.next();
+				if (Objects.nonNull(lowerKey)) {
+					int cmp = comparator.compare(getKeyFields(record), lowerKey);
+					if (cmp < 0 || (cmp == 0 && !lowerInclusive)) {
+						continue;
+					}
+					// rows are in key order, the rest are all after the lower bound.
+					lowerKey = null;
+				}
+				if (Objects.nonNull(upperKey)) {
+					int cmp = comparator.compare(getKeyFields(record), upperKey);
+					if (cmp > 0 || (cmp == 0 && !upperInclusive)) {
+						finished = true;
+						pages.close();
+						break;
+					}
+					if (cmp == 0 && upperKey.length == keyFieldIndexes.length) {
+						// the full key is unique, no more rows in range.
+						finished = true;
+						pages.close();
+					}
+				}
+				nextRecord = record;
+			}
+			return Objects.nonNull(nextRecord);
+		}
+
+		@Override
+		public ClusteredKeyLeafRecord next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			ClusteredKeyLeafRecord record = nextRecord;
+			nextRecord = null;
+			return record;
+		}
+	}
+
+	/**
+	 * Read the pages of the leaf chain in order. Without read-ahead each page is read
+	 * when asked for; with read-ahead the page fetches are chained tasks on the
+	 * executor, each one starts as soon as the page before it is read (its
+	 * FIL_PAGE_NEXT is known), and at most readAheadPages are queued.
+	 */
+	private class LeafPageReader {
+		private final Executor executor = readAheadExecutor;
+		private final int depth = readAheadPages;
+		private final ArrayDeque<CompletableFuture<IndexPage>> pending;
+		/** the next page to read when nothing is queued. */
+		private long nextPageNumber;
+
+		LeafPageReader(long startPageNumber) {
+			this.nextPageNumber = startPageNumber;
+			this.pending = new ArrayDeque<CompletableFuture<IndexPage>>(Math.max(depth, 1));
+		}
+
+		/**
+		 * @return the next leaf page, null at the end of chain.
+		 */
+		IndexPage next() throws IOException {
+			if (Objects.isNull(executor)) {
+				if (nextPageNumber == PageView.FIL_NULL) {
+					return null;
+				}
+				IndexPage page = getIndexPage(nextPageNumber);
+				nextPageNumber = page.getFilHeader().getNextPage();
+				return page;
+			}
+			fill();
+			CompletableFuture<IndexPage> head = pending.poll();
+			if (Objects.isNull(head)) {
+				return null;
+			}
+			IndexPage page;
+			try {
+				page = head.join();
+			} catch (CompletionException e) {
+				close();
+				Throwable cause = e.getCause();
+				if (cause instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) cause).getCause();
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw e;
+			}
+			nextPageNumber = Objects.isNull(page) ? PageView.FIL_NULL : page.getFilHeader().getNextPage();
+			if (nextPageNumber == PageView.FIL_NULL) {
+				// the queued reads after the last page have nothing to read.
+				close();
+			}
+			return page;
+		}
+
+		/**
+		 * queue the reads of the following pages, each chained to the read of the page before it.
+		 */
+		private void fill() {
+			while (pending.size() < depth) {
+				CompletableFuture<IndexPage> tail = pending.peekLast();
+				if (Objects.nonNull(tail)) {
+					pending.add(tail.thenApplyAsync(previous -> Objects.isNull(previous) ? null
+							: read(previous.getFilHeader().getNextPage()), executor));
+				} else if (nextPageNumber != PageView.FIL_NULL) {
+					final long pageNumber = nextPageNumber;
+					pending.add(CompletableFuture.supplyAsync(() -> read(pageNumber), executor));
+				} else {
+					break;
+				}
+			}
+		}
+
+		private IndexPage read(long pageNumber) {
+			if (pageNumber == PageView.FIL_NULL) {
+				return null;
+			}
+			try {
+				return getIndexPage(pageNumber);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * cancel the queued reads not yet started.
+		 */
+		void close() {
+			nextPageNumber = PageView.FIL_NULL;
+			CompletableFuture<IndexPage> future;
+			while (Objects.nonNull(future = pending.poll())) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Iterate the rows of the leaf chain, decoded by tasks on an executor. The
+	 * futures of the pages are queued in leaf chain order, so the queue is the
+	 * reorder buffer: a page decoded early waits until the pages before it are
+	 * consumed, and no more than maxPagesInFlight pages are read ahead.
+	 */
+	public class OrderedParallelIterator implements Iterator<ClusteredKeyLeafRecord>, AutoCloseable {
+		private final Projection projection;
+		private final RecordFilter filter;
+		private final Executor executor;
+		private final int maxPagesInFlight;
+		private final ArrayDeque<CompletableFuture<List<ClusteredKeyLeafRecord>>> pending;
+		private long nextPageNumber;
+		private Iterator<ClusteredKeyLeafRecord> records = Collections.emptyIterator();
+		private volatile boolean closed = false;
+
+		OrderedParallelIterator(long startPageNumber, Projection projection, RecordFilter filter, Executor executor,
+				int maxPagesInFlight) {
+			this.nextPageNumber = startPageNumber;
+			this.projection = projection;
+			this.filter = filter;
+			this.executor = executor;
+			this.maxPagesInFlight = maxPagesInFlight;
+			this.pending = new ArrayDeque<CompletableFuture<List<ClusteredKeyLeafRecord>>>(maxPagesInFlight);
+		}
+
+		/**
+		 * read the next leaf pages of the chain and submit their decode tasks, until
+		 * the buffer is full or the chain ends.
+		 */
+		private void fill() throws IOException {
+			while (pending.size() < maxPagesInFlight && nextPageNumber != PageView.FIL_NULL) {
+				final IndexPage page = getIndexPage(nextPageNumber);
+				nextPageNumber = page.getFilHeader().getNextPage();
+				pending.add(CompletableFuture.supplyAsync(() -> getLeafRecords(page, projection, filter), executor));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!records.hasNext()) {
+				if (closed) {
+					return false;
+				}
+				try {
+					fill();
+				} catch (IOException e) {
+					close();
+					throw new UncheckedIOException(e);
+				}
+				CompletableFuture<List<ClusteredKeyLeafRecord>> head = pending.poll();
+				if (Objects.isNull(head)) {
+					return false;
+				}
+				try {
+					records = head.join().iterator();
+				} catch (CompletionException e) {
+					close();
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw e;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public ClusteredKeyLeafRecord next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return records.next();
+		}
+
+		/**
+		 * cancel the decode tasks not yet started and drop the buffered pages.
+		 */
+		@Override
+		public void close() {
+			closed = true;
+			records = Collections.emptyIterator();
+			CompletableFuture<List<ClusteredKeyLeafRecord>> future;
+			while (Objects.nonNull(future = pending.poll())) {
+				future.cancel(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.littlestar.mysql.ibd.parser;
+
+import static org.littlestar.mysql.common.ParserHelper.getUInt16;
+import static org.littlestar.mysql.common.ParserHelper.getUInt8;
+import static org.littlestar.mysql.common.ParserHelper.toBitSet;
+import static org.littlestar.mysql.common.ParserHelper.toHexString;
+import static org.littlestar.mysql.ibd.parser.ColumnType.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Decode the stored bytes of a column into java value, the decoder is chosen
+ * once by the column type, see {@link #of(ColumnMeta)}.
+ *
+ * <p>the bytes may be modified by the decoder, pass a copy if they are still needed.
+ */
+@FunctionalInterface
+public interface ColumnDecoder {
+
+	Object decode(byte[] raw);
+
+	/**
+	 * get the decoder of the column type.
+	 *
+	 * @param meta the column meta data.
+	 * @return the decoder.
+	 */
+	static ColumnDecoder of(final ColumnMeta meta) {
+		switch (meta.getType()) {
+		/** Integer Types (Exact Value) - INTEGER, INT, SMALLINT, TINYINT, MEDIUMINT, BIGINT */
+		case TINYINT:
+		case SMALLINT:
+		case MEDIUMINT:
+		case INT:
+		case BIGINT:
+			return ColumnType::getIntValue;
+		case UNSIGNED_TINYINT:
+		case UNSIGNED_SMALLINT:
+		case UNSIGNED_MEDIUMINT:
+		case UNSIGNED_INT:
+		case UNSIGNED_BIGINT:
+			return ColumnType::getUIntValue;
+		/** Floating-Point Number **/
+		case FLOAT:
+			return ColumnType::getFloatValue;
+		case DOUBLE:
+			return ColumnType::getDoubleValue;
+		case DECIMAL:
+			final int precision = meta.getPrecision();
+			final int scale = meta.getScale();
+			return (byte[] raw) -> getDecimalValue(raw, precision, scale);
+		/** String Type Storage */
+		case ENUM:
+			return (byte[] raw) -> {
+				int size = raw.length;
+				int index = 0;
+				if (size == 1) {
+					index = getUInt8(raw[0]);
+				} else if (size == 2) {
+					index = getUInt16(raw);
+				} else {
+					return "unsupport enum length: " + size;
+				}
+				return meta.getEnumMember(index);
+			};
+		/**
+		 * The size of a SET object is determined by the number of different set members.
+		 * If the set size is N, the object occupies (N+7)/8 bytes, rounded up to 1, 2, 3, 4, or 8 bytes.
+		 * A SET can have a maximum of 64 members.
+		 */
+		case SET:
+			return (byte[] raw) -> {
+				ArrayList<String> list = new ArrayList<String>();
+				BitSet bs = toBitSet(raw);
+				for (int i = 0; i < meta.getEnumMembers().size(); i++) {
+					if (bs.get(i)) {
+						list.add(meta.getEnumMember(i + 1));
+					}
+				}
+				return list;
+			};
+		case TEXT:
+		case VARCHAR:
+		case CHAR:
+			return (byte[] raw) -> new String(raw);
+		case YEAR:
+			return (byte[] raw) -> getUInt8(raw[0]) + 1900;
+		case DATETIME:
+			return ColumnType::getDateTimeV2;
+		case TIMESTAMP:
+			return ColumnType::getTimestampValue;
+		default:
+			return (byte[] raw) -> toHexString(raw);
+		}
+	}
+}
@@ -192,6 +192,79 @@ public final class ColumnType {
 		BigInteger maxUnsigned = BigInteger.valueOf(2).pow(bytes.length * 8).subtract(BigInteger.ONE);
 		return value.and(maxUnsigned);
 	}
+
+	/**
+	 * @return true for TINYINT, SMALLINT, MEDIUMINT, INT and BIGINT, which are stored with the sign bit flipped.
+	 */
+	public static boolean isSignedInteger(String type) {
+		if (Objects.isNull(type)) {
+			return false;
+		}
+		switch (type) {
+		case TINYINT: case SMALLINT: case MEDIUMINT: case INT: case BIGINT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return true for the signed and unsigned integer types.
+	 */
+	public static boolean isInteger(String type) {
+		if (Objects.isNull(type)) {
+			return false;
+		}
+		switch (type) {
+		case UNSIGNED_TINYINT: case UNSIGNED_SMALLINT: case UNSIGNED_MEDIUMINT: case UNSIGNED_INT: case UNSIGNED_BIGINT:
+			return true;
+		default:
+			return isSignedInteger(type);
+		}
+	}
+
+	/**
+	 * signed TINYINT - INT value (1 - 4 bytes) at the offset, the primitive version of
+	 * {@link #getIntValue(byte[])}: big-endian with the sign bit flipped, no copy or boxing.
+	 */
+	public static int getIntValue(byte[] bytes, int offset, int length) {
+		if (length < 1 || length > 4) {
+			throw new IllegalArgumentException("int value length must be 1 - 4: " + length);
+		}
+		int value = 0;
+		for (int i = 0; i < length; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		int shift = 32 - 8 * length;
+		return ((value ^ (1 << (8 * length - 1))) << shift) >> shift;
+	}
+
+	/**
+	 * signed TINYINT - BIGINT value (1 - 8 bytes) at the offset, the primitive version of
+	 * {@link #getIntValue(byte[])}.
+	 */
+	public static long getLongValue(byte[] bytes, int offset, int length) {
+		long value = getULongValue(bytes, offset, length);
+		int shift = 64 - 8 * length;
+		return ((value ^ (1L << (8 * length - 1))) << shift) >> shift;
+	}
+
+	/**
+	 * unsigned value (1 - 8 bytes) at the offset, the primitive version of
+	 * {@link #getUIntValue(byte[])}. BIGINT UNSIGNED above Long.MAX_VALUE is
+	 * returned as negative long: an unsigned long view, see Long.toUnsignedString(),
+	 * Long.compareUnsigned() and Long.divideUnsigned().
+	 */
+	public static long getULongValue(byte[] bytes, int offset, int length) {
+		if (length < 1 || length > 8) {
+			throw new IllegalArgumentException("long value length must be 1 - 8: " + length);
+		}
+		long value = 0L;
+		for (int i = 0; i < length; i++) {
+			value = (value << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return value;
+	}
 	
 	public static BigDecimal getDecimalValue(byte[] bytes, int precision, int scale) {
 		int[] digitsBytes = getDigitsBytes(precision, scale);
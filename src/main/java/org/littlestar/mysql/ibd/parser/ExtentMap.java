@@ -0,0 +1,173 @@
+package org.littlestar.mysql.ibd.parser;
+
+import static org.littlestar.mysql.common.ParserHelper.getUInt32;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.littlestar.mysql.ibd.page.FilHeader;
+import org.littlestar.mysql.ibd.page.FspHdrPage;
+import org.littlestar.mysql.ibd.page.Page;
+
+/**
+ * The free extents and free pages of a tablespace, read from the XDES entries of
+ * the extent descriptor pages: the FSP_HDR page (page 0) and the XDES pages
+ * (page pageSize, 2 * pageSize, ...), each one describes the next pageSize pages.
+ *
+ * <pre>
+ * XDES entry (40 bytes of 64 pages extent):
+ *  0 -  8 XDES_ID
+ *  8 - 20 XDES_FLST_NODE
+ * 20 - 24 XDES_STATE
+ * 24 - 40 XDES_BITMAP, 2 bits per page, XDES_FREE_BIT = 0
+ * </pre>
+ *
+ * A page is free if the extent is XDES_FREE or not initialized, if its
+ * XDES_FREE_BIT is set, or if it is at or after FSP_FREE_LIMIT. A scan can skip
+ * the free pages without reading them, a freed page may still hold the stale
+ * records of an index.
+ *
+ * @see IbdFileParser#getExtentMap()
+ * @see FspHdrPage.XdesEntry
+ */
+public class ExtentMap {
+	private final int pageSize;
+	private final int extentSize;
+	private final long pageCount;
+	private final long freeLimit;
+	private final int[] extentStates;
+	private final BitSet freePages;
+
+	private ExtentMap(int pageSize, long pageCount, long freeLimit) {
+		this.pageSize = pageSize;
+		this.extentSize = getExtentSize(pageSize);
+		this.pageCount = pageCount;
+		this.freeLimit = freeLimit;
+		this.extentStates = new int[(int) ((pageCount + extentSize - 1) / extentSize)];
+		this.freePages = new BitSet((int) pageCount);
+	}
+
+	/**
+	 * read the extent descriptor pages of the tablespace.
+	 *
+	 * @throws IOException if page 0 is not a FIL_PAGE_TYPE_FSP_HDR page.
+	 */
+	public static ExtentMap read(IbdFileParser parser) throws IOException {
+		final int pageSize = parser.getPageSize();
+		final long pageCount = parser.getPageCount();
+		if (pageCount > Integer.MAX_VALUE) {
+			throw new IOException("too many pages for extent map: " + pageCount);
+		}
+		Page fspHdr = parser.getPage(0);
+		if (!(fspHdr instanceof FspHdrPage)) {
+			throw new IOException("page 0 is not a FIL_PAGE_TYPE_FSP_HDR page: " + fspHdr.getFilHeader().getPageTypeName());
+		}
+		long freeLimit = ((FspHdrPage) fspHdr).getFspHeader().getFreeLimitUInt32();
+		ExtentMap map = new ExtentMap(pageSize, pageCount, freeLimit);
+		final int extentSize = map.extentSize;
+		final int entryLength = 24 + (extentSize * 2 + 7) / 8;
+		for (long descriptorPage = 0; descriptorPage < pageCount && descriptorPage < freeLimit; descriptorPage += pageSize) {
+			Page page = descriptorPage == 0 ? fspHdr : parser.getPage(descriptorPage);
+			int pageType = page.getFilHeader().getPageType();
+			if (pageType != FilHeader.FIL_PAGE_TYPE_FSP_HDR && pageType != FilHeader.FIL_PAGE_TYPE_XDES) {
+				throw new IOException("page " + descriptorPage + " is not an extent descriptor page: "
+						+ page.getFilHeader().getPageTypeName());
+			}
+			byte[] pageRaw = page.getPageRaw();
+			for (int entry = 0; entry < pageSize / extentSize; entry++) {
+				long firstPage = descriptorPage + (long) entry * extentSize;
+				if (firstPage >= pageCount) {
+					break;
+				}
+				int offset = FspHdrPage.XDES_ENTRY_256_START + entry * entryLength;
+				int state = (int) getUInt32(pageRaw, offset + 20);
+				map.extentStates[(int) (firstPage / extentSize)] = state;
+				int pages = (int) Math.min(extentSize, pageCount - firstPage);
+				if (state == FspHdrPage.XDES_NOT_INITED || state == FspHdrPage.XDES_FREE) {
+					map.freePages.set((int) firstPage, (int) firstPage + pages);
+					continue;
+				}
+				for (int i = 0; i < pages; i++) {
+					int bit = i * 2; // XDES_BITS_PER_PAGE = 2, XDES_FREE_BIT = 0
+					if (((pageRaw[offset + 24 + (bit >> 3)] >> (bit & 7)) & 1) == 1) {
+						map.freePages.set((int) firstPage + i);
+					}
+				}
+			}
+		}
+		if (freeLimit < pageCount) {
+			map.freePages.set((int) freeLimit, (int) pageCount);
+		}
+		return map;
+	}
+
+	/**
+	 * FSP_EXTENT_SIZE: 1 MiB of pages up to 16 KiB pages, 64 pages of larger pages.
+	 */
+	public static int getExtentSize(int pageSize) {
+		return pageSize <= 16 * 1024 ? (1 << 20) / pageSize : 64;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return the pages of an extent.
+	 */
+	public int getExtentSize() {
+		return extentSize;
+	}
+
+	/**
+	 * @return the pages of file when the map is read.
+	 */
+	public long getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * @return FSP_FREE_LIMIT, the pages at or after it are free.
+	 */
+	public long getFreeLimit() {
+		return freeLimit;
+	}
+
+	/**
+	 * @param extent the extent number, pageNumber / extentSize.
+	 * @return XDES_STATE of the extent, see {@link FspHdrPage#XDES_FREE}.
+	 */
+	public int getExtentState(long extent) {
+		return extentStates[(int) extent];
+	}
+
+	/**
+	 * @return true if no page of the extent is in use.
+	 */
+	public boolean isExtentFree(long extent) {
+		long firstPage = extent * extentSize;
+		int next = freePages.nextClearBit((int) firstPage);
+		return next >= Math.min(firstPage + extentSize, pageCount);
+	}
+
+	/**
+	 * @return true if the page is free, false if in use or after the pages of map.
+	 */
+	public boolean isPageFree(long pageNumber) {
+		return pageNumber >= 0 && pageNumber < pageCount && freePages.get((int) pageNumber);
+	}
+
+	/**
+	 * @return the first page in use at or after the page number, getPageCount() if none.
+	 */
+	public long nextUsedPage(long pageNumber) {
+		if (pageNumber >= pageCount) {
+			return pageNumber;
+		}
+		return Math.min(freePages.nextClearBit((int) Math.max(0, pageNumber)), pageCount);
+	}
+
+	public long getFreePageCount() {
+		return freePages.cardinality();
+	}
+}
@@ -1,17 +1,24 @@
 package org.littlestar.mysql.ibd.parser;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel.MapMode;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.littlestar.mysql.common.AdaptiveMappedByteBuffer;
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage;
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage.ClusteredKeyLeafRecord;
 import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.PageView;
 import org.littlestar.mysql.ibd.page.SdiPage;
 import org.littlestar.mysql.ibd.page.FilHeader;
 import org.littlestar.mysql.ibd.page.FspHdrPage;
@@ -27,16 +34,37 @@ public class IbdFileParser implements AutoCloseable {
 	/** the PAGE_TYPE end position in page, exclusive. */
 	public static final int PAGE_TYPE_END_POS_IN_PAGE   = 26;
 	
-	private final int maxMapSize = 1073741824; // 1024*1024*1024; //1 GiB
+	/** default page range size of the parallel page classification, 64 MiB of 16 KiB pages. */
+	public static final long DEFAULT_PAGES_PER_TASK = 4096;
+	/** default pages of one read of {@link #readPagesAsync(Executor, long...)}, an extent of 16 KiB pages. */
+	public static final int DEFAULT_ASYNC_BATCH_PAGES = 64;
 	
-	private final RandomAccessFile ibdRaf;
-	private final AdaptiveMappedByteBuffer mappedByteBuffer;
+	private final PageSource pageSource;
 	private final int pageSize;
+	private volatile PageCache pageCache;
+	private volatile int scanAdviceWindow = 0;
 	
 	public IbdFileParser(String ibdFileName, int pageSize) throws IOException {
+		this(ibdFileName, pageSize, PageSource.Backend.MMAP);
+	}
+	
+	/**
+	 * @param ibdFileName the tablespace file.
+	 * @param pageSize the page size.
+	 * @param backend how the file is read, see {@link PageSource}.
+	 * @throws IOException
+	 */
+	public IbdFileParser(String ibdFileName, int pageSize, PageSource.Backend backend) throws IOException {
+		this(PageSource.open(ibdFileName, backend), pageSize);
+	}
+	
+	/**
+	 * @param pageSource the bytes of tablespace, closed by {@link #close()}.
+	 * @param pageSize the page size.
+	 */
+	public IbdFileParser(PageSource pageSource, int pageSize) {
+		this.pageSource = Objects.requireNonNull(pageSource);
 		this.pageSize = pageSize;
-		ibdRaf = new RandomAccessFile(ibdFileName, "r");
-		mappedByteBuffer = new AdaptiveMappedByteBuffer(ibdRaf, MapMode.READ_ONLY, maxMapSize);
 	}
 	
 	public IbdFileParser(String ibdFileName) throws IOException {
@@ -45,32 +73,126 @@ public class IbdFileParser implements AutoCloseable {
 	
 	/**
 	 * get the PageType, PageType's Page Index map of file: Map(PageType,
-	 * List[PageIndex]), thread not safe.
+	 * List[PageIndex]), thread safe.
 	 * 
+	 * @see #getPageInventory()
 	 */
 	public Map<Integer, List<Long>> getPageTypeMap() throws IOException {
-		final Map<Integer, List<Long>> pageTypeMap = new HashMap<Integer, List<Long>>();
-		final long fileSize = getFileLength();
-		long pageIndex = 0;
-		long pos = 0L;
-		while (true) {
-			pos = getPageStartPos(pageIndex);
-			if (pos >= fileSize) {
-				break;
-			}
-			byte[] pageTypeRaw = new byte[PAGE_TYPE_END_POS_IN_PAGE - PAGE_TYPE_START_POS_IN_PAGE];
-			mappedByteBuffer.position(pos + PAGE_TYPE_START_POS_IN_PAGE);
-			mappedByteBuffer.get(pageTypeRaw);
-			int pageType = getUInt16(pageTypeRaw);
-			List<Long> pages = pageTypeMap.get(pageType);
-			if (Objects.isNull(pages)) {
-				pages = new ArrayList<Long>();
-				pageTypeMap.put(pageType, pages);
+		return getPageInventory().toMap();
+	}
+	
+	/**
+	 * parallel version of {@link #getPageTypeMap()}.
+	 * 
+	 * @see #getPageInventory(ForkJoinPool)
+	 */
+	public Map<Integer, List<Long>> getPageTypeMap(ForkJoinPool pool) throws IOException {
+		return getPageInventory(pool).toMap();
+	}
+	
+	/**
+	 * @see #getPageInventory(ForkJoinPool, long)
+	 */
+	public Map<Integer, List<Long>> getPageTypeMap(ForkJoinPool pool, long pagesPerTask) throws IOException {
+		return getPageInventory(pool, pagesPerTask).toMap();
+	}
+	
+	/**
+	 * get the compact page inventory (page numbers of each FIL_PAGE_TYPE) of file, thread safe.
+	 * 
+	 * @return the page inventory.
+	 * @throws IOException
+	 */
+	public PageInventory getPageInventory() throws IOException {
+		return classifyPages(0L, getPageIndexLimit());
+	}
+	
+	/**
+	 * parallel version of {@link #getPageInventory()}, the file is split into page
+	 * ranges which are classified concurrently on the pool, the result is the same
+	 * as the serial one.
+	 * 
+	 * @param pool the fork-join pool, e.g. ForkJoinPool.commonPool().
+	 * @return the page inventory.
+	 * @throws IOException
+	 */
+	public PageInventory getPageInventory(ForkJoinPool pool) throws IOException {
+		return getPageInventory(pool, DEFAULT_PAGES_PER_TASK);
+	}
+	
+	/**
+	 * @see #getPageInventory(ForkJoinPool)
+	 * @param pool the fork-join pool.
+	 * @param pagesPerTask page ranges are split until they are not larger than this.
+	 */
+	public PageInventory getPageInventory(ForkJoinPool pool, long pagesPerTask) throws IOException {
+		if (pagesPerTask < 1) {
+			throw new IllegalArgumentException("pagesPerTask must be positive: " + pagesPerTask);
+		}
+		try {
+			return pool.invoke(new ClassifyPagesTask(0L, getPageIndexLimit(), pagesPerTask));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * the page index after the last (maybe partial) page of file.
+	 */
+	private long getPageIndexLimit() throws IOException {
+		return (getFileLength() + pageSize - 1) / pageSize;
+	}
+	
+	/**
+	 * classify the pages in [fromPage, toPage) by FIL_PAGE_TYPE.
+	 */
+	private PageInventory classifyPages(long fromPage, long toPage) throws IOException {
+		final PageInventory inventory = new PageInventory();
+		final byte[] pageTypeRaw = new byte[PAGE_TYPE_END_POS_IN_PAGE - PAGE_TYPE_START_POS_IN_PAGE];
+		for (long pageIndex = fromPage; pageIndex < toPage; pageIndex++) {
+			long pos = getPageStartPos(pageIndex);
+			pageSource.read(pos + PAGE_TYPE_START_POS_IN_PAGE, pageTypeRaw);
+			inventory.add(getUInt16(pageTypeRaw), pageIndex);
+		}
+		return inventory;
+	}
+	
+	/**
+	 * fork-join task of {@link #getPageInventory(ForkJoinPool)}, halves the page range
+	 * until it is small enough, then appends the right result to the left one.
+	 */
+	private class ClassifyPagesTask extends RecursiveTask<PageInventory> {
+		private static final long serialVersionUID = 1L;
+		private final long fromPage;
+		private final long toPage;
+		private final long threshold;
+
+		ClassifyPagesTask(long fromPage, long toPage, long threshold) {
+			this.fromPage = fromPage;
+			this.toPage = toPage;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected PageInventory compute() {
+			if (toPage - fromPage <= threshold) {
+				try {
+					return classifyPages(fromPage, toPage);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
 			}
-			pages.add(pageIndex);
-			pageIndex++;
+			long middle = (fromPage + toPage) >>> 1;
+			ClassifyPagesTask left = new ClassifyPagesTask(fromPage, middle, threshold);
+			ClassifyPagesTask right = new ClassifyPagesTask(middle, toPage, threshold);
+			left.fork();
+			PageInventory rightInventory = right.compute();
+			return left.join().addAll(rightInventory);
 		}
-		return pageTypeMap;
+	}
+	
+	public int getPageSize() {
+		return pageSize;
 	}
 	
 	public long getPageCount() throws IOException {
@@ -78,7 +200,11 @@ public class IbdFileParser implements AutoCloseable {
 	}
 	
 	public long getFileLength() throws IOException {
-		return ibdRaf.length();
+		return pageSource.length();
+	}
+	
+	public PageSource getPageSource() {
+		return pageSource;
 	}
 	
 	/**
@@ -96,18 +222,364 @@ public class IbdFileParser implements AutoCloseable {
 	}
 
 	/**
-	 * thread not safe.
+	 * thread safe, pages are read by absolute position, so one parser can serve
+	 * many threads concurrently.
 	 * 
 	 * @param pageIndex
 	 * @return
 	 * @throws IOException
 	 */
 	public Page getPage(long pageIndex) throws IOException {
+		final PageCache cache = pageCache;
+		if (Objects.nonNull(cache)) {
+			Page page = cache.get(pageIndex);
+			if (Objects.nonNull(page)) {
+				return page;
+			}
+		}
 		long pageStartPos = getPageStartPos(pageIndex);
-		mappedByteBuffer.position(pageStartPos);
 		byte[] pageRaw = new byte[pageSize];
-		mappedByteBuffer.get(pageRaw);
-		
+		pageSource.read(pageStartPos, pageRaw);
+		Page page = newPage(pageRaw, pageSize);
+		if (Objects.nonNull(cache)) {
+			cache.put(pageIndex, page);
+		}
+		return page;
+	}
+	
+	/**
+	 * asynchronous {@link #getPage(long)}, see {@link #readPagesAsync(Executor, long[], int)}.
+	 */
+	public CompletableFuture<Page> readPageAsync(long pageIndex, Executor executor) {
+		return readPagesAsync(executor, pageIndex).get(0);
+	}
+	
+	/**
+	 * @see #readPagesAsync(Executor, long[], int)
+	 */
+	public List<CompletableFuture<Page>> readPagesAsync(Executor executor, long... pageIndexes) {
+		return readPagesAsync(executor, pageIndexes, DEFAULT_ASYNC_BATCH_PAGES);
+	}
+	
+	/**
+	 * read the pages asynchronously and return at once, so a B+tree traversal fanning
+	 * out to many children, or a scan of scattered pages, keeps many reads in flight
+	 * instead of blocking in {@link #getPage(long)} one page at a time.
+	 * 
+	 * <p>The pages in the page cache complete at once. The adjacent page numbers (in
+	 * any order) of the others are read together, one
+	 * {@link PageSource#readAsync(long, byte[][], Executor)} per run, a run never
+	 * crosses a multiple of batchPages; the pages read are put into the page cache.
+	 * The future of each page completes when its run is read.
+	 * 
+	 * <p>{@link PageSource.Backend#POSITIONAL} and {@link PageSource.Backend#DIRECT}
+	 * issue all runs to an AsynchronousFileChannel, the executor is not used and the
+	 * futures complete on the thread pool of the channel. The mapped backends copy
+	 * the runs on the executor, as many runs are in flight as the executor runs tasks.
+	 * 
+	 * <pre>
+	 * List&lt;CompletableFuture&lt;Page&gt;&gt; children = parser.readPagesAsync(executor, childPageNumbers);
+	 * CompletableFuture.allOf(children.toArray(new CompletableFuture[0])).join();
+	 * </pre>
+	 * 
+	 * @param executor the executor of the reads of a mapped page source.
+	 * @param pageIndexes the page numbers, may repeat.
+	 * @param batchPages the maximum pages of one read.
+	 * @return the futures of the pages in the order of pageIndexes, completed
+	 *         exceptionally with IOException if the read fails or the page is out of file.
+	 */
+	public List<CompletableFuture<Page>> readPagesAsync(Executor executor, long[] pageIndexes, int batchPages) {
+		Objects.requireNonNull(executor);
+		if (batchPages <= 0) {
+			throw new IllegalArgumentException("batch pages must be positive: " + batchPages);
+		}
+		final long[] pages = pageIndexes.clone();
+		final PageCache cache = pageCache;
+		final List<CompletableFuture<Page>> futures = new ArrayList<CompletableFuture<Page>>(pages.length);
+		final List<Integer> misses = new ArrayList<Integer>();
+		for (int i = 0; i < pages.length; i++) {
+			Page page = Objects.nonNull(cache) ? cache.get(pages[i]) : null;
+			if (Objects.nonNull(page)) {
+				futures.add(CompletableFuture.completedFuture(page));
+			} else {
+				futures.add(new CompletableFuture<Page>());
+				misses.add(i);
+			}
+		}
+		// sort the misses by page number, then cut the runs.
+		misses.sort(Comparator.comparingLong(i -> pages[i]));
+		int runStart = 0;
+		for (int i = 1; i <= misses.size(); i++) {
+			if (i < misses.size()) {
+				long previous = pages[misses.get(i - 1)];
+				long current = pages[misses.get(i)];
+				boolean adjacent = current == previous || current == previous + 1;
+				if (adjacent && current / batchPages == pages[misses.get(runStart)] / batchPages) {
+					continue;
+				}
+			}
+			readRun(pages, misses.subList(runStart, i), futures, cache, executor);
+			runStart = i;
+		}
+		return futures;
+	}
+	
+	/**
+	 * one asynchronous read of the pages from the first to the last page number of the run.
+	 * 
+	 * @param run the indexes of pages, sorted by page number.
+	 */
+	private void readRun(long[] pages, List<Integer> run, List<CompletableFuture<Page>> futures, PageCache cache,
+			Executor executor) {
+		final long firstPage = pages[run.get(0)];
+		final byte[][] pagesRaw = new byte[(int) (pages[run.get(run.size() - 1)] - firstPage + 1)][pageSize];
+		CompletableFuture<Void> read;
+		try {
+			read = pageSource.readAsync(getPageStartPos(firstPage), pagesRaw, executor);
+		} catch (RuntimeException e) {
+			read = new CompletableFuture<Void>();
+			read.completeExceptionally(e);
+		}
+		read.whenComplete((done, e) -> {
+			if (Objects.nonNull(e)) {
+				for (int index : run) {
+					futures.get(index).completeExceptionally(e);
+				}
+			} else {
+				completeRun(pages, run, futures, cache, firstPage, pagesRaw);
+			}
+		});
+	}
+	
+	private void completeRun(long[] pages, List<Integer> run, List<CompletableFuture<Page>> futures, PageCache cache,
+			long firstPage, byte[][] pagesRaw) {
+		final Page[] runPages = new Page[pagesRaw.length];
+		for (int index : run) {
+			int offset = (int) (pages[index] - firstPage);
+			try {
+				if (Objects.isNull(runPages[offset])) {
+					runPages[offset] = newPage(pagesRaw[offset], pageSize);
+					if (Objects.nonNull(cache)) {
+						cache.put(pages[index], runPages[offset]);
+					}
+				}
+				futures.get(index).complete(runPages[offset]);
+			} catch (RuntimeException e) {
+				futures.get(index).completeExceptionally(e);
+			}
+		}
+	}
+	
+	/**
+	 * set the page cache in front of {@link #getPage(long)}, null to disable caching (default).
+	 * 
+	 * <p>cached pages are shared by all callers, do not modify the bytes of a page returned by getPage().
+	 * 
+	 * @param pageCache the page cache, e.g. PageCache.newLruCache(64 * 1024 * 1024, parser.getPageSize()).
+	 */
+	public void setPageCache(PageCache pageCache) {
+		this.pageCache = pageCache;
+	}
+	
+	public PageCache getPageCache() {
+		return pageCache;
+	}
+	
+	/**
+	 * give the page source access hints in the page scans of {@link #pages()} and
+	 * {@link #rows(TableMeta)}: read-ahead of the next window of pages and drop the
+	 * pages behind the scan from the page cache, see {@link PageSpliterator}. Only
+	 * Linux with JDK 22+ passes the hints to the kernel, see {@link PageSource#advise(long, long, PageSource.Advice)}.
+	 * 
+	 * <p>the dropped pages are dropped for all processes, mysqld reading the same file
+	 * through the page cache reads them again.
+	 * 
+	 * @param windowPages the pages of advice window, e.g. {@link PageSpliterator#DEFAULT_ADVICE_WINDOW}; 0 for no hints (default).
+	 */
+	public void setScanAdviceWindow(int windowPages) {
+		if (windowPages < 0) {
+			throw new IllegalArgumentException("advice window must not be negative: " + windowPages);
+		}
+		this.scanAdviceWindow = windowPages;
+	}
+	
+	public int getScanAdviceWindow() {
+		return scanAdviceWindow;
+	}
+	
+	/**
+	 * zero-copy view of the page, header fields are read in place from the mapped
+	 * file (a copy of the page if the page source does not hand out views of the
+	 * file, see {@link PageSource#view(long, int)}), thread safe.
+	 * 
+	 * @param pageIndex
+	 * @return read-only view of the page.
+	 * @throws IOException
+	 */
+	public PageView getPageView(long pageIndex) throws IOException {
+		long pageStartPos = getPageStartPos(pageIndex);
+		return pageSource.view(pageStartPos, pageSize);
+	}
+	
+	/**
+	 * find the root page of the index: the FIL_PAGE_INDEX page of the index without
+	 * siblings (FIL_PAGE_PREV and FIL_PAGE_NEXT are FIL_NULL). Root pages are
+	 * allocated when the index is created, so the search usually stops at the first
+	 * few pages of file.
+	 *
+	 * @param indexId the index id, or 0 for the first index of file (the clustered index).
+	 * @return the root page number, -1 if not found.
+	 * @throws IOException
+	 */
+	public long getIndexRootPage(long indexId) throws IOException {
+		long pageIndexLimit = getPageIndexLimit();
+		for (long pageIndex = 0; pageIndex < pageIndexLimit; pageIndex++) {
+			if (getPageEndPos(pageIndex) > getFileLength()) {
+				break;
+			}
+			PageView view = getPageView(pageIndex);
+			if (view.isIndexPage() && view.getPreviousPage() == PageView.FIL_NULL && view.getNextPage() == PageView.FIL_NULL
+					&& (indexId == 0 || view.getIndexId() == indexId)) {
+				return pageIndex;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * get the clustered index of table, the root page is found by the cluster key's
+	 * index id (the first index of file if not set).
+	 *
+	 * @param tableMeta the table meta data.
+	 * @return the clustered index.
+	 * @throws IOException if the root page not found.
+	 */
+	public ClusteredIndex getClusteredIndex(TableMeta tableMeta) throws IOException {
+		long indexId = tableMeta.getClusterKey().getIndexId();
+		long rootPage = getIndexRootPage(indexId);
+		if (rootPage < 0) {
+			throw new IOException("root page of clustered index not found: indexId = " + indexId);
+		}
+		return new ClusteredIndex(this, tableMeta, rootPage);
+	}
+
+	/**
+	 * @param tableMeta the table meta data.
+	 * @param rootPage the root page number of the clustered index, e.g. 4 for MySQL 8.0 file-per-table tablespace.
+	 */
+	public ClusteredIndex getClusteredIndex(TableMeta tableMeta, long rootPage) {
+		return new ClusteredIndex(this, tableMeta, rootPage);
+	}
+
+	/**
+	 * stream of all pages of file, in page number order; parallel() splits the page
+	 * range in halves, see {@link PageSpliterator}.
+	 * 
+	 * @return the pages, IOException is rethrown as UncheckedIOException.
+	 * @throws IOException
+	 */
+	public Stream<Page> pages() throws IOException {
+		return pages(0L, getPageCount());
+	}
+	
+	/**
+	 * stream of the pages in [fromPage, toPage).
+	 * 
+	 * @see #pages()
+	 */
+	public Stream<Page> pages(long fromPage, long toPage) {
+		return StreamSupport.stream(new PageSpliterator(this, fromPage, toPage, null, scanAdviceWindow), false);
+	}
+	
+	/**
+	 * stream of the pages in use, the free extents and free pages of the
+	 * {@link #getExtentMap() extent map} are skipped without being read.
+	 * 
+	 * @see #pages()
+	 */
+	public Stream<Page> usedPages() throws IOException {
+		return StreamSupport.stream(
+				new PageSpliterator(this, 0L, getPageCount(), null, scanAdviceWindow, getExtentMap()), false);
+	}
+	
+	/**
+	 * read the free extents and free pages of the tablespace from the XDES entries
+	 * of FSP_HDR and XDES pages.
+	 * 
+	 * @throws IOException if page 0 is not a FIL_PAGE_TYPE_FSP_HDR page.
+	 */
+	public ExtentMap getExtentMap() throws IOException {
+		return ExtentMap.read(this);
+	}
+	
+	/**
+	 * stream of the rows of the clustered index, read from the leaf pages of the
+	 * index in page number (physical) order, NOT in primary key order, so the
+	 * stream can be split by page range:
+	 * 
+	 * <pre>
+	 * long count = parser.rows(tableMeta).parallel().filter(row -&gt; ...).count();
+	 * </pre>
+	 * 
+	 * the leaf pages are picked by index id and level on the page view, the
+	 * other pages are not read, nor the free pages of the {@link #getExtentMap()
+	 * extent map} (a freed page may still hold stale records of the index). See {@link ClusteredIndex#iterator()} for rows in
+	 * primary key order.
+	 * 
+	 * @param tableMeta the table meta data.
+	 * @return the rows.
+	 * @throws IOException
+	 */
+	public Stream<ClusteredKeyLeafRecord> rows(TableMeta tableMeta) throws IOException {
+		return rows(tableMeta, null, null);
+	}
+	
+	/**
+	 * @see #rows(TableMeta)
+	 * @param projection the requested columns of {@link TableMeta#getClusteredLeafLayout()}, all columns if null.
+	 * @param filter the filter of rows, all rows if null.
+	 */
+	public Stream<ClusteredKeyLeafRecord> rows(TableMeta tableMeta, Projection projection, RecordFilter filter)
+			throws IOException {
+		long indexId = tableMeta.getClusterKey().getIndexId();
+		if (indexId == 0) {
+			long rootPage = getIndexRootPage(0);
+			if (rootPage < 0) {
+				throw new IOException("root page of clustered index not found.");
+			}
+			indexId = getPageView(rootPage).getIndexId();
+		}
+		final long leafIndexId = indexId;
+		ExtentMap extentMap = null;
+		if (getPageView(0).getPageType() == FilHeader.FIL_PAGE_TYPE_FSP_HDR) {
+			extentMap = getExtentMap();
+		}
+		PageSpliterator leafPages = new PageSpliterator(this, 0L, getPageCount(),
+				view -> view.isIndexPage() && view.getPageLevel() == 0 && view.getIndexId() == leafIndexId,
+				scanAdviceWindow, extentMap);
+		return StreamSupport.stream(leafPages, false).flatMap(page -> {
+			ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			List<ClusteredKeyLeafRecord> records;
+			if (Objects.nonNull(filter)) {
+				records = Objects.nonNull(projection) ? leafPage.getUserRecords(projection, filter)
+						: leafPage.getUserRecords(tableMeta, filter);
+			} else if (Objects.nonNull(projection)) {
+				records = leafPage.getUserRecords(projection);
+			} else {
+				records = leafPage.getUserRecords(tableMeta);
+			}
+			return records.stream();
+		});
+	}
+	
+	/**
+	 * create the Page instance by the FIL_PAGE_TYPE of page.
+	 * 
+	 * @param pageRaw the bytes of page.
+	 * @param pageSize the page size.
+	 * @return FspHdrPage, IndexPage, SdiPage or Page.
+	 */
+	public static Page newPage(byte[] pageRaw, int pageSize) {
 		byte[] pageTypeRaw = Arrays.copyOfRange(pageRaw, PAGE_TYPE_START_POS_IN_PAGE, PAGE_TYPE_END_POS_IN_PAGE);
 		int pageType = getUInt16(pageTypeRaw);
 		switch (pageType) {
@@ -124,8 +596,6 @@ public class IbdFileParser implements AutoCloseable {
 	
 	@Override
 	public void close() throws Exception {
-		if (Objects.nonNull(ibdRaf)) {
-			ibdRaf.close();
-		}
+		pageSource.close();
 	}
 }
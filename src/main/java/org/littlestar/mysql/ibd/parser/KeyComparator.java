@@ -0,0 +1,106 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import org.littlestar.mysql.ibd.page.IndexPage.RecordField;
+
+/**
+ * Compare the key fields of a record with a search key, field by field in key order.
+ *
+ * <p>The search key values are plain java values: any Number for integer, float
+ * and decimal columns, String for CHAR/VARCHAR/TEXT, LocalDateTime for
+ * DATETIME/TIMESTAMP, etc. Strings are compared by the string comparator, which
+ * should follow the collation of the key column; the default is the binary
+ * (code point) order, right for *_bin collations and for ASCII keys which have no
+ * case or accent variants.
+ */
+public class KeyComparator {
+	/** binary order of strings. */
+	public static final KeyComparator DEFAULT = new KeyComparator(Comparator.naturalOrder());
+
+	private final Comparator<String> stringComparator;
+
+	public KeyComparator(Comparator<String> stringComparator) {
+		this.stringComparator = Objects.requireNonNull(stringComparator);
+	}
+
+	public Comparator<String> getStringComparator() {
+		return stringComparator;
+	}
+
+	/**
+	 * compare the first min(fields.size(), key.length) fields, so a shorter search key
+	 * compares as a key prefix.
+	 *
+	 * @param fields the key fields of record, in key order.
+	 * @param key the search key, in key order.
+	 * @return negative, zero or positive if record key is less than, equal to or greater than the search key.
+	 */
+	public int compare(List<RecordField> fields, Object[] key) {
+		int n = Math.min(fields.size(), key.length);
+		for (int i = 0; i < n; i++) {
+			RecordField field = fields.get(i);
+			int cmp;
+			if (!field.isNull() && isIntegral(key[i]) && ColumnType.isInteger(field.getType())) {
+				// integer key columns are compared as primitives, without BigInteger.
+				cmp = compareInteger(field, ((Number) key[i]).longValue());
+			} else {
+				cmp = compareValue(field.isNull() ? null : field.getContent(), key[i]);
+			}
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * compare a decoded field content with a search value, null is the smallest.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int compareValue(Object content, Object value) {
+		if (Objects.isNull(content) || Objects.isNull(value)) {
+			return Objects.isNull(content) ? (Objects.isNull(value) ? 0 : -1) : 1;
+		}
+		if (content instanceof Number && value instanceof Number) {
+			return toBigDecimal((Number) content).compareTo(toBigDecimal((Number) value));
+		}
+		if (content instanceof String) {
+			return stringComparator.compare((String) content, value.toString());
+		}
+		if (content instanceof Comparable && content.getClass().isInstance(value)) {
+			return ((Comparable) content).compareTo(value);
+		}
+		throw new IllegalArgumentException(
+				"can not compare " + content.getClass().getSimpleName() + " with " + value.getClass().getSimpleName());
+	}
+
+	private static boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	private static int compareInteger(RecordField field, long value) {
+		long content = field.getLong();
+		if (ColumnType.isSignedInteger(field.getType())) {
+			return Long.compare(content, value);
+		}
+		// unsigned content is never less than a negative value.
+		return value < 0 ? 1 : Long.compareUnsigned(content, value);
+	}
+
+	private static BigDecimal toBigDecimal(Number number) {
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		} else if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		} else if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+			return BigDecimal.valueOf(number.longValue());
+		} else {
+			return new BigDecimal(number.doubleValue());
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.littlestar.mysql.ibd.page.Page;
+
+/**
+ * Bounded in-process cache of parsed pages, keyed by page number.
+ *
+ * <p>The capacity is derived from a memory budget in bytes: memoryBudget / pageSize
+ * pages (at least 1). The eviction policy is pluggable, subclasses implement
+ * {@link #lookup(long)}, {@link #store(long, Page)} and {@link #clear()};
+ * {@link Lru} and {@link Clock} are provided. All implementations are thread safe.
+ *
+ * @see IbdFileParser#setPageCache(PageCache)
+ */
+public abstract class PageCache {
+	private final long memoryBudget;
+	private final int pageSize;
+	private final int capacity;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	protected PageCache(long memoryBudget, int pageSize) {
+		if (memoryBudget <= 0 || pageSize <= 0) {
+			throw new IllegalArgumentException(
+					"memory budget and page size must be positive: memoryBudget=" + memoryBudget + ", pageSize=" + pageSize);
+		}
+		this.memoryBudget = memoryBudget;
+		this.pageSize = pageSize;
+		this.capacity = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, memoryBudget / pageSize));
+	}
+
+	/**
+	 * LRU cache with a memory budget in bytes.
+	 */
+	public static PageCache newLruCache(long memoryBudget, int pageSize) {
+		return new Lru(memoryBudget, pageSize);
+	}
+
+	/**
+	 * CLOCK (second chance) cache with a memory budget in bytes.
+	 */
+	public static PageCache newClockCache(long memoryBudget, int pageSize) {
+		return new Clock(memoryBudget, pageSize);
+	}
+
+	/**
+	 * get the cached page, and count the hit or miss.
+	 *
+	 * @param pageNumber the page number.
+	 * @return the cached page or null if not cached.
+	 */
+	public Page get(long pageNumber) {
+		Page page = lookup(pageNumber);
+		if (Objects.isNull(page)) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return page;
+	}
+
+	public void put(long pageNumber, Page page) {
+		if (Objects.nonNull(page)) {
+			store(pageNumber, page);
+		}
+	}
+
+	protected abstract Page lookup(long pageNumber);
+
+	protected abstract void store(long pageNumber, Page page);
+
+	public abstract int size();
+
+	public abstract void clear();
+
+	/**
+	 * subclasses call it when a page is evicted to make room.
+	 */
+	protected void onEviction() {
+		evictionCount.incrementAndGet();
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * the maximum number of cached pages.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public void resetCounters() {
+		hitCount.set(0L);
+		missCount.set(0L);
+		evictionCount.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[size=" + size() + ", capacity=" + capacity + ", hits=" + getHitCount()
+				+ ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+	/**
+	 * Least recently used eviction, based on an access ordered LinkedHashMap.
+	 */
+	public static class Lru extends PageCache {
+		private final LinkedHashMap<Long, Page> pages;
+
+		public Lru(long memoryBudget, int pageSize) {
+			super(memoryBudget, pageSize);
+			pages = new LinkedHashMap<Long, Page>(16, 0.75F, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+					if (size() > getCapacity()) {
+						onEviction();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		@Override
+		protected synchronized Page lookup(long pageNumber) {
+			return pages.get(pageNumber);
+		}
+
+		@Override
+		protected synchronized void store(long pageNumber, Page page) {
+			pages.put(pageNumber, page);
+		}
+
+		@Override
+		public synchronized int size() {
+			return pages.size();
+		}
+
+		@Override
+		public synchronized void clear() {
+			pages.clear();
+		}
+	}
+
+	/**
+	 * CLOCK (second chance) eviction: a hit only sets the reference bit of the
+	 * slot, so lookups do not reorder anything; the hand clears reference bits
+	 * until it finds a victim.
+	 */
+	public static class Clock extends PageCache {
+		private final long[] pageNumbers;
+		private final Page[] slots;
+		private final boolean[] referenced;
+		private final HashMap<Long, Integer> slotIndex;
+		private int hand = 0;
+		private int used = 0;
+
+		public Clock(long memoryBudget, int pageSize) {
+			super(memoryBudget, pageSize);
+			int capacity = getCapacity();
+			pageNumbers = new long[capacity];
+			slots = new Page[capacity];
+			referenced = new boolean[capacity];
+			slotIndex = new HashMap<Long, Integer>(capacity * 2);
+		}
+
+		@Override
+		protected synchronized Page lookup(long pageNumber) {
+			Integer slot = slotIndex.get(pageNumber);
+			if (Objects.isNull(slot)) {
+				return null;
+			}
+			referenced[slot] = true;
+			return slots[slot];
+		}
+
+		@Override
+		protected synchronized void store(long pageNumber, Page page) {
+			Integer slot = slotIndex.get(pageNumber);
+			if (Objects.nonNull(slot)) {
+				slots[slot] = page;
+				referenced[slot] = true;
+				return;
+			}
+			int victim;
+			if (used < slots.length) {
+				victim = used++;
+			} else {
+				while (referenced[hand]) {
+					referenced[hand] = false;
+					hand = (hand + 1) % slots.length;
+				}
+				victim = hand;
+				hand = (hand + 1) % slots.length;
+				slotIndex.remove(pageNumbers[victim]);
+				onEviction();
+			}
+			pageNumbers[victim] = pageNumber;
+			slots[victim] = page;
+			referenced[victim] = false;
+			slotIndex.put(pageNumber, victim);
+		}
+
+		@Override
+		public synchronized int size() {
+			return slotIndex.size();
+		}
+
+		@Override
+		public synchronized void clear() {
+			slotIndex.clear();
+			for (int i = 0; i < slots.length; i++) {
+				slots[i] = null;
+				referenced[i] = false;
+			}
+			hand = 0;
+			used = 0;
+		}
+	}
+}
@@ -5,8 +5,8 @@ import static org.littlestar.mysql.common.ParserHelper.*;
 import java.io.IOException;
 import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
 
 import org.littlestar.mysql.ibd.page.IndexPage.FsegHeader;
 import org.littlestar.mysql.ibd.page.IndexPage.IndexHeader;
@@ -30,13 +30,14 @@ public class PageHelper {
 	
 	public static String dumpPages(IbdFileParser ibdFileParser) throws IOException {
 		StringBuilder buff = new StringBuilder();
-		Map<Integer, List<Long>> pageTypeMap = ibdFileParser.getPageTypeMap();
-		for (Integer pageType : pageTypeMap.keySet()) {
-			List<Long> pageIndexes = pageTypeMap.get(pageType);
+		PageInventory inventory = ibdFileParser.getPageInventory();
+		for (int pageType : inventory.getPageTypes()) {
+			PrimitiveIterator.OfLong pageIndexes = inventory.getPages(pageType).iterator();
 			buff.append(FilHeader.getPageType(pageType)).append(":");
 			//// 格式化输出页索引, 更好的显示效果。
 			int count = 0, rowlen = 10;
-			for (long index : pageIndexes) {
+			while (pageIndexes.hasNext()) {
+				long index = pageIndexes.nextLong();
 				count++;
 				buff.append(String.format("%-6d", index));
 				if (count % rowlen == 0)
@@ -49,9 +50,9 @@ public class PageHelper {
 	
 	public static String dumpIndexPages(IbdFileParser parser) throws IOException {
 		StringBuilder buff = new StringBuilder();
-		Map<Integer, List<Long>> pageMap = parser.getPageTypeMap();
-		List<Long> pageIndexes = pageMap.get(FilHeader.FIL_PAGE_INDEX);
-		for (long index : pageIndexes) {
+		PrimitiveIterator.OfLong pageIndexes = parser.getPageInventory().getPages(FilHeader.FIL_PAGE_INDEX).iterator();
+		while (pageIndexes.hasNext()) {
+			long index = pageIndexes.nextLong();
 			Page page = parser.getPage(index);
 			if(page instanceof IndexPage) {
 				IndexPage indexPage = (IndexPage) page;
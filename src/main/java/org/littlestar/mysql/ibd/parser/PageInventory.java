@@ -0,0 +1,251 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compact page inventory of a tablespace: the page numbers of each FIL_PAGE_TYPE,
+ * stored as run-length encoded ranges of primitive longs.
+ *
+ * <p>Pages of the same type are mostly allocated extent by extent, so runs of
+ * consecutive page numbers are common and a range costs 16 bytes whatever its
+ * length, instead of a boxed Long (plus list slot) per page.
+ *
+ * <pre>
+ * PageInventory inventory = parser.getPageInventory();
+ * inventory.getPages(FilHeader.FIL_PAGE_INDEX).forEach(pageNumber -> ...);
+ * </pre>
+ *
+ * @see IbdFileParser#getPageInventory()
+ */
+public class PageInventory {
+	private static final PageSet EMPTY = new PageSet();
+	private final HashMap<Integer, PageSet> pageSets = new HashMap<Integer, PageSet>();
+
+	/**
+	 * add page to the inventory, page numbers of the same type must be added in ascending order.
+	 *
+	 * @param pageType   FIL_PAGE_TYPE of the page.
+	 * @param pageNumber the page number.
+	 */
+	public void add(int pageType, long pageNumber) {
+		PageSet pages = pageSets.get(pageType);
+		if (Objects.isNull(pages)) {
+			pages = new PageSet();
+			pageSets.put(pageType, pages);
+		}
+		pages.add(pageNumber);
+	}
+
+	/**
+	 * append all pages of other inventory, which page numbers must be larger than this one's of the same type.
+	 *
+	 * @param other the inventory of the following page range.
+	 * @return this
+	 */
+	public PageInventory addAll(PageInventory other) {
+		for (Map.Entry<Integer, PageSet> entry : other.pageSets.entrySet()) {
+			PageSet pages = pageSets.get(entry.getKey());
+			if (Objects.isNull(pages)) {
+				pages = new PageSet();
+				pageSets.put(entry.getKey(), pages);
+			}
+			pages.addAll(entry.getValue());
+		}
+		return this;
+	}
+
+	/**
+	 * @return the page types in inventory, in ascending order.
+	 */
+	public int[] getPageTypes() {
+		int[] pageTypes = new int[pageSets.size()];
+		int i = 0;
+		for (Integer pageType : pageSets.keySet()) {
+			pageTypes[i++] = pageType;
+		}
+		Arrays.sort(pageTypes);
+		return pageTypes;
+	}
+
+	/**
+	 * @param pageType FIL_PAGE_TYPE.
+	 * @return the pages of the type, an empty set if not any.
+	 */
+	public PageSet getPages(int pageType) {
+		PageSet pages = pageSets.get(pageType);
+		return Objects.isNull(pages) ? EMPTY : pages;
+	}
+
+	public boolean contains(int pageType, long pageNumber) {
+		return getPages(pageType).contains(pageNumber);
+	}
+
+	/**
+	 * @return total pages in inventory.
+	 */
+	public long size() {
+		long size = 0L;
+		for (PageSet pages : pageSets.values()) {
+			size += pages.size();
+		}
+		return size;
+	}
+
+	/**
+	 * boxed Map(PageType, List[PageIndex]) view, for {@link IbdFileParser#getPageTypeMap()} compatibility.
+	 */
+	public Map<Integer, List<Long>> toMap() {
+		final Map<Integer, List<Long>> pageTypeMap = new HashMap<Integer, List<Long>>();
+		for (Map.Entry<Integer, PageSet> entry : pageSets.entrySet()) {
+			final List<Long> pages = new ArrayList<Long>((int) Math.min(Integer.MAX_VALUE, entry.getValue().size()));
+			entry.getValue().forEach((long pageNumber) -> pages.add(pageNumber));
+			pageTypeMap.put(entry.getKey(), pages);
+		}
+		return pageTypeMap;
+	}
+
+	/**
+	 * Ascending set of page numbers, stored as ranges [start, end).
+	 */
+	public static class PageSet {
+		/** start0, end0, start1, end1, ... */
+		private long[] ranges = new long[8];
+		private int rangeCount = 0;
+		private long size = 0L;
+
+		void add(long pageNumber) {
+			if (rangeCount > 0) {
+				long end = ranges[rangeCount * 2 - 1];
+				if (pageNumber == end) {
+					ranges[rangeCount * 2 - 1] = end + 1;
+					size++;
+					return;
+				}
+				if (pageNumber < end) {
+					throw new IllegalArgumentException("page number must be added in ascending order: " + pageNumber);
+				}
+			}
+			addRange(pageNumber, pageNumber + 1);
+		}
+
+		void addAll(PageSet other) {
+			for (int i = 0; i < other.rangeCount; i++) {
+				long start = other.ranges[i * 2];
+				long end = other.ranges[i * 2 + 1];
+				if (rangeCount > 0 && ranges[rangeCount * 2 - 1] == start) {
+					ranges[rangeCount * 2 - 1] = end;
+					size += end - start;
+				} else {
+					addRange(start, end);
+				}
+			}
+		}
+
+		private void addRange(long start, long end) {
+			if (rangeCount > 0 && start < ranges[rangeCount * 2 - 1]) {
+				throw new IllegalArgumentException("page range must be added in ascending order: " + start);
+			}
+			if (rangeCount * 2 == ranges.length) {
+				ranges = Arrays.copyOf(ranges, ranges.length * 2);
+			}
+			ranges[rangeCount * 2] = start;
+			ranges[rangeCount * 2 + 1] = end;
+			rangeCount++;
+			size += end - start;
+		}
+
+		/**
+		 * @return the number of pages in set.
+		 */
+		public long size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return size == 0L;
+		}
+
+		/**
+		 * @return the number of ranges of consecutive page numbers.
+		 */
+		public int getRangeCount() {
+			return rangeCount;
+		}
+
+		/**
+		 * binary search the range which contains the page number.
+		 */
+		public boolean contains(long pageNumber) {
+			int low = 0, high = rangeCount - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (pageNumber < ranges[mid * 2]) {
+					high = mid - 1;
+				} else if (pageNumber >= ranges[mid * 2 + 1]) {
+					low = mid + 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public void forEach(LongConsumer action) {
+			for (int i = 0; i < rangeCount; i++) {
+				for (long pageNumber = ranges[i * 2], end = ranges[i * 2 + 1]; pageNumber < end; pageNumber++) {
+					action.accept(pageNumber);
+				}
+			}
+		}
+
+		public PrimitiveIterator.OfLong iterator() {
+			return new PrimitiveIterator.OfLong() {
+				private int range = 0;
+				private long next = rangeCount > 0 ? ranges[0] : 0L;
+
+				@Override
+				public boolean hasNext() {
+					return range < rangeCount;
+				}
+
+				@Override
+				public long nextLong() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					long pageNumber = next++;
+					if (next == ranges[range * 2 + 1] && ++range < rangeCount) {
+						next = ranges[range * 2];
+					}
+					return pageNumber;
+				}
+			};
+		}
+
+		public LongStream stream() {
+			int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+			return StreamSupport.longStream(Spliterators.spliterator(iterator(), size, characteristics), false);
+		}
+
+		public long[] toArray() {
+			final long[] pageNumbers = new long[(int) size];
+			int i = 0;
+			for (PrimitiveIterator.OfLong it = iterator(); it.hasNext();) {
+				pageNumbers[i++] = it.nextLong();
+			}
+			return pageNumbers;
+		}
+	}
+}
@@ -0,0 +1,1047 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.littlestar.mysql.common.AdaptiveMappedByteBuffer;
+import org.littlestar.mysql.common.NativeIo;
+import org.littlestar.mysql.common.ParserHelper;
+import org.littlestar.mysql.ibd.page.PageView;
+
+/**
+ * The bytes of a tablespace file, read by absolute position. The backend is
+ * chosen per job:
+ *
+ * <ul>
+ * <li>{@link Backend#MMAP}: memory mapped file (default), zero-copy page views, but
+ * the pages stay in the OS page cache. On JDK 22+ the whole file is mapped as one
+ * MemorySegment ({@link Segment}), otherwise in windows of at most 2 GiB
+ * ({@link Mapped}).</li>
+ * <li>{@link Backend#POSITIONAL}: FileChannel positional reads into pooled direct
+ * buffers, no mapping.</li>
+ * <li>{@link Backend#DIRECT}: block aligned reads into aligned direct buffers,
+ * opened with O_DIRECT (ExtendedOpenOption.DIRECT, JDK 10+) where supported, so
+ * the reads bypass the page cache that mysqld depends on; plain aligned reads if
+ * not, see {@link Direct#isDirect()}.</li>
+ * </ul>
+ *
+ * All implementations are thread safe.
+ *
+ * <pre>
+ * // scan a tablespace on a production host without filling the page cache.
+ * IbdFileParser parser = new IbdFileParser(ibdFile, IbdFileParser.PAGE_SIZE_16K, PageSource.Backend.DIRECT);
+ * </pre>
+ *
+ * @see IbdFileParser#IbdFileParser(String, int, Backend)
+ */
+public interface PageSource extends Closeable {
+
+	enum Backend {
+		MMAP, POSITIONAL, DIRECT
+	}
+
+	/**
+	 * access hints of a file range, see {@link PageSource#advise(long, long, Advice)}.
+	 */
+	enum Advice {
+		/** the range is read in order: aggressive read-ahead. */
+		SEQUENTIAL,
+		/** the range is read soon: start reading it in the background. */
+		WILLNEED,
+		/** the range is not read again: drop it from the page cache. */
+		DONTNEED
+	}
+
+	/** default window size of {@link Backend#MMAP}, 1 GiB. */
+	int DEFAULT_MAP_WINDOW_SIZE = 1 << 30;
+	/** default pooled buffer size of {@link Backend#POSITIONAL} and {@link Backend#DIRECT}, 1 MiB (64 pages of 16 KiB). */
+	int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * @return the length of file in bytes.
+	 */
+	long length() throws IOException;
+
+	/**
+	 * read dst.length bytes from the absolute file position.
+	 *
+	 * @param pos the file position.
+	 * @param dst the destination array.
+	 * @return dst
+	 * @throws IOException if the range is out of file.
+	 */
+	byte[] read(long pos, byte[] dst) throws IOException;
+
+	/**
+	 * read the consecutive ranges from the position into the arrays, one after
+	 * another (readv(2) style), so a run of pages is one request to the backend and
+	 * the bytes are copied once.
+	 *
+	 * @param pos the file position of dsts[0].
+	 * @param dsts the destination arrays.
+	 * @throws IOException if the range is out of file.
+	 */
+	default void read(long pos, byte[][] dsts) throws IOException {
+		for (byte[] dst : dsts) {
+			read(pos, dst);
+			pos += dst.length;
+		}
+	}
+
+	/**
+	 * asynchronous {@link #read(long, byte[][])}, returns at once. By default the
+	 * read runs on the executor (a read of a mapped file is a memory copy);
+	 * {@link Positional} and {@link Direct} read with an AsynchronousFileChannel
+	 * and do not use the executor.
+	 *
+	 * @param executor the executor of the read.
+	 * @return the future completed when the arrays are filled, exceptionally with
+	 *         IOException if the read fails or the range is out of file.
+	 * @throws RejectedExecutionException if the executor does not accept the read.
+	 */
+	default CompletableFuture<Void> readAsync(long pos, byte[][] dsts, Executor executor) {
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		executor.execute(() -> {
+			try {
+				read(pos, dsts);
+				future.complete(null);
+			} catch (IOException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * read-only view of length bytes at the position, zero-copy if the backend maps
+	 * the file, otherwise a copy.
+	 *
+	 * @return the view, position 0, limit length.
+	 */
+	default ByteBuffer slice(long pos, int length) throws IOException {
+		return ByteBuffer.wrap(read(pos, new byte[length])).asReadOnlyBuffer();
+	}
+
+	/**
+	 * view of the page at the position, by default over {@link #slice(long, int)}.
+	 *
+	 * @param pos the file position of page.
+	 * @param pageSize the page size.
+	 * @return the page view.
+	 */
+	default PageView view(long pos, int pageSize) throws IOException {
+		return new PageView(slice(pos, pageSize), pageSize);
+	}
+
+	/**
+	 * tell the kernel how a range of file is going to be accessed
+	 * (madvise/posix_fadvise on Linux, JDK 22+, see {@link NativeIo}), so a scan does
+	 * not fill the page cache of a shared host. Only a hint: the reads are the same
+	 * with or without it.
+	 *
+	 * @param pos the file position.
+	 * @param length the length in bytes.
+	 * @param advice the access hint.
+	 * @return true if the hint is passed to the kernel, false if ignored (the default).
+	 */
+	default boolean advise(long pos, long length, Advice advice) {
+		return false;
+	}
+
+	/**
+	 * open the file with the backend.
+	 */
+	static PageSource open(String fileName, Backend backend) throws IOException {
+		switch (backend) {
+		case POSITIONAL:
+			return new Positional(Paths.get(fileName), DEFAULT_BUFFER_SIZE);
+		case DIRECT:
+			return new Direct(Paths.get(fileName), DEFAULT_BUFFER_SIZE);
+		default:
+			if (Segment.isSupported()) {
+				return new Segment(Paths.get(fileName));
+			}
+			return new Mapped(fileName, DEFAULT_MAP_WINDOW_SIZE);
+		}
+	}
+
+	/**
+	 * memory mapped windows of the file, see {@link AdaptiveMappedByteBuffer}: the
+	 * file is mapped in segments of window size, at most maxWindows of them are
+	 * mapped at a time (least recently used are unmapped). {@link #slice(long, int)}
+	 * is a zero-copy view: its window is never unmapped explicitly but released by
+	 * GC once no view references it, so the views stay valid after close.
+	 */
+	class Mapped implements PageSource {
+		private final RandomAccessFile file;
+		private final AdaptiveMappedByteBuffer buffer;
+
+		public Mapped(String fileName, int windowSize) throws IOException {
+			this(fileName, windowSize, AdaptiveMappedByteBuffer.DEFAULT_MAX_WINDOWS);
+		}
+
+		public Mapped(String fileName, int windowSize, int maxWindows) throws IOException {
+			file = new RandomAccessFile(fileName, "r");
+			try {
+				buffer = new AdaptiveMappedByteBuffer(file, MapMode.READ_ONLY, windowSize, maxWindows);
+			} catch (IOException e) {
+				file.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public long length() throws IOException {
+			return file.length();
+		}
+
+		@Override
+		public byte[] read(long pos, byte[] dst) throws IOException {
+			return buffer.get(pos, dst);
+		}
+
+		@Override
+		public ByteBuffer slice(long pos, int length) throws IOException {
+			return buffer.slice(pos, length);
+		}
+
+		public AdaptiveMappedByteBuffer getBuffer() {
+			return buffer;
+		}
+
+		/**
+		 * unmap the windows and close the file.
+		 */
+		@Override
+		public void close() throws IOException {
+			buffer.close();
+			file.close();
+		}
+	}
+
+	/**
+	 * The whole file mapped as a single MemorySegment of the Foreign Function &amp;
+	 * Memory API: no windows and no remapping for files larger than 2 GiB, the reads
+	 * are bounds checked and the page views read the header fields in place by the
+	 * ValueLayout accessors of the segment. The mapping is released deterministically
+	 * by closing its shared Arena in {@link #close()}.
+	 *
+	 * <p>The sources are Java 8, so the API is bound by method handles when the class
+	 * is loaded, see {@link #isSupported()}. java.lang.foreign is final in JDK 22, a
+	 * preview API in JDK 21 (usable only with --enable-preview), so it is used on
+	 * JDK 22+; on older JDKs {@link Mapped} is used.
+	 */
+	class Segment implements PageSource {
+		private static final Object JAVA_BYTE;
+		/** Arena.ofShared() */
+		private static final MethodHandle OF_SHARED;
+		/** Arena.close() */
+		private static final MethodHandle CLOSE;
+		/** FileChannel.map(MapMode, long, long, Arena) */
+		private static final MethodHandle MAP;
+		/** MemorySegment.copy(MemorySegment, ValueLayout, long, Object, int, int) */
+		private static final MethodHandle COPY;
+		/** MemorySegment.asSlice(long, long) */
+		private static final MethodHandle AS_SLICE;
+		/** MemorySegment.asByteBuffer() */
+		private static final MethodHandle AS_BYTE_BUFFER;
+		/** MemorySegment.address() */
+		private static final MethodHandle ADDRESS;
+		/** MemorySegment.get(ValueLayout, long) of JAVA_BYTE and big-endian unaligned JAVA_SHORT/JAVA_INT/JAVA_LONG. */
+		private static final MethodHandle GET_BYTE, GET_SHORT, GET_INT, GET_LONG;
+
+		static {
+			Object javaByte = null;
+			MethodHandle ofShared = null, close = null, map = null, copy = null, asSlice = null, asByteBuffer = null, address = null;
+			MethodHandle getByte = null, getShort = null, getInt = null, getLong = null;
+			try {
+				// preview in JDK 21 (needs --enable-preview), final in JDK 22.
+				if (ParserHelper.getJavaVersion() >= 22) {
+					MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+					Class<?> arena = Class.forName("java.lang.foreign.Arena");
+					Class<?> segment = Class.forName("java.lang.foreign.MemorySegment");
+					Class<?> valueLayout = Class.forName("java.lang.foreign.ValueLayout");
+					ofShared = lookup.findStatic(arena, "ofShared", MethodType.methodType(arena))
+							.asType(MethodType.methodType(Object.class));
+					close = lookup.findVirtual(arena, "close", MethodType.methodType(void.class))
+							.asType(MethodType.methodType(void.class, Object.class));
+					map = lookup.findVirtual(FileChannel.class, "map", MethodType.methodType(segment, MapMode.class, long.class, long.class, arena))
+							.asType(MethodType.methodType(Object.class, FileChannel.class, MapMode.class, long.class, long.class, Object.class));
+					copy = lookup.findStatic(segment, "copy", MethodType.methodType(void.class, segment, valueLayout, long.class, Object.class, int.class, int.class))
+							.asType(MethodType.methodType(void.class, Object.class, Object.class, long.class, Object.class, int.class, int.class));
+					asSlice = lookup.findVirtual(segment, "asSlice", MethodType.methodType(segment, long.class, long.class))
+							.asType(MethodType.methodType(Object.class, Object.class, long.class, long.class));
+					asByteBuffer = lookup.findVirtual(segment, "asByteBuffer", MethodType.methodType(ByteBuffer.class))
+							.asType(MethodType.methodType(ByteBuffer.class, Object.class));
+					address = lookup.findVirtual(segment, "address", MethodType.methodType(long.class))
+							.asType(MethodType.methodType(long.class, Object.class));
+					getByte = getter(lookup, segment, valueLayout, byte.class, "OfByte", "JAVA_BYTE");
+					getShort = getter(lookup, segment, valueLayout, short.class, "OfShort", "JAVA_SHORT_UNALIGNED");
+					getInt = getter(lookup, segment, valueLayout, int.class, "OfInt", "JAVA_INT_UNALIGNED");
+					getLong = getter(lookup, segment, valueLayout, long.class, "OfLong", "JAVA_LONG_UNALIGNED");
+					javaByte = valueLayout.getField("JAVA_BYTE").get(null);
+				}
+			} catch (Exception e) {
+				// JDK 21 and earlier.
+				javaByte = null;
+			}
+			JAVA_BYTE = javaByte;
+			OF_SHARED = ofShared;
+			CLOSE = close;
+			MAP = map;
+			COPY = copy;
+			AS_SLICE = asSlice;
+			AS_BYTE_BUFFER = asByteBuffer;
+			ADDRESS = address;
+			GET_BYTE = getByte;
+			GET_SHORT = getShort;
+			GET_INT = getInt;
+			GET_LONG = getLong;
+		}
+
+		/**
+		 * MemorySegment.get(layout, long) bound to the big-endian layout:
+		 * (Object segment, long offset) -&gt; type.
+		 */
+		private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> segment, Class<?> valueLayout,
+				Class<?> type, String layoutClass, String layoutField) throws Exception {
+			Class<?> layoutType = Class.forName("java.lang.foreign.ValueLayout$" + layoutClass);
+			Object layout = layoutType.getMethod("withOrder", ByteOrder.class)
+					.invoke(valueLayout.getField(layoutField).get(null), ByteOrder.BIG_ENDIAN);
+			MethodHandle get = lookup.findVirtual(segment, "get", MethodType.methodType(type, layoutType, long.class));
+			return MethodHandles.insertArguments(get, 1, layout).asType(MethodType.methodType(type, Object.class, long.class));
+		}
+
+		private final Path file;
+		private final FileChannel channel;
+		private final long length;
+		private final Object arena;
+		private final Object segment;
+		/** the native address of segment, for madvise. */
+		private final long address;
+		/** the descriptor of posix_fadvise, opened by the first DONTNEED advice, -1 if not supported. */
+		private int adviceFd = -1;
+		private boolean adviceFdOpened = false;
+		private volatile boolean closed = false;
+
+		/**
+		 * @return true if the JDK provides the final java.lang.foreign API (JDK 22+).
+		 */
+		public static boolean isSupported() {
+			return Objects.nonNull(JAVA_BYTE);
+		}
+
+		/**
+		 * map the whole file read-only.
+		 *
+		 * @throws UnsupportedOperationException if not {@link #isSupported()}.
+		 */
+		public Segment(Path file) throws IOException {
+			if (!isSupported()) {
+				throw new UnsupportedOperationException("java.lang.foreign is not available in Java " + System.getProperty("java.version"));
+			}
+			this.file = file;
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			try {
+				length = channel.size();
+				arena = (Object) OF_SHARED.invokeExact();
+				try {
+					segment = (Object) MAP.invokeExact(channel, MapMode.READ_ONLY, 0L, length, arena);
+					address = (long) ADDRESS.invokeExact(segment);
+				} catch (Throwable e) {
+					CLOSE.invokeExact(arena);
+					throw e;
+				}
+			} catch (Throwable e) {
+				channel.close();
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		public long length() throws IOException {
+			return length;
+		}
+
+		@Override
+		public byte[] read(long pos, byte[] dst) throws IOException {
+			checkRange(pos, dst.length);
+			try {
+				COPY.invokeExact(segment, JAVA_BYTE, pos, (Object) dst, 0, dst.length);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+			return dst;
+		}
+
+		@Override
+		public ByteBuffer slice(long pos, int length) throws IOException {
+			checkRange(pos, length);
+			try {
+				Object slice = (Object) AS_SLICE.invokeExact(segment, pos, (long) length);
+				return ((ByteBuffer) AS_BYTE_BUFFER.invokeExact(slice)).asReadOnlyBuffer();
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		/**
+		 * the header fields are read by the ValueLayout accessors of the segment,
+		 * no ByteBuffer is created.
+		 */
+		@Override
+		public PageView view(long pos, int pageSize) throws IOException {
+			checkRange(pos, pageSize);
+			return new SegmentView(pos, pageSize);
+		}
+
+		/**
+		 * page view over the segment, invalid (IllegalStateException) after close.
+		 */
+		private final class SegmentView extends PageView {
+			private final long pos;
+
+			private SegmentView(long pos, int pageSize) {
+				super(pageSize);
+				this.pos = pos;
+			}
+
+			@Override
+			public ByteBuffer getBuffer() {
+				try {
+					return slice(pos, getPageSize());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			@Override
+			public byte[] get(int offset, byte[] dst) {
+				checkOffset(offset, dst.length);
+				try {
+					COPY.invokeExact(segment, JAVA_BYTE, pos + offset, (Object) dst, 0, dst.length);
+				} catch (Throwable e) {
+					throw unchecked(e);
+				}
+				return dst;
+			}
+
+			@Override
+			public int getUInt8(int offset) {
+				checkOffset(offset, 1);
+				try {
+					return (byte) GET_BYTE.invokeExact(segment, pos + offset) & 0xFF;
+				} catch (Throwable e) {
+					throw unchecked(e);
+				}
+			}
+
+			@Override
+			public int getUInt16(int offset) {
+				checkOffset(offset, 2);
+				try {
+					return (short) GET_SHORT.invokeExact(segment, pos + offset) & 0xFFFF;
+				} catch (Throwable e) {
+					throw unchecked(e);
+				}
+			}
+
+			@Override
+			public long getUInt32(int offset) {
+				checkOffset(offset, 4);
+				try {
+					return (int) GET_INT.invokeExact(segment, pos + offset) & 0xFFFFFFFFL;
+				} catch (Throwable e) {
+					throw unchecked(e);
+				}
+			}
+
+			@Override
+			public long getInt64(int offset) {
+				checkOffset(offset, 8);
+				try {
+					return (long) GET_LONG.invokeExact(segment, pos + offset);
+				} catch (Throwable e) {
+					throw unchecked(e);
+				}
+			}
+
+			private void checkOffset(int offset, int length) {
+				if (offset < 0 || length < 0 || offset + length > getPageSize()) {
+					throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length + ", page size=" + getPageSize());
+				}
+			}
+		}
+
+		/**
+		 * madvise the mapping, DONTNEED also drops the range from the page cache
+		 * (posix_fadvise), unmapping alone only releases it from this process.
+		 */
+		@Override
+		public boolean advise(long pos, long length, Advice advice) {
+			if (closed || pos < 0 || pos >= this.length) {
+				return false;
+			}
+			length = Math.min(length, this.length - pos);
+			switch (advice) {
+			case SEQUENTIAL:
+				return NativeIo.madvise(address + pos, length, NativeIo.MADV_SEQUENTIAL);
+			case WILLNEED:
+				return NativeIo.madvise(address + pos, length, NativeIo.MADV_WILLNEED);
+			default:
+				boolean unmapped = NativeIo.madvise(address + pos, length, NativeIo.MADV_DONTNEED);
+				return fadvise(pos, length, NativeIo.POSIX_FADV_DONTNEED) || unmapped;
+			}
+		}
+
+		/**
+		 * posix_fadvise, the descriptor is opened on the first call, so a source
+		 * without advice never loads {@link NativeIo}.
+		 */
+		private synchronized boolean fadvise(long pos, long length, int advice) {
+			if (!adviceFdOpened) {
+				adviceFdOpened = true;
+				adviceFd = NativeIo.open(file.toString());
+			}
+			return NativeIo.fadvise(adviceFd, pos, length, advice);
+		}
+
+		private void checkRange(long pos, int length) throws IOException {
+			if (closed) {
+				throw new IOException("page source is closed.");
+			}
+			if (pos < 0 || pos + length > this.length) {
+				throw new IOException("read out of file range: pos=" + pos + ", length=" + length + ", file length=" + this.length);
+			}
+		}
+
+		/**
+		 * @return the exception of a page view accessor, after close() IllegalStateException.
+		 */
+		private static RuntimeException unchecked(Throwable e) {
+			if (e instanceof RuntimeException) {
+				return (RuntimeException) e;
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			return new IllegalStateException(e);
+		}
+
+		/**
+		 * @return the IOException to throw, reads racing with close() fail with IllegalStateException.
+		 */
+		private static IOException rethrow(Throwable e) {
+			if (e instanceof IOException) {
+				return (IOException) e;
+			}
+			if (e instanceof IllegalStateException) {
+				return new IOException("page source is closed.", e);
+			}
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			return new IOException(e);
+		}
+
+		/**
+		 * unmap the file and close it, the views of {@link #slice(long, int)} are invalid
+		 * after close.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			synchronized (this) {
+				adviceFdOpened = true;
+				if (adviceFd >= 0) {
+					NativeIo.close(adviceFd);
+					adviceFd = -1;
+				}
+			}
+			try {
+				CLOSE.invokeExact(arena);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * FileChannel positional reads (pread) into pooled direct buffers, the reads
+	 * go through the page cache but nothing is mapped. The asynchronous reads use
+	 * an AsynchronousFileChannel of the file, opened by the first of them.
+	 */
+	class Positional implements PageSource {
+		protected final FileChannel channel;
+		protected final int bufferSize;
+		/** the file length at open time, as the mapping of Segment. */
+		private final long length;
+		private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<ByteBuffer>();
+		private final Path file;
+		/** the descriptor of posix_fadvise, opened by the first advice, -1 if not supported. */
+		private int adviceFd = -1;
+		private boolean adviceFdOpened = false;
+		/** the channel of {@link #readAsync(long, byte[][], Executor)}, opened by the first asynchronous read. */
+		private AsynchronousFileChannel asyncChannel;
+		private boolean closed = false;
+
+		public Positional(Path file, int bufferSize) throws IOException {
+			this(FileChannel.open(file, StandardOpenOption.READ), file, bufferSize);
+		}
+
+		protected Positional(FileChannel channel, Path file, int bufferSize) throws IOException {
+			if (bufferSize <= 0) {
+				throw new IllegalArgumentException("buffer size must be positive: " + bufferSize);
+			}
+			this.channel = Objects.requireNonNull(channel);
+			this.file = Objects.requireNonNull(file);
+			this.bufferSize = bufferSize;
+			this.length = channel.size();
+		}
+
+		@Override
+		public long length() throws IOException {
+			return length;
+		}
+
+		@Override
+		public byte[] read(long pos, byte[] dst) throws IOException {
+			checkRange(pos, dst.length);
+			ByteBuffer buffer = acquire();
+			try {
+				int done = 0;
+				while (done < dst.length) {
+					buffer.clear();
+					buffer.limit(Math.min(buffer.capacity(), dst.length - done));
+					readFully(buffer, pos + done);
+					buffer.flip();
+					int n = buffer.remaining();
+					buffer.get(dst, done, n);
+					done += n;
+				}
+			} finally {
+				release(buffer);
+			}
+			return dst;
+		}
+
+		/**
+		 * one pread per bufferSize bytes, the pooled buffer is copied to the arrays in order.
+		 */
+		@Override
+		public void read(long pos, byte[][] dsts) throws IOException {
+			long total = 0;
+			for (byte[] dst : dsts) {
+				total += dst.length;
+			}
+			checkRange(pos, total);
+			ByteBuffer buffer = acquire();
+			try {
+				int index = 0;
+				int offset = 0;
+				long done = 0;
+				while (done < total) {
+					buffer.clear();
+					buffer.limit((int) Math.min(buffer.capacity(), total - done));
+					readFully(buffer, pos + done);
+					buffer.flip();
+					done += buffer.remaining();
+					while (buffer.hasRemaining()) {
+						byte[] dst = dsts[index];
+						int n = Math.min(buffer.remaining(), dst.length - offset);
+						buffer.get(dst, offset, n);
+						offset += n;
+						if (offset == dst.length) {
+							index++;
+							offset = 0;
+						}
+					}
+				}
+			} finally {
+				release(buffer);
+			}
+		}
+
+		/**
+		 * one read of the AsynchronousFileChannel into a direct buffer, aligned to
+		 * {@link #alignment()}, copied to the arrays when the read lands; the executor
+		 * is not used, the future completes on the thread pool of the channel.
+		 */
+		@Override
+		public CompletableFuture<Void> readAsync(long pos, byte[][] dsts, Executor executor) {
+			final CompletableFuture<Void> future = new CompletableFuture<Void>();
+			try {
+				long total = 0;
+				for (byte[] dst : dsts) {
+					total += dst.length;
+				}
+				checkRange(pos, total);
+				final int alignment = alignment();
+				final long from = pos - (pos % alignment);
+				final int skip = (int) (pos - from);
+				final long need = skip + total;
+				if (need + alignment > Integer.MAX_VALUE) {
+					throw new IOException("read is too large: " + total + " bytes");
+				}
+				final ByteBuffer buffer = allocate((int) ((need + alignment - 1) / alignment * alignment));
+				final AsynchronousFileChannel channel = asyncChannel();
+				channel.read(buffer, from, null, new CompletionHandler<Integer, Void>() {
+					@Override
+					public void completed(Integer n, Void attachment) {
+						if (buffer.position() < need && n >= 0) {
+							// short read, read the rest.
+							try {
+								channel.read(buffer, from + buffer.position(), attachment, this);
+							} catch (RuntimeException e) {
+								failed(e, attachment);
+							}
+						} else if (buffer.position() < need) {
+							failed(new EOFException("end of file at " + (from + buffer.position())), attachment);
+						} else {
+							buffer.flip();
+							buffer.position(skip);
+							for (byte[] dst : dsts) {
+								buffer.get(dst);
+							}
+							future.complete(null);
+						}
+					}
+
+					@Override
+					public void failed(Throwable e, Void attachment) {
+						future.completeExceptionally(e);
+					}
+				});
+			} catch (IOException | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+			return future;
+		}
+
+		private synchronized AsynchronousFileChannel asyncChannel() throws IOException {
+			if (closed) {
+				throw new ClosedChannelException();
+			}
+			if (Objects.isNull(asyncChannel)) {
+				asyncChannel = openAsync(file);
+			}
+			return asyncChannel;
+		}
+
+		/**
+		 * @return the channel of the asynchronous reads.
+		 */
+		protected AsynchronousFileChannel openAsync(Path file) throws IOException {
+			return AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+		}
+
+		/**
+		 * @return the alignment of the file position and length of a read, 1 if none.
+		 */
+		protected int alignment() {
+			return 1;
+		}
+
+		/**
+		 * posix_fadvise the file range; the reads use another descriptor, so
+		 * SEQUENTIAL (read-ahead of a descriptor) is not passed.
+		 */
+		@Override
+		public boolean advise(long pos, long length, Advice advice) {
+			switch (advice) {
+			case WILLNEED:
+				return fadvise(pos, length, NativeIo.POSIX_FADV_WILLNEED);
+			case DONTNEED:
+				return fadvise(pos, length, NativeIo.POSIX_FADV_DONTNEED);
+			default:
+				return false;
+			}
+		}
+
+		/**
+		 * posix_fadvise, the descriptor is opened on the first call, so a source
+		 * without advice never loads {@link NativeIo}.
+		 */
+		private synchronized boolean fadvise(long pos, long length, int advice) {
+			if (!adviceFdOpened) {
+				adviceFdOpened = true;
+				adviceFd = NativeIo.open(file.toString());
+			}
+			return NativeIo.fadvise(adviceFd, pos, length, advice);
+		}
+
+		protected void checkRange(long pos, long length) throws IOException {
+			if (pos < 0 || pos + length > this.length) {
+				throw new IOException("read out of file range: pos=" + pos + ", length=" + length + ", file length=" + this.length);
+			}
+		}
+
+		/**
+		 * read until the buffer is full, or the end of file.
+		 */
+		protected void readFully(ByteBuffer buffer, long pos) throws IOException {
+			while (buffer.hasRemaining()) {
+				int n = channel.read(buffer, pos);
+				if (n < 0) {
+					if (buffer.position() == 0) {
+						throw new EOFException("end of file at " + pos);
+					}
+					break;
+				}
+				pos += n;
+			}
+		}
+
+		protected ByteBuffer acquire() {
+			ByteBuffer buffer = pool.poll();
+			return Objects.isNull(buffer) ? allocate() : buffer;
+		}
+
+		protected void release(ByteBuffer buffer) {
+			pool.offer(buffer);
+		}
+
+		protected ByteBuffer allocate() {
+			return allocate(bufferSize);
+		}
+
+		protected ByteBuffer allocate(int capacity) {
+			return ByteBuffer.allocateDirect(capacity);
+		}
+
+		/**
+		 * close the file, the asynchronous reads in flight fail.
+		 */
+		@Override
+		public void close() throws IOException {
+			pool.clear();
+			AsynchronousFileChannel async;
+			synchronized (this) {
+				closed = true;
+				adviceFdOpened = true;
+				if (adviceFd >= 0) {
+					NativeIo.close(adviceFd);
+					adviceFd = -1;
+				}
+				async = asyncChannel;
+				asyncChannel = null;
+			}
+			try {
+				if (Objects.nonNull(async)) {
+					async.close();
+				}
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * O_DIRECT style reads: the file position, the read length and the buffer
+	 * address are aligned to the block size of the file store, the bytes of the
+	 * requested range are copied out of the aligned buffer.
+	 */
+	class Direct extends Positional {
+		private final int blockSize;
+		private final boolean direct;
+
+		public Direct(Path file, int bufferSize) throws IOException {
+			this(file, bufferSize, getBlockSize(file));
+		}
+
+		private Direct(Path file, int bufferSize, int blockSize) throws IOException {
+			this(openDirect(file), file, alignUp(Math.max(bufferSize, blockSize), blockSize), blockSize);
+		}
+
+		private Direct(FileChannel directChannel, Path file, int bufferSize, int blockSize) throws IOException {
+			super(Objects.nonNull(directChannel) ? directChannel : FileChannel.open(file, StandardOpenOption.READ),
+					file, bufferSize);
+			this.blockSize = blockSize;
+			this.direct = Objects.nonNull(directChannel);
+		}
+
+		/**
+		 * @return true if the file is opened with O_DIRECT, false if the JDK or the
+		 *         file system does not support it (plain aligned reads).
+		 */
+		public boolean isDirect() {
+			return direct;
+		}
+
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		@Override
+		public byte[] read(long pos, byte[] dst) throws IOException {
+			checkRange(pos, dst.length);
+			ByteBuffer buffer = acquire();
+			try {
+				int done = 0;
+				while (done < dst.length) {
+					long from = pos + done;
+					long alignedFrom = from - (from % blockSize);
+					int skip = (int) (from - alignedFrom);
+					int length = Math.min(bufferSize, alignUp(skip + dst.length - done, blockSize));
+					buffer.clear();
+					buffer.limit(length);
+					// the last block may be short at the end of file.
+					readFully(buffer, alignedFrom);
+					int n = Math.min(buffer.position() - skip, dst.length - done);
+					if (n <= 0) {
+						throw new EOFException("end of file at " + from);
+					}
+					buffer.position(skip);
+					buffer.get(dst, done, n);
+					done += n;
+				}
+			} finally {
+				release(buffer);
+			}
+			return dst;
+		}
+
+		/**
+		 * the aligned reads of {@link #read(long, byte[])}, one per array.
+		 */
+		@Override
+		public void read(long pos, byte[][] dsts) throws IOException {
+			for (byte[] dst : dsts) {
+				read(pos, dst);
+				pos += dst.length;
+			}
+		}
+
+		@Override
+		protected ByteBuffer allocate(int capacity) {
+			return allocateAligned(capacity, blockSize);
+		}
+
+		@Override
+		protected int alignment() {
+			return blockSize;
+		}
+
+		/**
+		 * the asynchronous reads are O_DIRECT as well if the file is, otherwise
+		 * aligned reads through the page cache.
+		 */
+		@Override
+		protected AsynchronousFileChannel openAsync(Path file) throws IOException {
+			OpenOption direct = this.direct ? directOption() : null;
+			if (Objects.nonNull(direct)) {
+				try {
+					return AsynchronousFileChannel.open(file, StandardOpenOption.READ, direct);
+				} catch (IOException | UnsupportedOperationException e) {
+					// fall back to aligned reads through the page cache.
+				}
+			}
+			return super.openAsync(file);
+		}
+
+		private static int alignUp(int n, int alignment) {
+			return (n + alignment - 1) / alignment * alignment;
+		}
+
+		/**
+		 * @return the channel, null if O_DIRECT is not supported.
+		 */
+		private static FileChannel openDirect(Path file) {
+			OpenOption direct = directOption();
+			if (Objects.nonNull(direct)) {
+				try {
+					return FileChannel.open(file, StandardOpenOption.READ, direct);
+				} catch (IOException | UnsupportedOperationException e) {
+					// fall back to aligned reads through the page cache.
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * ExtendedOpenOption.DIRECT by reflection, it is not in Java 8.
+		 *
+		 * @return the option, null if not available.
+		 */
+		private static OpenOption directOption() {
+			try {
+				Class<?> options = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+				for (Object option : options.getEnumConstants()) {
+					if ("DIRECT".equals(((Enum<?>) option).name())) {
+						return (OpenOption) option;
+					}
+				}
+			} catch (ClassNotFoundException e) {
+				// Java 8 without the option.
+			}
+			return null;
+		}
+
+		/**
+		 * FileStore.getBlockSize() (JDK 10+) by reflection, 4096 if not known.
+		 */
+		private static int getBlockSize(Path file) {
+			try {
+				FileStore store = Files.getFileStore(file);
+				Method method = FileStore.class.getMethod("getBlockSize");
+				long blockSize = (Long) method.invoke(store);
+				if (blockSize > 0 && blockSize <= (1 << 16) && Long.bitCount(blockSize) == 1) {
+					return (int) blockSize;
+				}
+			} catch (Exception e) {
+				// not known.
+			}
+			return 4096;
+		}
+
+		/**
+		 * ByteBuffer.alignedSlice() (JDK 9+) by reflection, a plain direct buffer if
+		 * not available (O_DIRECT is not available either).
+		 */
+		private static ByteBuffer allocateAligned(int capacity, int alignment) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + alignment);
+			try {
+				Method method = ByteBuffer.class.getMethod("alignedSlice", int.class);
+				ByteBuffer aligned = (ByteBuffer) method.invoke(buffer, alignment);
+				aligned.limit(capacity);
+				return aligned.slice();
+			} catch (Exception e) {
+				buffer.limit(capacity);
+				return buffer.slice();
+			}
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.PageView;
+
+/**
+ * Spliterator of the pages in the page number range [fromPage, toPage) of a
+ * tablespace, in page number (physical) order. trySplit() hands out the first half
+ * of the remaining range, so a parallel stream is split evenly by the fork-join
+ * framework, and the pages are read concurrently by absolute position.
+ *
+ * <p>An optional page filter is tested on the zero-copy {@link PageView} before
+ * the page is read, e.g. only the leaf pages of one index, and the page is built
+ * from the same view, so each page is read once. Without a filter the size is
+ * exact (SIZED, SUBSIZED); with a filter it is an upper bound.
+ *
+ * <p>With an {@link ExtentMap} the free extents and free pages are skipped by the
+ * XDES bitmaps, they are not read nor tested by the page filter.
+ *
+ * <p>With an advice window (see {@link IbdFileParser#setScanAdviceWindow(int)}) the
+ * page source is told the range is read sequentially, the next window of pages is
+ * advised WILLNEED before the cursor gets there and the pages behind the cursor
+ * DONTNEED, so the scan keeps about two windows of the file in the page cache.
+ *
+ * <pre>
+ * long indexPages = parser.pages().parallel()
+ *         .filter(page -&gt; page.getFilHeader().getPageType() == FilHeader.FIL_PAGE_INDEX).count();
+ * </pre>
+ *
+ * @see IbdFileParser#pages()
+ * @see IbdFileParser#rows(TableMeta)
+ */
+public class PageSpliterator implements Spliterator<Page> {
+	/** default advice window, 4 MiB of 16 KiB pages. */
+	public static final int DEFAULT_ADVICE_WINDOW = 256;
+
+	private final IbdFileParser parser;
+	private final Predicate<PageView> pageFilter;
+	private long fromPage;
+	private final long toPage;
+	/** the pages of access hints window, 0 if no hints. */
+	private final int adviceWindow;
+	/** the free pages to skip, null to read all pages. */
+	private final ExtentMap extentMap;
+	private boolean adviceStarted = false;
+	/** the end (exclusive) of pages advised WILLNEED. */
+	private long willNeedEnd;
+	/** the end (exclusive) of pages advised DONTNEED. */
+	private long dontNeedEnd;
+
+	/**
+	 * @param parser the parser of the tablespace.
+	 * @param fromPage the first page number, inclusive.
+	 * @param toPage the last page number, exclusive.
+	 * @param pageFilter the pages to read, tested on the page view, all pages if null.
+	 */
+	public PageSpliterator(IbdFileParser parser, long fromPage, long toPage, Predicate<PageView> pageFilter) {
+		this(parser, fromPage, toPage, pageFilter, 0);
+	}
+
+	/**
+	 * @param adviceWindow the pages of access hints window, 0 for no hints.
+	 * @see PageSource#advise(long, long, PageSource.Advice)
+	 */
+	public PageSpliterator(IbdFileParser parser, long fromPage, long toPage, Predicate<PageView> pageFilter,
+			int adviceWindow) {
+		this(parser, fromPage, toPage, pageFilter, adviceWindow, null);
+	}
+
+	/**
+	 * @param extentMap the free pages to skip, null to read all pages.
+	 * @see ExtentMap
+	 */
+	public PageSpliterator(IbdFileParser parser, long fromPage, long toPage, Predicate<PageView> pageFilter,
+			int adviceWindow, ExtentMap extentMap) {
+		if (fromPage < 0 || fromPage > toPage) {
+			throw new IllegalArgumentException("invalid page range: [" + fromPage + ", " + toPage + ")");
+		}
+		if (adviceWindow < 0) {
+			throw new IllegalArgumentException("advice window must not be negative: " + adviceWindow);
+		}
+		this.parser = Objects.requireNonNull(parser);
+		this.fromPage = fromPage;
+		this.toPage = toPage;
+		this.pageFilter = pageFilter;
+		this.adviceWindow = adviceWindow;
+		this.extentMap = extentMap;
+	}
+
+	public PageSpliterator(IbdFileParser parser, long fromPage, long toPage) {
+		this(parser, fromPage, toPage, null);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Page> action) {
+		try {
+			while (fromPage < toPage) {
+				if (Objects.nonNull(extentMap)) {
+					fromPage = Math.min(extentMap.nextUsedPage(fromPage), toPage);
+					if (fromPage == toPage) {
+						break;
+					}
+				}
+				long pageNumber = fromPage++;
+				if (adviceWindow > 0) {
+					advise(pageNumber);
+				}
+				if (Objects.isNull(pageFilter)) {
+					action.accept(parser.getPage(pageNumber));
+					return true;
+				}
+				PageView view = parser.getPageView(pageNumber);
+				if (pageFilter.test(view)) {
+					action.accept(IbdFileParser.newPage(view.getPageRaw(), view.getPageSize()));
+					return true;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (adviceStarted && dontNeedEnd < toPage) {
+			advise(dontNeedEnd, toPage, PageSource.Advice.DONTNEED);
+			dontNeedEnd = toPage;
+		}
+		return false;
+	}
+
+	/**
+	 * advise the pages around the cursor before the page is read.
+	 */
+	private void advise(long pageNumber) {
+		if (!adviceStarted) {
+			adviceStarted = true;
+			advise(pageNumber, toPage, PageSource.Advice.SEQUENTIAL);
+			willNeedEnd = dontNeedEnd = pageNumber;
+		}
+		if (pageNumber + adviceWindow > willNeedEnd && willNeedEnd < toPage) {
+			long end = Math.min(Math.max(willNeedEnd, pageNumber) + adviceWindow, toPage);
+			advise(Math.max(willNeedEnd, pageNumber), end, PageSource.Advice.WILLNEED);
+			willNeedEnd = end;
+		}
+		if (pageNumber - dontNeedEnd >= adviceWindow) {
+			// the pages before the cursor are copied out already.
+			advise(dontNeedEnd, pageNumber, PageSource.Advice.DONTNEED);
+			dontNeedEnd = pageNumber;
+		}
+	}
+
+	private void advise(long from, long to, PageSource.Advice advice) {
+		final long pageSize = parser.getPageSize();
+		parser.getPageSource().advise(from * pageSize, (to - from) * pageSize, advice);
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super Page> action) {
+		while (tryAdvance(action)) {
+		}
+	}
+
+	/**
+	 * split off the first half of the remaining page range.
+	 */
+	@Override
+	public Spliterator<Page> trySplit() {
+		long middle = (fromPage + toPage) >>> 1;
+		if (middle <= fromPage) {
+			return null;
+		}
+		PageSpliterator prefix = new PageSpliterator(parser, fromPage, middle, pageFilter, adviceWindow, extentMap);
+		fromPage = middle;
+		adviceStarted = false;
+		return prefix;
+	}
+
+	/**
+	 * @return the number of remaining pages, an upper bound if filtered or free pages are skipped.
+	 */
+	@Override
+	public long estimateSize() {
+		return toPage - fromPage;
+	}
+
+	@Override
+	public int characteristics() {
+		int characteristics = ORDERED | NONNULL | IMMUTABLE;
+		return Objects.isNull(pageFilter) && Objects.isNull(extentMap) ? characteristics | SIZED | SUBSIZED : characteristics;
+	}
+}
@@ -0,0 +1,142 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The requested columns of a record layout (projection pushdown). The record
+ * parser only computes the store length of the other columns to advance the
+ * content offset, they are never copied or decoded, and the columns after the
+ * last requested one are not looked at.
+ *
+ * <pre>
+ * // 2 of the 15 columns of sakila.film.
+ * Projection projection = Projection.of(tableMeta.getClusteredLeafLayout(), "film_id", "title");
+ * for (ClusteredKeyLeafRecord row : leafPage.getUserRecords(projection)) { ... }
+ * </pre>
+ */
+public final class Projection {
+	private final RecordLayout layout;
+	/** the layout indexes of requested columns, in layout order. */
+	private final int[] columnIndexes;
+	private final boolean[] selected;
+
+	private Projection(RecordLayout layout, boolean[] selected) {
+		this.layout = layout;
+		this.selected = selected;
+		int count = 0;
+		for (boolean s : selected) {
+			if (s) {
+				count++;
+			}
+		}
+		columnIndexes = new int[count];
+		for (int i = 0, j = 0; i < selected.length; i++) {
+			if (selected[i]) {
+				columnIndexes[j++] = i;
+			}
+		}
+	}
+
+	/**
+	 * @param layout the record layout.
+	 * @param columnNames the requested column names.
+	 * @return the projection of the columns.
+	 * @throws IllegalArgumentException if a column is not in the layout.
+	 */
+	public static Projection of(RecordLayout layout, String... columnNames) {
+		Objects.requireNonNull(layout);
+		boolean[] selected = new boolean[layout.getColumnCount()];
+		for (String columnName : columnNames) {
+			int index = layout.indexOf(columnName);
+			if (index < 0) {
+				throw new IllegalArgumentException("column not found in record layout: " + columnName);
+			}
+			selected[index] = true;
+		}
+		return new Projection(layout, selected);
+	}
+
+	/**
+	 * @param layout the record layout.
+	 * @param columnIndexes the requested layout indexes of columns.
+	 * @return the projection of the columns.
+	 */
+	public static Projection of(RecordLayout layout, int... columnIndexes) {
+		Objects.requireNonNull(layout);
+		boolean[] selected = new boolean[layout.getColumnCount()];
+		for (int index : columnIndexes) {
+			if (index < 0 || index >= selected.length) {
+				throw new IllegalArgumentException("column index out of record layout: " + index);
+			}
+			selected[index] = true;
+		}
+		return new Projection(layout, selected);
+	}
+
+	/**
+	 * @return the projection of all columns of layout.
+	 */
+	public static Projection all(RecordLayout layout) {
+		boolean[] selected = new boolean[layout.getColumnCount()];
+		Arrays.fill(selected, true);
+		return new Projection(layout, selected);
+	}
+
+	/**
+	 * @param columnIndexes more layout indexes of columns, e.g. the columns of a {@link RecordFilter}.
+	 * @return the projection of the columns of this and the indexes.
+	 */
+	public Projection union(int... columnIndexes) {
+		boolean[] union = selected.clone();
+		for (int index : columnIndexes) {
+			union[index] = true;
+		}
+		return new Projection(layout, union);
+	}
+
+	public RecordLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return true if the column (layout index) is requested.
+	 */
+	public boolean isSelected(int index) {
+		return selected[index];
+	}
+
+	/**
+	 * @return the number of requested columns.
+	 */
+	public int size() {
+		return columnIndexes.length;
+	}
+
+	/**
+	 * @param i 0 to size() - 1.
+	 * @return the layout index of the i-th requested column, in layout order.
+	 */
+	public int getColumnIndex(int i) {
+		return columnIndexes[i];
+	}
+
+	/**
+	 * @return the layout index of the last requested column, -1 if none: the record
+	 *         parser stops after it.
+	 */
+	public int getLastColumnIndex() {
+		return columnIndexes.length == 0 ? -1 : columnIndexes[columnIndexes.length - 1];
+	}
+
+	public List<String> getColumnNames() {
+		List<String> names = new ArrayList<String>(columnIndexes.length);
+		for (int index : columnIndexes) {
+			names.add(layout.getColumn(index).getName());
+		}
+		return Collections.unmodifiableList(names);
+	}
+}
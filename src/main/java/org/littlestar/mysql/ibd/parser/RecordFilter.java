@@ -0,0 +1,408 @@
+package org.littlestar.mysql.ibd.parser;
+
+import static org.littlestar.mysql.common.ParserHelper.getUInt8;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import org.littlestar.mysql.ibd.page.RecordCursor;
+
+/**
+ * A predicate on the records of a layout, evaluated on the undecoded field bytes
+ * of a {@link RecordCursor} (predicate pushdown): the constants are encoded once
+ * into the InnoDB store format, and each record is compared in page, before any
+ * RecordField, String or number is created for it.
+ *
+ * <ul>
+ * <li>integer columns: big-endian with the sign bit flipped (signed), so the
+ * encoded bytes compare as unsigned bytes in numeric order; BIGINT UNSIGNED
+ * constants are the unsigned 64 bits of the long, as RecordCursor.getLong().</li>
+ * <li>CHAR, VARCHAR, TEXT: a String constant is encoded as UTF-8 (utf8mb4, the
+ * default character set of MySQL 8) and only tested for binary equality in
+ * {@link #eq} and {@link #in}: case and accent sensitive, as utf8mb4_0900_bin,
+ * trailing spaces are significant (NO PAD) except for CHAR, which InnoDB stores
+ * padded with spaces. The order of strings depends on the column collation, which
+ * is not known here, so {@link #range} and friends reject String constants; pass
+ * the encoded bytes (byte[]) for a binary order.</li>
+ * <li>other columns: the constant is the stored bytes (byte[]), compared as unsigned bytes.</li>
+ * </ul>
+ *
+ * A comparison with a NULL field is false, as in SQL; an externally stored
+ * (off-page) field is not comparable and never matches.
+ *
+ * <pre>
+ * RecordLayout layout = tableMeta.getClusteredLeafLayout();
+ * // customer_id = 42 AND email IS NOT NULL
+ * RecordFilter filter = RecordFilter.eq(layout, "customer_id", 42).and(RecordFilter.isNotNull(layout, "email"));
+ * index.scan(filter, cursor -&gt; ...);
+ * </pre>
+ */
+public abstract class RecordFilter {
+	private final RecordLayout layout;
+	/** the layout indexes of the columns tested. */
+	private final int[] columnIndexes;
+
+	private RecordFilter(RecordLayout layout, int[] columnIndexes) {
+		this.layout = Objects.requireNonNull(layout);
+		this.columnIndexes = columnIndexes;
+	}
+
+	/**
+	 * @param cursor the cursor positioned on a record of the layout, the tested
+	 *               columns must be parsed (see {@link #getColumnIndexes()}).
+	 * @return true if the record matches.
+	 */
+	public abstract boolean test(RecordCursor cursor);
+
+	public RecordLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * @return the layout indexes of the tested columns, e.g. to build the projection of a cursor.
+	 */
+	public int[] getColumnIndexes() {
+		return columnIndexes.clone();
+	}
+
+	public RecordFilter and(RecordFilter other) {
+		final RecordFilter self = this;
+		return new RecordFilter(layout, union(other)) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return self.test(cursor) && other.test(cursor);
+			}
+		};
+	}
+
+	public RecordFilter or(RecordFilter other) {
+		final RecordFilter self = this;
+		return new RecordFilter(layout, union(other)) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return self.test(cursor) || other.test(cursor);
+			}
+		};
+	}
+
+	/**
+	 * the boolean negation, note that it is true for NULL fields (not SQL NOT).
+	 */
+	public RecordFilter negate() {
+		final RecordFilter self = this;
+		return new RecordFilter(layout, columnIndexes) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return !self.test(cursor);
+			}
+		};
+	}
+
+	private int[] union(RecordFilter other) {
+		if (other.layout != layout) {
+			throw new IllegalArgumentException("filters of different record layouts.");
+		}
+		TreeSet<Integer> indexes = new TreeSet<Integer>();
+		for (int index : columnIndexes) {
+			indexes.add(index);
+		}
+		for (int index : other.columnIndexes) {
+			indexes.add(index);
+		}
+		return indexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * column IS NULL.
+	 */
+	public static RecordFilter isNull(RecordLayout layout, String column) {
+		final int col = columnIndex(layout, column);
+		return new RecordFilter(layout, new int[] { col }) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return cursor.isNull(col);
+			}
+		};
+	}
+
+	/**
+	 * column IS NOT NULL.
+	 */
+	public static RecordFilter isNotNull(RecordLayout layout, String column) {
+		final int col = columnIndex(layout, column);
+		return new RecordFilter(layout, new int[] { col }) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return !cursor.isNull(col);
+			}
+		};
+	}
+
+	/**
+	 * column = value.
+	 */
+	public static RecordFilter eq(RecordLayout layout, String column, Object value) {
+		final int col = columnIndex(layout, column);
+		final Constant constant = Constant.of(layout.getColumn(col), value, false);
+		return new RecordFilter(layout, new int[] { col }) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				return comparable(cursor, col) && constant.compareField(cursor, col) == 0;
+			}
+		};
+	}
+
+	/**
+	 * column &lt; value.
+	 */
+	public static RecordFilter lt(RecordLayout layout, String column, Object value) {
+		return range(layout, column, null, false, value, false);
+	}
+
+	/**
+	 * column &lt;= value.
+	 */
+	public static RecordFilter le(RecordLayout layout, String column, Object value) {
+		return range(layout, column, null, false, value, true);
+	}
+
+	/**
+	 * column &gt; value.
+	 */
+	public static RecordFilter gt(RecordLayout layout, String column, Object value) {
+		return range(layout, column, value, false, null, false);
+	}
+
+	/**
+	 * column &gt;= value.
+	 */
+	public static RecordFilter ge(RecordLayout layout, String column, Object value) {
+		return range(layout, column, value, true, null, false);
+	}
+
+	/**
+	 * column BETWEEN lower AND upper.
+	 */
+	public static RecordFilter between(RecordLayout layout, String column, Object lower, Object upper) {
+		return range(layout, column, Objects.requireNonNull(lower), true, Objects.requireNonNull(upper), true);
+	}
+
+	/**
+	 * a range of the column.
+	 *
+	 * @param lower the lower bound, null if unbounded.
+	 * @param upper the upper bound, null if unbounded.
+	 * @throws IllegalArgumentException if a bound is a String, the order of strings
+	 *         follows the column collation, see {@link RecordFilter}.
+	 */
+	public static RecordFilter range(RecordLayout layout, String column, Object lower, boolean lowerInclusive,
+			Object upper, boolean upperInclusive) {
+		final int col = columnIndex(layout, column);
+		final ColumnMeta meta = layout.getColumn(col);
+		final Constant lowerConstant = Objects.isNull(lower) ? null : Constant.of(meta, lower, true);
+		final Constant upperConstant = Objects.isNull(upper) ? null : Constant.of(meta, upper, true);
+		final int lowerMin = lowerInclusive ? 0 : 1;
+		final int upperMax = upperInclusive ? 0 : -1;
+		return new RecordFilter(layout, new int[] { col }) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				if (!comparable(cursor, col)) {
+					return false;
+				}
+				if (Objects.nonNull(lowerConstant) && lowerConstant.compareField(cursor, col) < lowerMin) {
+					return false;
+				}
+				return Objects.isNull(upperConstant) || upperConstant.compareField(cursor, col) <= upperMax;
+			}
+		};
+	}
+
+	/**
+	 * column IN (values...), the values are sorted once and each field is searched by binary search.
+	 */
+	public static RecordFilter in(RecordLayout layout, String column, Object... values) {
+		final int col = columnIndex(layout, column);
+		final ColumnMeta meta = layout.getColumn(col);
+		final Constant[] constants = new Constant[values.length];
+		for (int i = 0; i < values.length; i++) {
+			constants[i] = Constant.of(meta, Objects.requireNonNull(values[i]), false);
+		}
+		Arrays.sort(constants, Constant.ORDER);
+		return new RecordFilter(layout, new int[] { col }) {
+			@Override
+			public boolean test(RecordCursor cursor) {
+				if (!comparable(cursor, col)) {
+					return false;
+				}
+				int low = 0;
+				int high = constants.length - 1;
+				while (low <= high) {
+					int mid = (low + high) >>> 1;
+					// field - constant
+					int cmp = constants[mid].compareField(cursor, col);
+					if (cmp > 0) {
+						low = mid + 1;
+					} else if (cmp < 0) {
+						high = mid - 1;
+					} else {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	private static boolean comparable(RecordCursor cursor, int col) {
+		return !cursor.isNull(col) && !cursor.isExternal(col);
+	}
+
+	private static int columnIndex(RecordLayout layout, String column) {
+		int index = layout.indexOf(column);
+		if (index < 0) {
+			throw new IllegalArgumentException("column not found in record layout: " + column);
+		}
+		return index;
+	}
+
+	/**
+	 * unsigned lexicographic compare of a[aOff, aOff + aLen) and b, when padSpace the
+	 * shorter one is extended with spaces (0x20).
+	 */
+	static int compareBytes(byte[] a, int aOff, int aLen, byte[] b, boolean padSpace) {
+		final int n = Math.min(aLen, b.length);
+		for (int i = 0; i < n; i++) {
+			int cmp = getUInt8(a[aOff + i]) - getUInt8(b[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		if (!padSpace) {
+			return aLen - b.length;
+		}
+		for (int i = n; i < aLen; i++) {
+			int cmp = getUInt8(a[aOff + i]) - ' ';
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		for (int i = n; i < b.length; i++) {
+			int cmp = ' ' - getUInt8(b[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * A constant in the store format of a column.
+	 */
+	private static final class Constant {
+		static final Comparator<Constant> ORDER = (x, y) -> {
+			if (x.outOfRange != 0 || y.outOfRange != 0) {
+				return Integer.compare(x.outOfRange, y.outOfRange);
+			}
+			return compareBytes(x.encoded, 0, x.encoded.length, y.encoded, x.padSpace);
+		};
+
+		/** the encoded bytes, null if out of the column range. */
+		final byte[] encoded;
+		/** -1 if below, 1 if above the range of integer column, otherwise 0. */
+		final int outOfRange;
+		final boolean padSpace;
+
+		private Constant(byte[] encoded, int outOfRange, boolean padSpace) {
+			this.encoded = encoded;
+			this.outOfRange = outOfRange;
+			this.padSpace = padSpace;
+		}
+
+		/**
+		 * @return the sign of (field - constant).
+		 */
+		int compareField(RecordCursor cursor, int col) {
+			if (outOfRange != 0) {
+				return -outOfRange;
+			}
+			return compareBytes(cursor.getPageRaw(), cursor.getOffset(col), cursor.getLength(col), encoded, padSpace);
+		}
+
+		/**
+		 * @param ordered true if the constant is a bound of range, String constants
+		 *                are only for equality.
+		 */
+		static Constant of(ColumnMeta meta, Object value, boolean ordered) {
+			final String type = meta.getType();
+			if (ColumnType.isInteger(type)) {
+				return ofInteger(meta, value);
+			}
+			if (value instanceof byte[]) {
+				return new Constant(((byte[]) value).clone(), 0, false);
+			}
+			switch (type) {
+			case ColumnType.CHAR:
+			case ColumnType.VARCHAR:
+			case ColumnType.TINYTEXT:
+			case ColumnType.TEXT:
+			case ColumnType.MEDIUMTEXT:
+			case ColumnType.LONGTEXT:
+				if (value instanceof String) {
+					if (ordered) {
+						throw new IllegalArgumentException("the order of " + meta.getName() + " " + type
+								+ " follows its collation, compare the encoded bytes (byte[]) for a binary order.");
+					}
+					return new Constant(((String) value).getBytes(StandardCharsets.UTF_8), 0, ColumnType.CHAR.equals(type));
+				}
+				break;
+			default:
+				break;
+			}
+			throw new IllegalArgumentException(
+					"unsupported constant " + value.getClass().getSimpleName() + " for column " + meta.getName() + " " + type);
+		}
+
+		/**
+		 * big-endian of the column length, with the sign bit flipped if signed.
+		 */
+		private static Constant ofInteger(ColumnMeta meta, Object value) {
+			if (!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) {
+				throw new IllegalArgumentException("integer column " + meta.getName() + " needs an integer constant, but "
+						+ value.getClass().getSimpleName() + " given.");
+			}
+			final long v = ((Number) value).longValue();
+			final int len = meta.getLength();
+			final int bits = len * 8;
+			final boolean signed = ColumnType.isSignedInteger(meta.getType());
+			long stored = v;
+			if (signed) {
+				if (bits < 64) {
+					long min = -1L << (bits - 1);
+					if (v < min) {
+						return new Constant(null, -1, false);
+					}
+					if (v > ~min) {
+						return new Constant(null, 1, false);
+					}
+				}
+				stored = v ^ (1L << (bits - 1));
+			} else if (bits < 64) {
+				if (v < 0) {
+					// a negative constant is below any unsigned value.
+					return new Constant(null, -1, false);
+				}
+				if ((v >>> bits) != 0) {
+					return new Constant(null, 1, false);
+				}
+			}
+			byte[] encoded = new byte[len];
+			for (int i = len - 1; i >= 0; i--, stored >>>= 8) {
+				encoded[i] = (byte) stored;
+			}
+			return new Constant(encoded, 0, false);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package org.littlestar.mysql.ibd.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiled, immutable decode plan of the records of an index: the fields in
+ * record order and, per field, the null-bitmap bit, the variable-length flag,
+ * the fixed length/offset and the value decoder, in flat arrays. It is derived
+ * once from the meta data, so the record parser does not sort columns or count
+ * nullable columns per record.
+ *
+ * <pre>
+ * +------------------------+-------------+--------------+---------------------------+--------------+
+ * | variable-field-lengths | null-bitmap | record-extra | contents (fields...)      | child page   |
+ * | (reverse field order)  |             | (5)          |                           | (4, non-leaf)|
+ * +------------------------+-------------+--------------+---------------------------+--------------+
+ *                                                       ^ record position
+ * </pre>
+ *
+ * <ul>
+ * <li>Clustered Key - Leaf: all columns of table.</li>
+ * <li>Clustered Key - Non Leaf: cluster key columns + child page number, the null-bitmap is sized by
+ * the nullable columns of table.</li>
+ * <li>Secondary Key - Leaf: secondary key columns + cluster key columns.</li>
+ * <li>Secondary Key - Non Leaf: secondary key columns + cluster key columns + child page number.</li>
+ * </ul>
+ *
+ * @see TableMeta#getClusteredLeafLayout()
+ */
+public final class RecordLayout {
+	/** child page number of node pointer record (non-leaf page). */
+	public static final int CHILD_PAGE_NUMBER_LENGTH = 4;
+
+	private final ColumnMeta[] columns;
+	private final ColumnDecoder[] decoders;
+	/** bit index in null-bitmap, -1 if the column is NOT NULL. */
+	private final int[] nullBitmapIndexes;
+	private final boolean[] variableLengths;
+	/** length of the fixed-length column, or max length of variable-length column. */
+	private final int[] lengths;
+	/** offset in contents, -1 if any variable-length or nullable column before it. */
+	private final int[] fixedOffsets;
+	private final int nullableColumnCount;
+	private final int nullBitmapBytes;
+	private final int keyColumnCount;
+	private final boolean nodePointer;
+
+	private RecordLayout(List<ColumnMeta> columnList, int keyColumnCount, int nullBitmapColumns, boolean nodePointer) {
+		final int n = columnList.size();
+		columns = columnList.toArray(new ColumnMeta[n]);
+		decoders = new ColumnDecoder[n];
+		nullBitmapIndexes = new int[n];
+		variableLengths = new boolean[n];
+		lengths = new int[n];
+		fixedOffsets = new int[n];
+		int nullables = 0;
+		int fixedOffset = 0;
+		for (int i = 0; i < n; i++) {
+			ColumnMeta column = columns[i];
+			decoders[i] = ColumnDecoder.of(column);
+			nullBitmapIndexes[i] = column.isNullable() ? nullables++ : -1;
+			variableLengths[i] = column.isVariableLength();
+			lengths[i] = column.getLength();
+			fixedOffsets[i] = fixedOffset;
+			if (fixedOffset >= 0) {
+				fixedOffset = (column.isNullable() || column.isVariableLength()) ? -1 : fixedOffset + column.getLength();
+			}
+		}
+		this.nullableColumnCount = nullables;
+		this.nullBitmapBytes = (Math.max(nullables, nullBitmapColumns) + 7) / 8;
+		this.keyColumnCount = keyColumnCount;
+		this.nodePointer = nodePointer;
+	}
+
+	/**
+	 * layout of Clustered Key - Leaf Page records.
+	 */
+	public static RecordLayout newClusteredLeafLayout(TableMeta tableMeta) {
+		List<ColumnMeta> columns = tableMeta.getColumns();
+		return new RecordLayout(columns, tableMeta.getClusterKey().getKeyColumns().size(), 0, false);
+	}
+
+	/**
+	 * layout of Clustered Key - Non Leaf Page records.
+	 */
+	public static RecordLayout newClusteredNonLeafLayout(TableMeta tableMeta) {
+		List<ColumnMeta> keyColumns = tableMeta.getClusterKey().getKeyColumns();
+		// node pointer records keep the null-bitmap of the whole clustered index.
+		return new RecordLayout(keyColumns, keyColumns.size(), tableMeta.getNullableColumnCount(), true);
+	}
+
+	/**
+	 * layout of Secondary Key - Leaf Page records.
+	 */
+	public static RecordLayout newSecondaryLeafLayout(KeyMeta secondaryKeyMeta, KeyMeta clusterKeyMeta) {
+		return newSecondaryLayout(secondaryKeyMeta, clusterKeyMeta, false);
+	}
+
+	/**
+	 * layout of Secondary Key - Non Leaf Page records.
+	 */
+	public static RecordLayout newSecondaryNonLeafLayout(KeyMeta secondaryKeyMeta, KeyMeta clusterKeyMeta) {
+		return newSecondaryLayout(secondaryKeyMeta, clusterKeyMeta, true);
+	}
+
+	private static RecordLayout newSecondaryLayout(KeyMeta secondaryKeyMeta, KeyMeta clusterKeyMeta, boolean nodePointer) {
+		if (Objects.isNull(clusterKeyMeta) || Objects.isNull(secondaryKeyMeta)) {
+			throw new IllegalArgumentException("CluserKey or SecondaryKey meta in TableMeta is null.");
+		}
+		List<ColumnMeta> secondaryKeyColumns = secondaryKeyMeta.getKeyColumns();
+		List<ColumnMeta> columns = new ArrayList<ColumnMeta>(secondaryKeyColumns);
+		columns.addAll(clusterKeyMeta.getKeyColumns());
+		return new RecordLayout(columns, secondaryKeyColumns.size(), 0, nodePointer);
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public ColumnMeta getColumn(int index) {
+		return columns[index];
+	}
+
+	public List<ColumnMeta> getColumns() {
+		return Collections.unmodifiableList(Arrays.asList(columns));
+	}
+
+	/**
+	 * @return the index of the column in record, -1 if not found.
+	 */
+	public int indexOf(String columnName) {
+		for (int i = 0; i < columns.length; i++) {
+			if (Objects.equals(columns[i].getName(), columnName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public ColumnDecoder getDecoder(int index) {
+		return decoders[index];
+	}
+
+	/**
+	 * @return the bit index of column in null-bitmap, -1 if the column is NOT NULL.
+	 */
+	public int getNullBitmapIndex(int index) {
+		return nullBitmapIndexes[index];
+	}
+
+	public boolean isVariableLength(int index) {
+		return variableLengths[index];
+	}
+
+	/**
+	 * @return the length of fixed-length column, or the max length of variable-length column.
+	 */
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * @return the offset of column in record contents, -1 if it depends on the record
+	 *         (any variable-length or nullable column before it).
+	 */
+	public int getFixedOffset(int index) {
+		return fixedOffsets[index];
+	}
+
+	public int getNullableColumnCount() {
+		return nullableColumnCount;
+	}
+
+	public int getNullBitmapBytes() {
+		return nullBitmapBytes;
+	}
+
+	/**
+	 * the leading key columns: cluster key columns for clustered index, secondary key columns for secondary index.
+	 */
+	public int getKeyColumnCount() {
+		return keyColumnCount;
+	}
+
+	/**
+	 * @return true if records are node pointers, with a child page number after the fields.
+	 */
+	public boolean isNodePointer() {
+		return nodePointer;
+	}
+}
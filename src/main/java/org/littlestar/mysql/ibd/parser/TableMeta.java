@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class TableMeta {
@@ -16,10 +17,18 @@ public class TableMeta {
 	private KeyMeta clusterKey;
 	private final HashMap<Long, KeyMeta> secondaryKeys;
 
+	//// compiled record layouts, built on first use, see invalidateLayouts().
+	private volatile RecordLayout clusteredLeafLayout;
+	private volatile RecordLayout clusteredNonLeafLayout;
+	private final ConcurrentHashMap<Long, RecordLayout> secondaryLeafLayouts;
+	private final ConcurrentHashMap<Long, RecordLayout> secondaryNonLeafLayouts;
+
 	public TableMeta() {
 		columnMap = new HashMap<Integer, ColumnMeta>();
 		clusterKey = new KeyMeta();
 		secondaryKeys = new HashMap<Long, KeyMeta>();
+		secondaryLeafLayouts = new ConcurrentHashMap<Long, RecordLayout>();
+		secondaryNonLeafLayouts = new ConcurrentHashMap<Long, RecordLayout>();
 	}
 
 	public ColumnMeta getColumn(int pos) {
@@ -40,6 +49,7 @@ public class TableMeta {
 			Integer pos = column.getPos();
 			if (Objects.nonNull(pos)) {
 				columnMap.put(pos, column);
+				invalidateLayouts();
 			}
 		}
 		return this;
@@ -51,6 +61,7 @@ public class TableMeta {
 
 	public TableMeta setClusterKey(KeyMeta keyMeta) {
 		clusterKey = keyMeta;
+		invalidateLayouts();
 		return this;
 	}
 
@@ -61,6 +72,7 @@ public class TableMeta {
 	
 	public TableMeta setClusterKey(int seqInindex, ColumnMeta column) {
 		clusterKey.setKeyColumn(seqInindex, column);
+		invalidateLayouts();
 		return this;
 	}
 
@@ -78,6 +90,7 @@ public class TableMeta {
 
 	public TableMeta setSecondaryKey(KeyMeta keyMeta) {
 		secondaryKeys.put(keyMeta.getIndexId(), keyMeta);
+		invalidateLayouts();
 		return this;
 	}
 	
@@ -92,6 +105,7 @@ public class TableMeta {
 			secondaryKeys.put(indexId, key);
 		}
 		key.setKeyColumn(seqInindex, column);
+		invalidateLayouts();
 		return this;
 	}
 	
@@ -146,6 +160,106 @@ public class TableMeta {
 		return count;
 	}
 
+	/**
+	 * the record layout of Clustered Key - Leaf Pages, compiled once and cached.
+	 * The layouts are compared by identity, so the threads racing on the first call
+	 * get the same instance.
+	 * 
+	 * @return the record layout.
+	 */
+	public RecordLayout getClusteredLeafLayout() {
+		RecordLayout layout = clusteredLeafLayout;
+		if (Objects.isNull(layout)) {
+			synchronized (this) {
+				layout = clusteredLeafLayout;
+				if (Objects.isNull(layout)) {
+					clusteredLeafLayout = layout = RecordLayout.newClusteredLeafLayout(this);
+				}
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * the record layout of Clustered Key - Non Leaf Pages, compiled once and cached.
+	 * 
+	 * @return the record layout.
+	 */
+	public RecordLayout getClusteredNonLeafLayout() {
+		RecordLayout layout = clusteredNonLeafLayout;
+		if (Objects.isNull(layout)) {
+			synchronized (this) {
+				layout = clusteredNonLeafLayout;
+				if (Objects.isNull(layout)) {
+					clusteredNonLeafLayout = layout = RecordLayout.newClusteredNonLeafLayout(this);
+				}
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * the record layout of Secondary Key - Leaf Pages of the index, compiled once and cached.
+	 * 
+	 * @param indexId the index id of secondary key.
+	 * @return the record layout.
+	 */
+	public RecordLayout getSecondaryLeafLayout(long indexId) {
+		RecordLayout layout = secondaryLeafLayouts.get(indexId);
+		if (Objects.isNull(layout)) {
+			synchronized (this) {
+				layout = secondaryLeafLayouts.get(indexId);
+				if (Objects.isNull(layout)) {
+					layout = RecordLayout.newSecondaryLeafLayout(getSecondaryKeyOrThrow(indexId), clusterKey);
+					secondaryLeafLayouts.put(indexId, layout);
+				}
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * the record layout of Secondary Key - Non Leaf Pages of the index, compiled once and cached.
+	 * 
+	 * @param indexId the index id of secondary key.
+	 * @return the record layout.
+	 */
+	public RecordLayout getSecondaryNonLeafLayout(long indexId) {
+		RecordLayout layout = secondaryNonLeafLayouts.get(indexId);
+		if (Objects.isNull(layout)) {
+			synchronized (this) {
+				layout = secondaryNonLeafLayouts.get(indexId);
+				if (Objects.isNull(layout)) {
+					layout = RecordLayout.newSecondaryNonLeafLayout(getSecondaryKeyOrThrow(indexId), clusterKey);
+					secondaryNonLeafLayouts.put(indexId, layout);
+				}
+			}
+		}
+		return layout;
+	}
+
+	private KeyMeta getSecondaryKeyOrThrow(long indexId) {
+		KeyMeta secondaryKeyMeta = getSecondaryKey(indexId);
+		if (Objects.isNull(secondaryKeyMeta)) {
+			throw new RuntimeException("secondary key meta not found or is null in table meta, index id: " + indexId);
+		}
+		if (Objects.isNull(clusterKey)) {
+			throw new RuntimeException("cluster key meta not found or is null in table meta");
+		}
+		return secondaryKeyMeta;
+	}
+
+	/**
+	 * drop the compiled record layouts. The setters of TableMeta call it, call it
+	 * after changing the column or key meta data in other ways (e.g. getColumnMap().put(...)).
+	 */
+	public synchronized void invalidateLayouts() {
+		clusteredLeafLayout = null;
+		clusteredNonLeafLayout = null;
+		secondaryLeafLayouts.clear();
+		secondaryNonLeafLayouts.clear();
+	}
+
 	public String getTableName() {
 		return tableName;
 	}
@@ -0,0 +1,508 @@
+package org.littlestar.mysql.ibd;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.littlestar.mysql.ibd.parser.ColumnMeta.newColumnMeta;
+import static org.littlestar.mysql.ibd.parser.ColumnMeta.newFixLengthColumnMeta;
+import static org.littlestar.mysql.ibd.parser.ColumnMeta.newRollPtrColumnMeta;
+import static org.littlestar.mysql.ibd.parser.ColumnMeta.newTrxIdColumnMeta;
+import static org.littlestar.mysql.ibd.parser.ColumnType.INT;
+import static org.littlestar.mysql.ibd.parser.ColumnType.VARCHAR;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage;
+import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage.ClusteredKeyLeafRecord;
+import org.littlestar.mysql.ibd.page.ClusteredKeyNonLeafPage;
+import org.littlestar.mysql.ibd.page.ClusteredKeyNonLeafPage.ClusteredKeyNonLeafRecord;
+import org.littlestar.mysql.ibd.page.IndexPage;
+import org.littlestar.mysql.ibd.page.IndexPage.RecordField;
+import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.PageView;
+import org.littlestar.mysql.ibd.page.RecordCursor;
+import org.littlestar.mysql.ibd.parser.Aggregator;
+import org.littlestar.mysql.ibd.parser.ClusteredIndex;
+import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.IbdFileParser;
+import org.littlestar.mysql.ibd.parser.PageCache;
+import org.littlestar.mysql.ibd.parser.Projection;
+import org.littlestar.mysql.ibd.parser.RecordFilter;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
+import org.littlestar.mysql.ibd.parser.TableMeta;
+
+/**
+ * composite_key.ibd, see {@link CompositeKeyTest}: the clustered index root is
+ * page 4 (level 1), the leaves are page 6, 11, 7, 10 ... in key order.
+ */
+class ClusteredIndexTest {
+	final String ibdFile = "src/test/cases/ibd/8.0.18/composite_key.ibd";
+
+	final ColumnMeta pk1 = newColumnMeta(VARCHAR, 1, "pk1", 800, false, true);
+	final ColumnMeta pk2 = newColumnMeta(VARCHAR, 2, "pk2", 32, false, true);
+	final ColumnMeta sk1 = newColumnMeta(VARCHAR, 5, "sk1", 800, true, true);
+	final ColumnMeta sk2 = newFixLengthColumnMeta(INT, 6, "sk2", true);
+
+	final long clusterKeyRootPageNo = 4;
+	final long clusterKeyId = 2005;
+
+	TableMeta getTableMeta() {
+		return new TableMeta()
+				.addColumn(pk1)
+				.addColumn(pk2)
+				.addColumn(newTrxIdColumnMeta(3))
+				.addColumn(newRollPtrColumnMeta(4))
+				.addColumn(sk1)
+				.addColumn(sk2)
+				.setClusterKey(1, pk1)
+				.setClusterKey(2, pk2);
+	}
+
+	/**
+	 * the rows of all leaf pages, page by page along the FIL_PAGE_NEXT chain.
+	 */
+	List<String> getLeafChainKeys(IbdFileParser parser, long leftmostLeaf) throws Exception {
+		List<String> keys = new ArrayList<String>();
+		for (long pageNo = leftmostLeaf; pageNo != PageView.FIL_NULL;) {
+			Page page = parser.getPage(pageNo);
+			ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			for (ClusteredKeyLeafRecord record : leafPage.getUserRecords(getTableMeta())) {
+				keys.add((String) record.getRecordFields().get(0).getContent());
+			}
+			pageNo = page.getFilHeader().getNextPage();
+		}
+		return keys;
+	}
+
+	@Test
+	void testRootPage() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			assertEquals(clusterKeyRootPageNo, parser.getIndexRootPage(0));
+			assertEquals(clusterKeyRootPageNo, parser.getIndexRootPage(clusterKeyId));
+			assertEquals(clusterKeyRootPageNo, parser.getClusteredIndex(getTableMeta()).getRootPageNumber());
+			assertEquals(-1, parser.getIndexRootPage(Long.MAX_VALUE));
+		}
+	}
+
+	@Test
+	void testRowIterator() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			ClusteredIndex index = parser.getClusteredIndex(getTableMeta(), clusterKeyRootPageNo);
+			long leftmostLeaf = index.getLeftmostLeafPageNumber();
+			assertEquals(6, leftmostLeaf);
+			List<String> expected = getLeafChainKeys(parser, leftmostLeaf);
+			List<String> keys = new ArrayList<String>();
+			for (ClusteredKeyLeafRecord row : index) {
+				assertEquals(6, row.getRecordFields().size());
+				keys.add((String) row.getRecordFields().get(0).getContent());
+			}
+			assertEquals(599, keys.size());
+			assertEquals(expected, keys);
+			assertEquals("AARON.SELBY@sakilacustomer.org", keys.get(0));
+			assertEquals(keys.size(), index.stream().count());
+		}
+	}
+
+	@Test
+	void testLookup() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			ClusteredIndex index = parser.getClusteredIndex(getTableMeta(), clusterKeyRootPageNo);
+			List<Object[]> keys = new ArrayList<Object[]>();
+			for (ClusteredKeyLeafRecord row : index) {
+				List<RecordField> fields = index.getKeyFields(row);
+				keys.add(new Object[] { fields.get(0).getContent(), fields.get(1).getContent() });
+			}
+			PageCache cache = PageCache.newLruCache(parser.getPageSize(), parser.getPageSize());
+			parser.setPageCache(cache);
+			for (Object[] key : keys) {
+				cache.clear();
+				cache.resetCounters();
+				ClusteredKeyLeafRecord row = index.lookup(key);
+				assertNotNull(row);
+				assertEquals(key[0], row.getRecordFields().get(0).getContent());
+				assertEquals(key[1], row.getRecordFields().get(1).getContent());
+				// root + leaf.
+				assertEquals(2, cache.getMissCount());
+			}
+			parser.setPageCache(null);
+			ClusteredKeyLeafRecord row = index.lookup("ADAM.GOOCH@sakilacustomer.org", "ADAM");
+			assertNotNull(row);
+			assertEquals(BigInteger.valueOf(367), row.getRecordFields().get(5).getContent());
+			assertNull(index.lookup("ADAM.GOOCH@sakilacustomer.org", "ADA"));
+			assertNull(index.lookup("A", "A"));
+			assertNull(index.lookup("ZZZ", "ZZZ"));
+			assertThrows(IllegalArgumentException.class, () -> index.lookup("ADAM.GOOCH@sakilacustomer.org"));
+		}
+	}
+
+	List<String> getKeys(Iterator<ClusteredKeyLeafRecord> rows) {
+		List<String> keys = new ArrayList<String>();
+		while (rows.hasNext()) {
+			keys.add((String) rows.next().getRecordFields().get(0).getContent());
+		}
+		return keys;
+	}
+
+	@Test
+	void testRangeScan() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			ClusteredIndex index = parser.getClusteredIndex(getTableMeta(), clusterKeyRootPageNo);
+			List<Object[]> keys = new ArrayList<Object[]>();
+			for (ClusteredKeyLeafRecord row : index) {
+				List<RecordField> fields = index.getKeyFields(row);
+				keys.add(new Object[] { fields.get(0).getContent(), fields.get(1).getContent() });
+			}
+			List<String> all = new ArrayList<String>();
+			for (Object[] key : keys) {
+				all.add((String) key[0]);
+			}
+			int[][] ranges = { { 0, 598 }, { 1, 5 }, { 100, 300 }, { 250, 251 }, { 598, 598 }, { 10, 10 } };
+			for (int[] range : ranges) {
+				Object[] lower = keys.get(range[0]);
+				Object[] upper = keys.get(range[1]);
+				assertEquals(all.subList(range[0], range[1] + 1), getKeys(index.iterator(lower, true, upper, true)));
+				assertEquals(all.subList(range[0] + 1, range[1] + 1), getKeys(index.iterator(lower, false, upper, true)));
+				assertEquals(all.subList(range[0], Math.max(range[0], range[1])), getKeys(index.iterator(lower, true, upper, false)));
+				assertEquals(all.subList(range[0], 599), getKeys(index.iterator(lower, true, null, false)));
+				assertEquals(all.subList(0, range[1]), getKeys(index.iterator(null, false, upper, false)));
+			}
+			// key prefix: pk1 only.
+			assertEquals(all.subList(100, 301),
+					getKeys(index.iterator(new Object[] { keys.get(100)[0] }, true, new Object[] { keys.get(300)[0] }, true)));
+			assertEquals(all.subList(101, 300),
+					getKeys(index.iterator(new Object[] { keys.get(100)[0] }, false, new Object[] { keys.get(300)[0] }, false)));
+			List<String> aRows = getKeys(index.iterator(new Object[] { "A" }, true, new Object[] { "B" }, false));
+			assertEquals(all.stream().filter(k -> k.startsWith("A")).count(), aRows.size());
+			assertTrue(getKeys(index.iterator(new Object[] { "ZZZ" }, true, null, false)).isEmpty());
+			assertEquals(201, index.stream(keys.get(100), true, keys.get(300), true).count());
+
+			// a range inside the leftmost leaf reads the root and one leaf only.
+			PageCache cache = PageCache.newLruCache(16 * parser.getPageSize(), parser.getPageSize());
+			parser.setPageCache(cache);
+			assertEquals(5, getKeys(index.iterator(keys.get(1), true, keys.get(5), true)).size());
+			assertEquals(2, cache.getMissCount());
+			parser.setPageCache(null);
+		}
+	}
+
+	@Test
+	void testPageDirectorySeek() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			for (long pageNo = index.getLeftmostLeafPageNumber(); pageNo != PageView.FIL_NULL;) {
+				Page page = parser.getPage(pageNo);
+				ClusteredKeyLeafPage leafPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+				int slotCount = leafPage.getIndexHeader().getDirectorySlotCount();
+				assertEquals(IndexPage.INFIMUM_EXTRA_END_POS, leafPage.getDirectorySlot(0));
+				assertEquals(IndexPage.SUPREMUM_EXTRA_END_POS, leafPage.getDirectorySlot(slotCount - 1));
+				List<ClusteredKeyLeafRecord> records = leafPage.getUserRecords(tableMeta);
+				int prevPos = IndexPage.INFIMUM_EXTRA_END_POS;
+				for (ClusteredKeyLeafRecord record : records) {
+					final Object[] key = { index.getKeyFields(record).get(0).getContent(), index.getKeyFields(record).get(1).getContent() };
+					final int[] compares = { 0 };
+					int pos = leafPage.seekRecordPos((int recordPos) -> {
+						compares[0]++;
+						return index.getKeyComparator().compare(index.getKeyFields(leafPage.getRecord(tableMeta, recordPos)), key) < 0;
+					});
+					assertEquals(prevPos, pos);
+					assertTrue(compares[0] <= 32 - Integer.numberOfLeadingZeros(slotCount) + 8);
+					prevPos = leafPage.getNextRecordPos(pos);
+				}
+				pageNo = page.getFilHeader().getNextPage();
+			}
+		}
+	}
+
+	@Test
+	void testRecordCursor() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			final List<ClusteredKeyLeafRecord> rows = new ArrayList<ClusteredKeyLeafRecord>();
+			index.forEach(rows::add);
+			final RecordCursor[] cursors = { null };
+			final int[] n = { 0 };
+			long count = index.scan((RecordCursor cursor) -> {
+				// the same cursor for every row.
+				if (cursors[0] == null) {
+					cursors[0] = cursor;
+				}
+				assertTrue(cursors[0] == cursor);
+				List<RecordField> fields = rows.get(n[0]++).getRecordFields();
+				assertEquals(fields.get(0).getContent(), cursor.getString(0));
+				assertEquals(fields.get(1).getContent(), cursor.getString(1));
+				assertEquals(fields.get(4).getContent(), cursor.getString(4));
+				assertEquals(fields.get(4).isNull(), cursor.isNull(4));
+				assertEquals(fields.get(5).isNull(), cursor.isNull(5));
+				if (!cursor.isNull(5)) {
+					assertEquals(((BigInteger) fields.get(5).getContent()).longValueExact(), cursor.getLong(5));
+				}
+				// VARCHAR is not read as a number.
+				assertThrows(IllegalStateException.class, () -> cursor.getLong(1));
+				assertThrows(IllegalStateException.class, () -> cursor.getInt(1));
+				byte[] dst = new byte[cursor.getLength(0)];
+				assertEquals(dst.length, cursor.getBytes(0, dst));
+				assertEquals(fields.get(0).getContent(), new String(dst));
+				assertEquals(fields.get(0).getContent(), cursor.getObject(0));
+			});
+			assertEquals(599, count);
+			assertEquals(599, n[0]);
+
+			Page page = parser.getPage(clusterKeyRootPageNo);
+			ClusteredKeyNonLeafPage rootPage = new ClusteredKeyNonLeafPage(page.getPageRaw(), page.getPageSize());
+			RecordCursor nodePointer = new RecordCursor(tableMeta.getClusteredNonLeafLayout(), rootPage);
+			for (ClusteredKeyNonLeafRecord record : rootPage.getUserRecords(tableMeta)) {
+				assertTrue(nodePointer.next());
+				assertEquals(record.getChildPageNumber(), nodePointer.getChildPageNumber());
+				assertEquals(record.getMinClusterKeyOnChild().get(0).getContent(), nodePointer.getString(0));
+				assertEquals(record.getMinRecFlag(), nodePointer.isMinRec());
+			}
+			assertTrue(!nodePointer.next());
+		}
+	}
+
+	@Test
+	void testProjection() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			Projection projection = Projection.of(tableMeta.getClusteredLeafLayout(), "sk2", "pk2");
+			assertEquals(2, projection.size());
+			assertEquals(5, projection.getLastColumnIndex());
+			assertEquals("pk2", projection.getColumnNames().get(0));
+			assertThrows(IllegalArgumentException.class, () -> Projection.of(tableMeta.getClusteredLeafLayout(), "nope"));
+			assertThrows(IllegalArgumentException.class, () -> index.iterator(Projection.all(tableMeta.getClusteredNonLeafLayout())));
+
+			final List<ClusteredKeyLeafRecord> rows = new ArrayList<ClusteredKeyLeafRecord>();
+			index.forEach(rows::add);
+			Iterator<ClusteredKeyLeafRecord> projected = index.iterator(projection);
+			for (ClusteredKeyLeafRecord row : rows) {
+				List<RecordField> fields = projected.next().getRecordFields();
+				// only the requested columns, in record order.
+				assertEquals(2, fields.size());
+				assertEquals("pk2", fields.get(0).getName());
+				assertEquals(row.getRecordFields().get(1).getContent(), fields.get(0).getContent());
+				assertEquals("sk2", fields.get(1).getName());
+				assertEquals(row.getRecordFields().get(5).isNull(), fields.get(1).isNull());
+				assertEquals(row.getRecordFields().get(5).getContent(), fields.get(1).getContent());
+			}
+			assertTrue(!projected.hasNext());
+
+			// the cursor stops after pk1, the first column.
+			Projection first = Projection.of(tableMeta.getClusteredLeafLayout(), "pk1");
+			final int[] n = { 0 };
+			assertEquals(599, index.scan(first, (RecordCursor cursor) -> {
+				assertEquals(rows.get(n[0]++).getRecordFields().get(0).getContent(), cursor.getString(0));
+			}));
+		}
+	}
+
+	@Test
+	void testRecordFilter() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			RecordLayout layout = tableMeta.getClusteredLeafLayout();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			final List<ClusteredKeyLeafRecord> rows = new ArrayList<ClusteredKeyLeafRecord>();
+			index.forEach(rows::add);
+
+			String pk1 = "ADAM.GOOCH@sakilacustomer.org";
+			List<ClusteredKeyLeafRecord> matched = index.stream(null, RecordFilter.eq(layout, "pk1", pk1))
+					.collect(Collectors.toList());
+			assertEquals(1, matched.size());
+			assertEquals("ADAM", matched.get(0).getRecordFields().get(1).getContent());
+			// binary equality of VARCHAR, NO PAD and case sensitive.
+			assertEquals(0, index.stream(null, RecordFilter.eq(layout, "pk1", pk1 + "  ")).count());
+			assertEquals(0, index.stream(null, RecordFilter.eq(layout, "pk1", pk1.toLowerCase())).count());
+			assertEquals(0, index.stream(null, RecordFilter.eq(layout, "pk1", "ADAM")).count());
+			// the order of strings follows the collation, only a binary order of bytes is supported.
+			assertThrows(IllegalArgumentException.class, () -> RecordFilter.lt(layout, "pk1", "M"));
+
+			// pk1 BETWEEN 'A' AND 'B' in binary order, the same rows as the range scan.
+			long between = index.stream(null, RecordFilter.range(layout, "pk1", "A".getBytes(StandardCharsets.UTF_8), true,
+					"B".getBytes(StandardCharsets.UTF_8), true)).count();
+			assertTrue(between > 0);
+			assertEquals(rows.stream().filter(r -> {
+				String key = (String) r.getRecordFields().get(0).getContent();
+				return key.compareTo("A") >= 0 && key.compareTo("B") <= 0;
+			}).count(), between);
+
+			long nulls = rows.stream().filter(r -> r.getRecordFields().get(5).isNull()).count();
+			assertEquals(nulls, index.stream(null, RecordFilter.isNull(layout, "sk2")).count());
+			assertEquals(599 - nulls, index.stream(null, RecordFilter.isNotNull(layout, "sk2")).count());
+
+			// sk2 IN (...) AND pk2 <> 'LEO', projected to pk1.
+			List<Object> sk2Values = new ArrayList<Object>();
+			for (int i = 0; i < 20; i += 2) {
+				ClusteredKeyLeafRecord r = rows.get(i);
+				if (!r.getRecordFields().get(5).isNull()) {
+					sk2Values.add(r.getRecordFields().get(5).getInt());
+				}
+			}
+			RecordFilter filter = RecordFilter.in(layout, "sk2", sk2Values.toArray())
+					.and(RecordFilter.eq(layout, "pk2", "LEO").negate());
+			List<String> expected = new ArrayList<String>();
+			for (ClusteredKeyLeafRecord r : rows) {
+				List<RecordField> fields = r.getRecordFields();
+				if (!fields.get(5).isNull() && sk2Values.contains(fields.get(5).getInt()) && !"LEO".equals(fields.get(1).getContent())) {
+					expected.add((String) fields.get(0).getContent());
+				}
+			}
+			assertTrue(expected.size() > 0);
+			Projection projection = Projection.of(layout, "pk1");
+			assertEquals(expected, index.stream(projection, filter)
+					.map(r -> (String) r.getRecordFields().get(0).getContent()).collect(Collectors.toList()));
+			final List<String> scanned = new ArrayList<String>();
+			assertEquals(expected.size(), index.scan(projection, filter, (RecordCursor cursor) -> scanned.add(cursor.getString(0))));
+			assertEquals(expected, scanned);
+			assertEquals(expected.size(), index.scan(filter, (RecordCursor cursor) -> {}));
+			assertThrows(IllegalArgumentException.class, () -> RecordFilter.eq(layout, "sk2", "1"));
+		}
+	}
+
+	@Test
+	void testAggregate() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			RecordLayout layout = tableMeta.getClusteredLeafLayout();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			final List<ClusteredKeyLeafRecord> rows = new ArrayList<ClusteredKeyLeafRecord>();
+			index.forEach(rows::add);
+			long live = rows.stream().filter(r -> !r.getDeletedFlag()).count();
+
+			// COUNT(*) from PAGE_N_RECS.
+			Aggregator count = index.aggregate(new Aggregator(layout));
+			assertEquals(live, count.getCount());
+			assertEquals(599 - live, count.getDeleteMarkedRecords());
+			assertEquals(1, count.getGroups().size());
+
+			// SELECT pk2, COUNT(*), SUM(sk2), MIN(sk2), MAX(sk2) FROM t WHERE pk1 < 'M' GROUP BY pk2
+			Aggregator aggregator = new Aggregator(layout).filter(RecordFilter.lt(layout, "pk1", "M".getBytes(StandardCharsets.UTF_8)))
+					.groupBy("pk2").sum("sk2").min("sk2").max("sk2");
+			index.aggregate(aggregator);
+			Map<Object, long[]> expected = new LinkedHashMap<Object, long[]>();
+			for (ClusteredKeyLeafRecord r : rows) {
+				List<RecordField> fields = r.getRecordFields();
+				if (r.getDeletedFlag() || ((String) fields.get(0).getContent()).compareTo("M") >= 0) {
+					continue;
+				}
+				long[] values = expected.computeIfAbsent(fields.get(1).getContent(),
+						k -> new long[] { 0, 0, Long.MAX_VALUE, Long.MIN_VALUE });
+				values[0]++;
+				if (!fields.get(5).isNull()) {
+					long sk2 = fields.get(5).getLong();
+					values[1] += sk2;
+					values[2] = Math.min(values[2], sk2);
+					values[3] = Math.max(values[3], sk2);
+				}
+			}
+			assertEquals(expected.size(), aggregator.getGroups().size());
+			long total = 0;
+			for (Aggregator.Group group : aggregator.getGroups()) {
+				long[] values = expected.get(group.getKey());
+				assertNotNull(values);
+				assertEquals(values[0], group.getCount());
+				if (group.hasValue(0)) {
+					assertEquals(values[1], group.getValue(0));
+					assertEquals(values[2], group.getValue(1));
+					assertEquals(values[3], group.getValue(2));
+				} else {
+					assertEquals(Long.MAX_VALUE, values[2]);
+				}
+				total += group.getCount();
+			}
+			assertEquals(total, aggregator.getCount());
+			assertThrows(IllegalArgumentException.class, () -> new Aggregator(layout).sum("pk1"));
+			assertThrows(IllegalStateException.class, () -> aggregator.groupBy("pk1"));
+
+			// getGroups() is a pure read: an unstarted aggregator can still be configured.
+			Aggregator empty = new Aggregator(layout);
+			assertEquals(1, empty.getGroups().size());
+			assertEquals(0, empty.getGroups().get(0).getCount());
+			assertFalse(empty.max("sk2").getGroups().get(0).hasValue(0));
+			assertEquals(live, index.aggregate(empty).getGroups().get(0).getCount());
+		}
+	}
+
+	@Test
+	void testOrderedParallelIterator() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			List<String> expected = getLeafChainKeys(parser, index.getLeftmostLeafPageNumber());
+			for (int maxPagesInFlight : new int[] { 1, 2, 64 }) {
+				List<String> keys = index.stream(null, null, executor, maxPagesInFlight)
+						.map(row -> (String) row.getRecordFields().get(0).getContent()).collect(Collectors.toList());
+				assertEquals(expected, keys);
+			}
+			RecordLayout layout = tableMeta.getClusteredLeafLayout();
+			Projection projection = Projection.of(layout, "pk1");
+			RecordFilter filter = RecordFilter.isNotNull(layout, "sk2");
+			List<String> filtered = new ArrayList<String>();
+			index.iterator(projection, filter).forEachRemaining(row -> filtered.add((String) row.getRecordFields().get(0).getContent()));
+			List<String> keys = new ArrayList<String>();
+			index.iterator(projection, filter, executor, 3).forEachRemaining(row -> keys.add((String) row.getRecordFields().get(0).getContent()));
+			assertEquals(filtered, keys);
+
+			// closed before the end.
+			ClusteredIndex.OrderedParallelIterator iterator = index.iterator(null, null, executor, 4);
+			assertTrue(iterator.hasNext());
+			iterator.next();
+			iterator.close();
+			assertTrue(!iterator.hasNext());
+			assertThrows(IllegalArgumentException.class, () -> index.iterator(null, null, executor, 0));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testReadAhead() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			TableMeta tableMeta = getTableMeta();
+			ClusteredIndex index = parser.getClusteredIndex(tableMeta, clusterKeyRootPageNo);
+			List<String> expected = getKeys(index.iterator());
+			List<Object[]> keys = new ArrayList<Object[]>();
+			for (ClusteredKeyLeafRecord row : index) {
+				List<RecordField> fields = index.getKeyFields(row);
+				keys.add(new Object[] { fields.get(0).getContent(), fields.get(1).getContent() });
+			}
+			long expectedMax = index.aggregate(new Aggregator(tableMeta.getClusteredLeafLayout()).max("sk2")).getGroups().get(0).getValue(0);
+			for (int pages : new int[] { 1, 2, 8, 64 }) {
+				index.setReadAhead(executor, pages);
+				assertEquals(pages, index.getReadAheadPages());
+				assertEquals(expected, getKeys(index.iterator()));
+				assertEquals(599, index.scan(cursor -> {
+				}));
+				Aggregator aggregator = new Aggregator(tableMeta.getClusteredLeafLayout()).max("sk2");
+				assertEquals(expectedMax, index.aggregate(aggregator).getGroups().get(0).getValue(0));
+				assertEquals(expected.subList(100, 301), getKeys(index.iterator(keys.get(100), true, keys.get(300), true)));
+				// stopped at the upper bound, the queued reads are cancelled.
+				Iterator<ClusteredKeyLeafRecord> rows = index.iterator(null, false, keys.get(3), false);
+				assertEquals(expected.subList(0, 3), getKeys(rows));
+			}
+			index.setReadAhead(null, 0);
+			assertEquals(expected, getKeys(index.iterator()));
+			assertThrows(IllegalArgumentException.class, () -> index.setReadAhead(executor, -1));
+			assertThrows(NullPointerException.class, () -> index.setReadAhead(null, 4));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
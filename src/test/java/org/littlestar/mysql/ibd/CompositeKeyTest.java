@@ -2,7 +2,10 @@ package org.littlestar.mysql.ibd;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.littlestar.mysql.ibd.parser.ColumnMeta.newColumnMeta;
 import static org.littlestar.mysql.ibd.parser.ColumnMeta.newFixLengthColumnMeta;
 import static org.littlestar.mysql.ibd.parser.ColumnMeta.newRollPtrColumnMeta;
@@ -25,10 +28,16 @@ import org.littlestar.mysql.ibd.page.IndexPage;
 import org.littlestar.mysql.ibd.page.IndexPage.IndexHeader;
 import org.littlestar.mysql.ibd.page.IndexPage.RecordField;
 import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.RecordExtra;
 import org.littlestar.mysql.ibd.page.SdiPage;
 import org.littlestar.mysql.ibd.page.SdiPage.SdiRecord;
+import org.littlestar.mysql.ibd.page.SecondaryKeyLeafPage;
+import org.littlestar.mysql.ibd.page.SecondaryKeyLeafPage.SecondaryKeyLeafRecord;
+import org.littlestar.mysql.ibd.page.SecondaryKeyNonLeafPage;
+import org.littlestar.mysql.ibd.page.SecondaryKeyNonLeafPage.SecondaryKeyNonLeafRecord;
 import org.littlestar.mysql.ibd.parser.ColumnMeta;
 import org.littlestar.mysql.ibd.parser.IbdFileParser;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 import org.littlestar.mysql.ibd.parser.TableMeta;
 
 /**
@@ -76,7 +85,7 @@ class CompositeKeyTest {
 				.setClusterKey(1, pk1)
 				.setClusterKey(2, pk2)
 				.setSecondaryKey(secondaryKeyId, 1, sk1)
-				.setSecondaryKey(secondaryKeyId, 1, sk2);
+				.setSecondaryKey(secondaryKeyId, 2, sk2);
 		return tableMeta;
 	}
 	
@@ -225,4 +234,116 @@ class CompositeKeyTest {
 			}
 		}
 	}
+	
+	@Test
+	void testSecondaryKeyLeafPage() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			Page page = parser.getPage(secondaryKeyLeafPageNo);
+			SecondaryKeyLeafPage indexPage = new SecondaryKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			List<SecondaryKeyLeafRecord> userRecords = indexPage.getUserRecords(getTableMeta());
+			int matchCount = 0;
+			for (SecondaryKeyLeafRecord userRecord : userRecords) {
+				List<RecordField> secondaryKey = userRecord.getSecondaryKeyFields();
+				List<RecordField> clusterKey = userRecord.getClusterKeyFields();
+				assertEquals(2, secondaryKey.size());
+				assertEquals(2, clusterKey.size());
+				if (Objects.equals("ADAM.GOOCH@sakilacustomer.org", clusterKey.get(0).getContent())) {
+					matchCount++;
+					assertNull(secondaryKey.get(0).getContent());
+					assertEquals(367, ((BigInteger) secondaryKey.get(1).getContent()).intValueExact());
+					assertEquals("ADAM", clusterKey.get(1).getContent());
+				} else if (Objects.equals("KATHLEEN.ADAMS@sakilacustomer.org", clusterKey.get(0).getContent())) {
+					matchCount++;
+					assertEquals("ADAMS", secondaryKey.get(0).getContent());
+					assertEquals(36, ((BigInteger) secondaryKey.get(1).getContent()).intValueExact());
+					assertEquals("KATHLEEN", clusterKey.get(1).getContent());
+				}
+			}
+			assertEquals(2, matchCount);
+		}
+	}
+	
+	@Test
+	void testSecondaryKeyNonLeafPage() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			Page page = parser.getPage(secondaryKeyNonLeafPageNo);
+			SecondaryKeyNonLeafPage indexPage = new SecondaryKeyNonLeafPage(page.getPageRaw(), page.getPageSize());
+			List<SecondaryKeyNonLeafRecord> userRecords = indexPage.getUserRecords(getTableMeta());
+			assertEquals(4, userRecords.size());
+			SecondaryKeyNonLeafRecord record = userRecords.get(1);
+			assertEquals("EBERT", record.getMinSecondaryKeyOnChild().get(0).getContent());
+			assertEquals(466, ((BigInteger) record.getMinSecondaryKeyOnChild().get(1).getContent()).intValueExact());
+			assertEquals("LEO.EBERT@sakilacustomer.org", record.getMinClusterKeyOnChild().get(0).getContent());
+			assertEquals("LEO", record.getMinClusterKeyOnChild().get(1).getContent());
+			assertEquals(13, record.getChildPageNumber());
+		}
+	}
+	
+	@Test
+	void testRecordLayout() {
+		TableMeta tableMeta = getTableMeta();
+		RecordLayout leafLayout = tableMeta.getClusteredLeafLayout();
+		assertSame(leafLayout, tableMeta.getClusteredLeafLayout());
+		assertEquals(6, leafLayout.getColumnCount());
+		assertEquals(2, leafLayout.getKeyColumnCount());
+		assertEquals(1, leafLayout.getNullBitmapBytes());
+		assertEquals(-1, leafLayout.getNullBitmapIndex(0));
+		assertEquals(0, leafLayout.getNullBitmapIndex(4));
+		assertEquals(1, leafLayout.getNullBitmapIndex(5));
+		assertEquals(4, leafLayout.indexOf("sk1"));
+		assertEquals(0, leafLayout.getFixedOffset(0));
+		assertEquals(-1, leafLayout.getFixedOffset(1));
+		
+		RecordLayout nonLeafLayout = tableMeta.getClusteredNonLeafLayout();
+		assertEquals(2, nonLeafLayout.getColumnCount());
+		assertEquals(1, nonLeafLayout.getNullBitmapBytes());
+		
+		RecordLayout secondaryLayout = tableMeta.getSecondaryLeafLayout(secondaryKeyId);
+		assertSame(secondaryLayout, tableMeta.getSecondaryLeafLayout(secondaryKeyId));
+		assertEquals(4, secondaryLayout.getColumnCount());
+		assertEquals("sk1", secondaryLayout.getColumn(0).getName());
+		assertEquals("pk1", secondaryLayout.getColumn(2).getName());
+		assertEquals(2, tableMeta.getSecondaryNonLeafLayout(secondaryKeyId).getNullableColumnCount());
+		
+		//// changing the meta data drops the compiled layouts.
+		tableMeta.addColumn(newFixLengthColumnMeta(INT, 7, "c7", true));
+		assertNotSame(leafLayout, tableMeta.getClusteredLeafLayout());
+		assertEquals(7, tableMeta.getClusteredLeafLayout().getColumnCount());
+		assertNotSame(secondaryLayout, tableMeta.getSecondaryLeafLayout(secondaryKeyId));
+	}
+	
+	@Test
+	void testRecordExtra() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			Page page = parser.getPage(clusterKeyLeafPageNo);
+			ClusteredKeyLeafPage indexPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			byte[] pageRaw = indexPage.getPageRaw();
+			RecordExtra infimum = indexPage.getSystemRecords().getInfimumExtra();
+			RecordExtra supremum = indexPage.getSystemRecords().getSupremumExtra();
+			assertEquals(2, infimum.getRecordStatus());
+			assertEquals(3, supremum.getRecordStatus());
+			assertEquals(0, infimum.getRecordHeapNo());
+			assertEquals(1, supremum.getRecordHeapNo());
+			assertEquals(1, infimum.getRecordsOwned());
+			
+			List<ClusteredKeyLeafRecord> userRecords = indexPage.getUserRecords(getTableMeta());
+			// every record belongs to exactly one directory slot owner (4 - 8 records each).
+			int owned = infimum.getRecordsOwned() + supremum.getRecordsOwned();
+			int maxHeapNo = 0;
+			for (ClusteredKeyLeafRecord record : userRecords) {
+				int pos = record.getNextRecordPos() - record.getNextRecordOffset();
+				assertEquals(record.getDeletedFlag(), RecordExtra.isDeleted(pageRaw, pos));
+				assertEquals(record.getMinRecFlag(), RecordExtra.isMinRec(pageRaw, pos));
+				assertEquals(record.getRecordsOwned(), RecordExtra.getRecordsOwned(pageRaw, pos));
+				assertEquals(record.getRecordHeapNo(), RecordExtra.getRecordHeapNo(pageRaw, pos));
+				assertEquals(record.getRecordStatus(), RecordExtra.getRecordStatus(pageRaw, pos));
+				assertEquals(0, record.getRecordStatus());
+				assertTrue(record.getRecordsOwned() <= 8);
+				owned += record.getRecordsOwned();
+				maxHeapNo = Math.max(maxHeapNo, record.getRecordHeapNo());
+			}
+			assertEquals(userRecords.size() + 2, owned);
+			assertEquals(indexPage.getIndexHeader().getHeapRecords() - 1, maxHeapNo);
+		}
+	}
 }
@@ -15,8 +15,12 @@ import org.littlestar.mysql.ibd.page.Page;
 import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage;
 import org.littlestar.mysql.ibd.page.IndexPage.RecordField;
 import org.littlestar.mysql.ibd.page.ClusteredKeyLeafPage.ClusteredKeyLeafRecord;
+import org.littlestar.mysql.ibd.page.RecordCursor;
 import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.ColumnType;
 import org.littlestar.mysql.ibd.parser.IbdFileParser;
+import org.littlestar.mysql.ibd.parser.RecordFilter;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
 import org.littlestar.mysql.ibd.parser.TableMeta;
 
 class DataTypeTest {
@@ -195,6 +199,61 @@ class DataTypeTest {
 		}
 	}
 	
+	@Test
+	void testIntegerTypesCursor() throws Exception {
+		TableMeta tableMeta = getIntegerTypesTableMeta();
+		String fileName = "src/test/cases/ibd/8.0.18/integer_types.ibd";
+		try (IbdFileParser ibdFileParser = new IbdFileParser(fileName)) {
+			Page page = ibdFileParser.getPage(4);
+			ClusteredKeyLeafPage indexPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			List<ClusteredKeyLeafRecord> userRecords = indexPage.getUserRecords(tableMeta);
+			RecordCursor cursor = new RecordCursor(tableMeta.getClusteredLeafLayout(), indexPage);
+			int rows = 0;
+			while (cursor.next()) {
+				List<RecordField> fields = userRecords.get(rows++).getRecordFields();
+				for (int col = 0; col < fields.size(); col++) {
+					assertEquals(fields.get(col).getConetentRaw() == null, cursor.isNull(col));
+					if (col == 1 || col == 2) {
+						continue;
+					}
+					// bigint_u is read as unsigned 64 bits.
+					assertEquals(fields.get(col).getContent().toString(),
+							col == 11 ? Long.toUnsignedString(cursor.getLong(col)) : Long.toString(cursor.getLong(col)));
+					assertEquals(fields.get(col).getContent(), cursor.getObject(col));
+					assertEquals(cursor.getLong(col), fields.get(col).getLong());
+					if (col <= 8) {
+						// TINYINT - INT, INT UNSIGNED/BIGINT may overflow an int.
+						assertEquals(cursor.getInt(col), fields.get(col).getInt());
+						assertEquals(((BigInteger) fields.get(col).getContent()).intValueExact(), fields.get(col).getInt());
+					}
+				}
+				if (cursor.getLong(0) == 127) {
+					assertEquals(Integer.MAX_VALUE, cursor.getInt(8));
+				} else if (cursor.getLong(0) == -128) {
+					assertEquals(Integer.MIN_VALUE, cursor.getInt(8));
+				}
+			}
+			assertEquals(7, rows);
+			assertEquals(false, cursor.next());
+		}
+	}
+	
+	@Test
+	void testPrimitiveIntegerValues() {
+		// INT -1997 = 0x7FFFF833 (sign bit flipped), at offset 1.
+		byte[] bytes = new byte[] { 0x00, 0x7F, (byte) 0xFF, (byte) 0xF8, 0x33 };
+		assertEquals(-1997, ColumnType.getIntValue(bytes, 1, 4));
+		assertEquals(-1997L, ColumnType.getLongValue(bytes, 1, 4));
+		assertEquals(getIntValue(new byte[] { 0x7F, (byte) 0xFF, (byte) 0xF8, 0x33 }).intValueExact(), ColumnType.getIntValue(bytes, 1, 4));
+		// TINYINT -128 = 0x00, 127 = 0xFF.
+		assertEquals(-128, ColumnType.getIntValue(new byte[] { 0x00 }, 0, 1));
+		assertEquals(127, ColumnType.getIntValue(new byte[] { (byte) 0xFF }, 0, 1));
+		// BIGINT UNSIGNED 18446744073709551615.
+		byte[] max = new byte[] { -1, -1, -1, -1, -1, -1, -1, -1 };
+		assertEquals("18446744073709551615", Long.toUnsignedString(ColumnType.getULongValue(max, 0, 8)));
+		assertEquals(Long.MAX_VALUE, ColumnType.getLongValue(max, 0, 8));
+	}
+	
 	TableMeta getFloatTypeTableMeta() {
 		ColumnMeta col1 = ColumnMeta.newFixLengthColumnMeta(FLOAT, 1, "col1", false);
 		ColumnMeta col2 = ColumnMeta.newFixLengthColumnMeta(DOUBLE, 4, "col2", false);
@@ -396,6 +455,25 @@ class DataTypeTest {
 		return tableMeta;
 	}
 
+	@Test
+	void testCharTypeFilter() throws IOException, Exception {
+		String fileName = "src/test/cases/ibd/8.0.18/char_type.ibd";
+		TableMeta tableMeta = getCharTypeTableMeta();
+		RecordLayout layout = tableMeta.getClusteredLeafLayout();
+		try (IbdFileParser ibdFileParser = new IbdFileParser(fileName)) {
+			Page page = ibdFileParser.getPage(4);
+			ClusteredKeyLeafPage page4 = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			// CHAR is stored padded with spaces, the padding is ignored.
+			List<ClusteredKeyLeafRecord> records = page4.getUserRecords(tableMeta, RecordFilter.eq(layout, "col2", "col2-aa"));
+			assertEquals(1, records.size());
+			assertEquals(1L, ((BigInteger) records.get(0).getRecordFields().get(0).getContent()).longValueExact());
+			// the constants are UTF-8, whatever the platform charset is.
+			records = page4.getUserRecords(tableMeta, RecordFilter.in(layout, "col4", "col4-试试", "col4-案案"));
+			assertEquals(2, records.size());
+			assertEquals(0, page4.getUserRecords(tableMeta, RecordFilter.eq(layout, "col4", "col4-")).size());
+		}
+	}
+
 	@Test
 	@Disabled
 	//Windows平台测试会乱码, Eclipse和Linux没问题, 应该和字符编码有关。
@@ -434,4 +512,52 @@ class DataTypeTest {
 			}
 		}
 	}
+
+	@Test
+	void testIntegerTypesFilter() throws Exception {
+		TableMeta tableMeta = getIntegerTypesTableMeta();
+		RecordLayout layout = tableMeta.getClusteredLeafLayout();
+		String fileName = "src/test/cases/ibd/8.0.18/integer_types.ibd";
+		try (IbdFileParser ibdFileParser = new IbdFileParser(fileName)) {
+			Page page = ibdFileParser.getPage(4);
+			ClusteredKeyLeafPage indexPage = new ClusteredKeyLeafPage(page.getPageRaw(), page.getPageSize());
+			List<ClusteredKeyLeafRecord> userRecords = indexPage.getUserRecords(tableMeta);
+			for (int col = 0; col < layout.getColumnCount(); col++) {
+				if (col == 1 || col == 2) {
+					continue;
+				}
+				String name = layout.getColumn(col).getName();
+				// the encoded constants compare as the decoded values (bigint_u as unsigned).
+				final boolean unsigned = col == 11;
+				for (ClusteredKeyLeafRecord row : userRecords) {
+					RecordField field = row.getRecordFields().get(col);
+					if (field.isNull()) {
+						continue;
+					}
+					long value = field.getLong();
+					int eq = 0, lt = 0, ge = 0;
+					for (ClusteredKeyLeafRecord other : userRecords) {
+						RecordField f = other.getRecordFields().get(col);
+						if (f.isNull()) {
+							continue;
+						}
+						int cmp = unsigned ? Long.compareUnsigned(f.getLong(), value) : Long.compare(f.getLong(), value);
+						eq += cmp == 0 ? 1 : 0;
+						lt += cmp < 0 ? 1 : 0;
+						ge += cmp >= 0 ? 1 : 0;
+					}
+					assertEquals(eq, indexPage.getUserRecords(tableMeta, RecordFilter.eq(layout, name, value)).size());
+					assertEquals(lt, indexPage.getUserRecords(tableMeta, RecordFilter.lt(layout, name, value)).size());
+					assertEquals(ge, indexPage.getUserRecords(tableMeta, RecordFilter.ge(layout, name, value)).size());
+					assertEquals(eq, indexPage.getUserRecords(tableMeta, RecordFilter.in(layout, name, value, value)).size());
+				}
+			}
+			// constants out of the TINYINT range.
+			String tinyint = layout.getColumn(0).getName();
+			assertEquals(0, indexPage.getUserRecords(tableMeta, RecordFilter.eq(layout, tinyint, 1000)).size());
+			assertEquals(0, indexPage.getUserRecords(tableMeta, RecordFilter.gt(layout, tinyint, 1000L)).size());
+			assertEquals(7, indexPage.getUserRecords(tableMeta, RecordFilter.gt(layout, tinyint, -1000)).size());
+			assertEquals(7, indexPage.getUserRecords(tableMeta, RecordFilter.between(layout, tinyint, -128, 127)).size());
+		}
+	}
 }
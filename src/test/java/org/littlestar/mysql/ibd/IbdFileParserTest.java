@@ -0,0 +1,564 @@
+package org.littlestar.mysql.ibd;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.littlestar.mysql.common.AdaptiveMappedByteBuffer;
+import org.littlestar.mysql.common.NativeIo;
+import org.littlestar.mysql.common.ParserHelper;
+import org.littlestar.mysql.ibd.page.FilHeader;
+import org.littlestar.mysql.ibd.page.FspHdrPage;
+import org.littlestar.mysql.ibd.page.IndexPage;
+import org.littlestar.mysql.ibd.page.Page;
+import org.littlestar.mysql.ibd.page.PageView;
+import org.littlestar.mysql.ibd.parser.ColumnMeta;
+import org.littlestar.mysql.ibd.parser.ColumnType;
+import org.littlestar.mysql.ibd.parser.ExtentMap;
+import org.littlestar.mysql.ibd.parser.IbdFileParser;
+import org.littlestar.mysql.ibd.parser.PageCache;
+import org.littlestar.mysql.ibd.parser.PageInventory;
+import org.littlestar.mysql.ibd.parser.PageSource;
+import org.littlestar.mysql.ibd.parser.PageSpliterator;
+import org.littlestar.mysql.ibd.parser.Projection;
+import org.littlestar.mysql.ibd.parser.RecordFilter;
+import org.littlestar.mysql.ibd.parser.RecordLayout;
+import org.littlestar.mysql.ibd.parser.TableMeta;
+
+class IbdFileParserTest {
+	final String ibdFile = "src/test/cases/ibd/8.0.18/composite_key.ibd";
+
+	@Test
+	void testConcurrentGetPage() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			final int pageCount = (int) parser.getPageCount();
+			final List<byte[]> expected = new ArrayList<byte[]>();
+			for (int i = 0; i < pageCount; i++) {
+				expected.add(parser.getPage(i).getPageRaw());
+			}
+			ExecutorService pool = Executors.newFixedThreadPool(8);
+			try {
+				List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+				for (int round = 0; round < 50; round++) {
+					for (int i = 0; i < pageCount; i++) {
+						final long pageIndex = i;
+						futures.add(pool.submit(() -> parser.getPage(pageIndex).getPageRaw()));
+					}
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					assertArrayEquals(expected.get(i % pageCount), futures.get(i).get());
+				}
+			} finally {
+				pool.shutdown();
+			}
+			assertEquals(pageCount, parser.getPageTypeMap().values().stream().mapToInt(List::size).sum());
+		}
+	}
+
+	@Test
+	void testPageView() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			for (long i = 0; i < parser.getPageCount(); i++) {
+				Page page = parser.getPage(i);
+				PageView view = parser.getPageView(i);
+				FilHeader filHeader = page.getFilHeader();
+				assertArrayEquals(page.getPageRaw(), view.getPageRaw());
+				assertEquals(filHeader.getPageOffset(), view.getPageOffset());
+				assertEquals(filHeader.getPreviousPage(), view.getPreviousPage());
+				assertEquals(filHeader.getNextPage(), view.getNextPage());
+				assertEquals(filHeader.getPageType(), view.getPageType());
+				assertEquals(filHeader.getSpaceId(), view.getSpaceId());
+				if (page instanceof IndexPage) {
+					IndexPage.IndexHeader indexHeader = ((IndexPage) page).getIndexHeader();
+					assertEquals(indexHeader.getIndexId().longValue(), view.getIndexId());
+					assertEquals(indexHeader.getPageLevel(), view.getPageLevel());
+					assertEquals(indexHeader.getHeapTopPosition(), view.getHeapTopPosition());
+					assertEquals(indexHeader.getDirectorySlotCount(), view.getDirectorySlotCount());
+				}
+			}
+		}
+	}
+
+	@Test
+	void testPageCache() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			for (PageCache cache : new PageCache[] { PageCache.newLruCache(4 * parser.getPageSize(), parser.getPageSize()),
+					PageCache.newClockCache(4 * parser.getPageSize(), parser.getPageSize()) }) {
+				parser.setPageCache(cache);
+				assertEquals(4, cache.getCapacity());
+				Page root = parser.getPage(4);
+				assertSame(root, parser.getPage(4));
+				assertEquals(1, cache.getHitCount());
+				assertEquals(1, cache.getMissCount());
+				for (long i = 5; i < parser.getPageCount(); i++) {
+					parser.getPage(i);
+				}
+				assertEquals(4, cache.size());
+				assertEquals(parser.getPageCount() - 4 - 4, cache.getEvictionCount());
+				assertArrayEquals(root.getPageRaw(), parser.getPage(4).getPageRaw());
+			}
+			parser.setPageCache(null);
+		}
+	}
+
+	@Test
+	void testParallelPageTypeMap() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				assertEquals(parser.getPageTypeMap(), parser.getPageTypeMap(pool));
+				assertEquals(parser.getPageTypeMap(), parser.getPageTypeMap(pool, 2));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void testPageInventory() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			PageInventory inventory = parser.getPageInventory();
+			Map<Integer, List<Long>> pageTypeMap = parser.getPageTypeMap();
+			assertEquals(pageTypeMap.size(), inventory.getPageTypes().length);
+			assertEquals(parser.getPageCount(), inventory.size());
+			for (int pageType : inventory.getPageTypes()) {
+				List<Long> expected = pageTypeMap.get(pageType);
+				PageInventory.PageSet pages = inventory.getPages(pageType);
+				assertEquals(expected.size(), pages.size());
+				assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), pages.toArray());
+				assertArrayEquals(pages.toArray(), pages.stream().toArray());
+				for (long pageNumber : expected) {
+					assertTrue(inventory.contains(pageType, pageNumber));
+				}
+			}
+			PageInventory.PageSet indexPages = inventory.getPages(FilHeader.FIL_PAGE_INDEX);
+			assertEquals(1, indexPages.getRangeCount());
+			assertFalse(indexPages.contains(3));
+			assertTrue(inventory.getPages(FilHeader.FIL_PAGE_TYPE_BLOB).isEmpty());
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				assertEquals(pageTypeMap, parser.getPageInventory(pool, 2).toMap());
+				assertEquals(indexPages.getRangeCount(),
+						parser.getPageInventory(pool, 1).getPages(FilHeader.FIL_PAGE_INDEX).getRangeCount());
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void testPageSpliterator() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			final long pageCount = parser.getPageCount();
+			PageSpliterator spliterator = new PageSpliterator(parser, 0, pageCount);
+			assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+			assertEquals(pageCount, spliterator.getExactSizeIfKnown());
+			Spliterator<Page> prefix = spliterator.trySplit();
+			assertEquals(pageCount / 2, prefix.estimateSize());
+			assertEquals(pageCount - pageCount / 2, spliterator.estimateSize());
+
+			// the encounter order is the page number order.
+			List<String> types = parser.pages().parallel().map(page -> page.getFilHeader().getPageTypeName())
+					.collect(Collectors.toList());
+			assertEquals(pageCount, types.size());
+			for (int i = 0; i < types.size(); i++) {
+				assertEquals(parser.getPage(i).getFilHeader().getPageTypeName(), types.get(i));
+			}
+			assertEquals(parser.getPageTypeMap().get(FilHeader.FIL_PAGE_INDEX).size(),
+					parser.pages().parallel().filter(page -> page.getFilHeader().getPageType() == FilHeader.FIL_PAGE_INDEX).count());
+		}
+	}
+
+	@Test
+	void testParallelRows() throws Exception {
+		ColumnMeta pk1 = ColumnMeta.newColumnMeta(ColumnType.VARCHAR, 1, "pk1", 800, false, true);
+		ColumnMeta pk2 = ColumnMeta.newColumnMeta(ColumnType.VARCHAR, 2, "pk2", 32, false, true);
+		TableMeta tableMeta = new TableMeta()
+				.addColumn(pk1)
+				.addColumn(pk2)
+				.addColumn(ColumnMeta.newTrxIdColumnMeta(3))
+				.addColumn(ColumnMeta.newRollPtrColumnMeta(4))
+				.addColumn(ColumnMeta.newColumnMeta(ColumnType.VARCHAR, 5, "sk1", 800, true, true))
+				.addColumn(ColumnMeta.newFixLengthColumnMeta(ColumnType.INT, 6, "sk2", true))
+				.setClusterKey(1, pk1)
+				.setClusterKey(2, pk2);
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			Set<Object> keys = parser.getClusteredIndex(tableMeta, 4).stream()
+					.map(row -> row.getRecordFields().get(0).getContent()).collect(Collectors.toSet());
+			assertEquals(599, keys.size());
+			assertEquals(599, parser.rows(tableMeta).parallel().count());
+			assertEquals(keys, parser.rows(tableMeta).parallel()
+					.map(row -> row.getRecordFields().get(0).getContent()).collect(Collectors.toSet()));
+			RecordLayout layout = tableMeta.getClusteredLeafLayout();
+			assertEquals(parser.rows(tableMeta).filter(row -> row.getRecordFields().get(5).isNull()).count(),
+					parser.rows(tableMeta, Projection.of(layout, "pk1"), RecordFilter.isNull(layout, "sk2")).parallel().count());
+		}
+		// the page views of a scan keep at most maxWindows windows of a segmented mapping.
+		final int pageSize = IbdFileParser.PAGE_SIZE_16K;
+		PageSource.Mapped mapped = new PageSource.Mapped(ibdFile, 3 * pageSize, 2);
+		try (IbdFileParser parser = new IbdFileParser(mapped, pageSize)) {
+			AdaptiveMappedByteBuffer buffer = mapped.getBuffer();
+			assertEquals(599, parser.rows(tableMeta).peek(row -> assertTrue(buffer.getWindowCount() <= 2)).count());
+			assertEquals(599, parser.rows(tableMeta).parallel().count());
+			assertTrue(buffer.getWindowCount() <= 2);
+		}
+		// a scan reads each page once, the leaf pages are built from the filtered page view.
+		final AtomicLong bytesRead = new AtomicLong();
+		PageSource.Positional positional = new PageSource.Positional(Paths.get(ibdFile), pageSize);
+		PageSource counting = new PageSource() {
+			@Override
+			public long length() throws IOException {
+				return positional.length();
+			}
+
+			@Override
+			public byte[] read(long pos, byte[] dst) throws IOException {
+				bytesRead.addAndGet(dst.length);
+				return positional.read(pos, dst);
+			}
+
+			@Override
+			public void close() throws IOException {
+				positional.close();
+			}
+		};
+		try (IbdFileParser parser = new IbdFileParser(counting, pageSize)) {
+			long pageCount = parser.getPageCount();
+			Stream<?> rows = parser.rows(tableMeta);
+			bytesRead.set(0);
+			assertEquals(599, rows.count());
+			assertTrue(bytesRead.get() <= pageCount * pageSize, "bytes read: " + bytesRead.get());
+		}
+	}
+
+	@Test
+	void testPageSourceBackends() throws Exception {
+		try (IbdFileParser mmap = new IbdFileParser(ibdFile)) {
+			final long pageCount = mmap.getPageCount();
+			for (PageSource.Backend backend : PageSource.Backend.values()) {
+				try (IbdFileParser parser = new IbdFileParser(ibdFile, IbdFileParser.PAGE_SIZE_16K, backend)) {
+					assertEquals(mmap.getFileLength(), parser.getFileLength());
+					for (long i = 0; i < pageCount; i++) {
+						assertArrayEquals(mmap.getPage(i).getPageRaw(), parser.getPage(i).getPageRaw());
+						assertEquals(mmap.getPageView(i).getPageType(), parser.getPageView(i).getPageType());
+					}
+					assertEquals(mmap.getPageTypeMap(), parser.getPageTypeMap());
+					// unaligned and past the end of file.
+					byte[] expected = new byte[100];
+					mmap.getPageSource().read(IbdFileParser.PAGE_SIZE_16K - 50, expected);
+					assertArrayEquals(expected, parser.getPageSource().read(IbdFileParser.PAGE_SIZE_16K - 50, new byte[100]));
+					assertThrows(IOException.class, () -> parser.getPageSource().read(parser.getFileLength() - 10, new byte[20]));
+				}
+			}
+		}
+		// reads larger than the pooled buffer.
+		try (PageSource.Direct direct = new PageSource.Direct(Paths.get(ibdFile), 4096);
+				PageSource.Positional positional = new PageSource.Positional(Paths.get(ibdFile), 1000)) {
+			byte[] expected = new byte[3 * IbdFileParser.PAGE_SIZE_16K];
+			positional.read(7, expected);
+			assertArrayEquals(expected, direct.read(7, new byte[expected.length]));
+		}
+	}
+
+	@Test
+	void testSegmentedMapping() throws Exception {
+		final int pageSize = IbdFileParser.PAGE_SIZE_16K;
+		try (IbdFileParser parser = new IbdFileParser(ibdFile);
+				PageSource.Mapped mapped = new PageSource.Mapped(ibdFile, 3 * pageSize, 2)) {
+			AdaptiveMappedByteBuffer buffer = mapped.getBuffer();
+			final long pageCount = parser.getPageCount();
+			for (long i = 0; i < pageCount; i++) {
+				assertArrayEquals(parser.getPage(i).getPageRaw(), mapped.read(i * pageSize, new byte[pageSize]));
+				assertTrue(buffer.getWindowCount() <= 2);
+			}
+			// reads straddle the windows.
+			byte[] expected = new byte[2 * pageSize];
+			parser.getPageSource().read(3 * pageSize - 100, expected);
+			assertArrayEquals(expected, mapped.read(3 * pageSize - 100, new byte[expected.length]));
+			ByteBuffer view = mapped.slice(3 * pageSize - 100, 200);
+			byte[] viewBytes = new byte[200];
+			view.get(viewBytes);
+			assertArrayEquals(Arrays.copyOf(expected, 200), viewBytes);
+			expected = new byte[7 * pageSize];
+			parser.getPageSource().read(1, expected);
+			assertArrayEquals(expected, mapped.read(1, new byte[expected.length]));
+			assertTrue(buffer.getWindowCount() <= 2);
+			assertTrue(buffer.getRemapCount() > 2);
+			// a view pins its window: evicted but not unmapped, reused while the view is alive.
+			ByteBuffer pinned = buffer.slice(10, 100);
+			long unmapCount = buffer.getUnmapCount();
+			for (long i = 0; i < pageCount; i++) {
+				mapped.read(i * pageSize, new byte[pageSize]);
+				assertTrue(buffer.getWindowCount() <= 2);
+			}
+			assertTrue(buffer.getUnmapCount() > unmapCount);
+			long remapCount = buffer.getRemapCount();
+			assertEquals(pinned, buffer.slice(10, 100));
+			assertEquals(remapCount, buffer.getRemapCount());
+			assertThrows(IOException.class, () -> mapped.read(parser.getFileLength() - 10, new byte[20]));
+			mapped.close();
+			assertEquals(0, buffer.getWindowCount());
+			assertThrows(IOException.class, () -> mapped.read(0, new byte[10]));
+			// the view is still mapped after close.
+			byte[] pinnedBytes = new byte[100];
+			pinned.get(pinnedBytes);
+			assertArrayEquals(parser.getPageSource().read(10, new byte[100]), pinnedBytes);
+		}
+	}
+
+	@Test
+	void testSegmentPageSource() throws Exception {
+		// final in JDK 22, not used as the preview API of JDK 21.
+		assertEquals(ParserHelper.getJavaVersion() >= 22, PageSource.Segment.isSupported());
+		if (!PageSource.Segment.isSupported()) {
+			assertThrows(UnsupportedOperationException.class, () -> new PageSource.Segment(Paths.get(ibdFile)));
+			try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+				assertTrue(parser.getPageSource() instanceof PageSource.Mapped);
+			}
+			return;
+		}
+		try (IbdFileParser mapped = new IbdFileParser(new PageSource.Mapped(ibdFile, PageSource.DEFAULT_MAP_WINDOW_SIZE), IbdFileParser.PAGE_SIZE_16K);
+				IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			assertTrue(parser.getPageSource() instanceof PageSource.Segment);
+			for (long i = 0; i < mapped.getPageCount(); i++) {
+				assertArrayEquals(mapped.getPage(i).getPageRaw(), parser.getPage(i).getPageRaw());
+				PageView expected = mapped.getPageView(i);
+				PageView view = parser.getPageView(i);
+				assertEquals(expected.getNextPage(), view.getNextPage());
+				assertEquals(expected.getPageType(), view.getPageType());
+				assertEquals(expected.getPageLSN(), view.getPageLSN());
+				assertEquals(expected.getUInt8(PageView.FIL_PAGE_TYPE + 1), view.getUInt8(PageView.FIL_PAGE_TYPE + 1));
+				assertEquals(expected.getIndexId(), view.getIndexId());
+				assertArrayEquals(expected.getPageRaw(), view.getPageRaw());
+				assertEquals(expected.getBuffer(), view.getBuffer());
+			}
+			PageView view = parser.getPageView(0);
+			assertThrows(IndexOutOfBoundsException.class, () -> view.getUInt32(IbdFileParser.PAGE_SIZE_16K - 2));
+			assertThrows(IOException.class, () -> parser.getPageSource().read(parser.getFileLength() - 10, new byte[20]));
+			parser.getPageSource().close();
+			assertThrows(IOException.class, () -> parser.getPageSource().read(0, new byte[10]));
+			assertThrows(IllegalStateException.class, () -> view.getPageType());
+		}
+	}
+
+	@Test
+	void testNativeIo() throws Exception {
+		String arch = System.getProperty("os.arch", "");
+		assumeTrue(System.getProperty("os.name", "").startsWith("Linux")
+				&& ("amd64".equals(arch) || "x86_64".equals(arch) || "aarch64".equals(arch)));
+		assumeTrue(ParserHelper.getJavaVersion() >= 22, "java.lang.foreign is final in JDK 22");
+		assertTrue(NativeIo.isSupported());
+		int fd = NativeIo.open(ibdFile);
+		assertTrue(fd >= 0);
+		try {
+			assertTrue(NativeIo.fadvise(fd, 0, IbdFileParser.PAGE_SIZE_16K, NativeIo.POSIX_FADV_WILLNEED));
+		} finally {
+			NativeIo.close(fd);
+		}
+		assertEquals(-1, NativeIo.open(ibdFile + ".not-found"));
+	}
+
+	@Test
+	void testScanAdvice() throws Exception {
+		final int pageSize = IbdFileParser.PAGE_SIZE_16K;
+		final List<String> advices = new ArrayList<>();
+		PageSource mapped = PageSource.open(ibdFile, PageSource.Backend.MMAP);
+		PageSource recording = new PageSource() {
+			@Override
+			public long length() throws IOException {
+				return mapped.length();
+			}
+
+			@Override
+			public byte[] read(long pos, byte[] dst) throws IOException {
+				return mapped.read(pos, dst);
+			}
+
+			@Override
+			public boolean advise(long pos, long length, Advice advice) {
+				assertEquals(0, pos % pageSize);
+				assertEquals(0, length % pageSize);
+				advices.add(advice + " " + pos / pageSize + "-" + (pos + length) / pageSize);
+				return mapped.advise(pos, length, advice);
+			}
+
+			@Override
+			public void close() throws IOException {
+				mapped.close();
+			}
+		};
+		try (IbdFileParser parser = new IbdFileParser(recording, pageSize);
+				IbdFileParser expected = new IbdFileParser(ibdFile)) {
+			final long pageCount = parser.getPageCount();
+			assertEquals(pageCount, parser.pages().count());
+			assertTrue(advices.isEmpty());
+			parser.setScanAdviceWindow(3);
+			assertEquals(expected.pages().map(Page::getPageRaw).map(Arrays::toString).collect(Collectors.toList()),
+					parser.pages().map(Page::getPageRaw).map(Arrays::toString).collect(Collectors.toList()));
+			assertEquals("SEQUENTIAL 0-" + pageCount, advices.get(0));
+			assertEquals("WILLNEED 0-3", advices.get(1));
+			assertEquals("WILLNEED 3-6", advices.get(2));
+			assertEquals("DONTNEED 0-3", advices.get(3));
+			assertEquals("DONTNEED " + (pageCount - (pageCount - 1) % 3 - 1) + "-" + pageCount, advices.get(advices.size() - 1));
+		}
+	}
+
+	@Test
+	void testReadPagesAsync() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (PageSource.Backend backend : PageSource.Backend.values()) {
+			try (IbdFileParser expected = new IbdFileParser(ibdFile);
+					IbdFileParser parser = new IbdFileParser(ibdFile, IbdFileParser.PAGE_SIZE_16K, backend)) {
+				final long pageCount = parser.getPageCount();
+				long[] all = new long[(int) pageCount];
+				for (int i = 0; i < all.length; i++) {
+					all[i] = i;
+				}
+				List<CompletableFuture<Page>> pages = parser.readPagesAsync(executor, all, 2);
+				for (long i = 0; i < pageCount; i++) {
+					Page page = pages.get((int) i).get();
+					assertArrayEquals(expected.getPage(i).getPageRaw(), page.getPageRaw());
+					assertEquals(expected.getPage(i).getClass(), page.getClass());
+				}
+				// scattered, unordered and repeated page numbers.
+				long[] pageNumbers = { 5, 1, 3, 2, 5, 0, pageCount - 1 };
+				pages = parser.readPagesAsync(executor, pageNumbers);
+				for (int i = 0; i < pageNumbers.length; i++) {
+					assertArrayEquals(expected.getPage(pageNumbers[i]).getPageRaw(), pages.get(i).get().getPageRaw());
+				}
+				assertSame(pages.get(0).get(), pages.get(4).get());
+				assertArrayEquals(expected.getPage(3).getPageRaw(), parser.readPageAsync(3, executor).get().getPageRaw());
+				ExecutionException e = assertThrows(ExecutionException.class, () -> parser.readPageAsync(pageCount, executor).get());
+				assertTrue(e.getCause() instanceof IOException);
+				// a run past the end of file fails.
+				List<CompletableFuture<Page>> tail = parser.readPagesAsync(executor, pageCount - 1, pageCount);
+				assertThrows(ExecutionException.class, () -> tail.get(1).get());
+				assertTrue(parser.readPagesAsync(executor).isEmpty());
+				// the pages read are shared through the page cache.
+				parser.setPageCache(PageCache.newLruCache(64L * IbdFileParser.PAGE_SIZE_16K, IbdFileParser.PAGE_SIZE_16K));
+				Page page = parser.readPageAsync(4, executor).get();
+				assertSame(page, parser.getPage(4));
+				assertSame(page, parser.readPagesAsync(executor, 4).get(0).getNow(null));
+				// the positional and direct sources read with AsynchronousFileChannel, not on the executor.
+				parser.setPageCache(null);
+				Executor rejecting = command -> {
+					throw new RejectedExecutionException();
+				};
+				CompletableFuture<Page> future = parser.readPageAsync(5, rejecting);
+				if (backend == PageSource.Backend.MMAP) {
+					e = assertThrows(ExecutionException.class, () -> future.get());
+					assertTrue(e.getCause() instanceof RejectedExecutionException);
+				} else {
+					assertArrayEquals(expected.getPage(5).getPageRaw(), future.get().getPageRaw());
+				}
+			}
+		}
+		executor.shutdown();
+		// the scattered reads of the backends.
+		try (PageSource.Direct direct = new PageSource.Direct(Paths.get(ibdFile), 4096);
+				PageSource.Positional positional = new PageSource.Positional(Paths.get(ibdFile), 1000)) {
+			byte[] expected = new byte[3 * IbdFileParser.PAGE_SIZE_16K];
+			positional.read(7, expected);
+			byte[][] dsts = { new byte[IbdFileParser.PAGE_SIZE_16K], new byte[0], new byte[2 * IbdFileParser.PAGE_SIZE_16K] };
+			positional.read(7, dsts);
+			assertArrayEquals(expected, concat(dsts));
+			dsts = new byte[][] { new byte[100], new byte[expected.length - 100] };
+			direct.read(7, dsts);
+			assertArrayEquals(expected, concat(dsts));
+			assertThrows(IOException.class, () -> positional.read(positional.length() - 10, new byte[][] { new byte[5], new byte[6] }));
+			// unaligned asynchronous reads.
+			for (PageSource source : new PageSource[] { positional, direct }) {
+				dsts = new byte[][] { new byte[100], new byte[0], new byte[expected.length - 100] };
+				assertTrue(Objects.isNull(source.readAsync(7, dsts, null).get()));
+				assertArrayEquals(expected, concat(dsts));
+				byte[] last = new byte[10];
+				source.readAsync(source.length() - 10, new byte[][] { last }, null).get();
+				assertArrayEquals(positional.read(positional.length() - 10, new byte[10]), last);
+				ExecutionException e = assertThrows(ExecutionException.class,
+						() -> source.readAsync(source.length() - 10, new byte[][] { new byte[20] }, null).get());
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+		PageSource.Positional closed = new PageSource.Positional(Paths.get(ibdFile), 1000);
+		closed.readAsync(0, new byte[][] { new byte[10] }, null).get();
+		closed.close();
+		ExecutionException e = assertThrows(ExecutionException.class,
+				() -> closed.readAsync(0, new byte[][] { new byte[10] }, null).get());
+		assertTrue(e.getCause() instanceof IOException);
+	}
+
+	private static byte[] concat(byte[][] arrays) {
+		byte[] bytes = new byte[Arrays.stream(arrays).mapToInt(array -> array.length).sum()];
+		int offset = 0;
+		for (byte[] array : arrays) {
+			System.arraycopy(array, 0, bytes, offset, array.length);
+			offset += array.length;
+		}
+		return bytes;
+	}
+
+	@Test
+	void testExtentMap() throws Exception {
+		try (IbdFileParser parser = new IbdFileParser(ibdFile)) {
+			ExtentMap extentMap = parser.getExtentMap();
+			assertEquals(64, extentMap.getExtentSize());
+			assertEquals(15, extentMap.getPageCount());
+			assertEquals(64, extentMap.getFreeLimit());
+			assertEquals(FspHdrPage.XDES_FREE_FRAG, extentMap.getExtentState(0));
+			assertFalse(extentMap.isExtentFree(0));
+			for (long i = 0; i < 14; i++) {
+				assertFalse(extentMap.isPageFree(i));
+			}
+			assertTrue(extentMap.isPageFree(14));
+			assertEquals(1, extentMap.getFreePageCount());
+			assertEquals(15, extentMap.nextUsedPage(14));
+			assertEquals(3, extentMap.nextUsedPage(3));
+
+			FspHdrPage.XdesEntry entry = ((FspHdrPage) parser.getPage(0)).getXdesEntryList().get(0);
+			assertEquals(FspHdrPage.XDES_FREE_FRAG, entry.getState());
+			assertFalse(entry.isPageFree(13));
+			assertTrue(entry.isPageFree(14));
+			assertEquals(FspHdrPage.XDES_NOT_INITED, ((FspHdrPage) parser.getPage(0)).getXdesEntryList().get(1).getState());
+
+			// the free page is not read.
+			List<Long> used = parser.usedPages().map(page -> page.getFilHeader().getPageOffset()).collect(Collectors.toList());
+			assertEquals(14, used.size());
+			assertFalse(used.contains(14L));
+			assertEquals(used, parser.usedPages().parallel().map(page -> page.getFilHeader().getPageOffset())
+					.collect(Collectors.toList()));
+		}
+		try (IbdFileParser parser = new IbdFileParser("src/test/cases/ibd/8.0.18/integer_types.ibd")) {
+			ExtentMap extentMap = parser.getExtentMap();
+			assertTrue(extentMap.isPageFree(5));
+			assertTrue(extentMap.isPageFree(6));
+			assertEquals(5, parser.usedPages().count());
+		}
+	}
+}